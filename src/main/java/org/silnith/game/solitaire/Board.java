@@ -1,6 +1,9 @@
 package org.silnith.game.solitaire;
 
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Iterator;
@@ -11,18 +14,121 @@ import org.silnith.deck.Card;
 import org.silnith.deck.Suit;
 
 
-public class Board {
+/**
+ * An immutable game board. The board is stored in a packed form so that the
+ * millions of boards held by a search take as little memory as possible. Every
+ * card on the tableau and in the draw pile occupies a single byte holding its
+ * {@link CardIds card identifier}, the pile boundaries and face-down counts
+ * occupy one byte per pile, and the goal is held as four heights packed into a
+ * single {@code int}.
+ * <p>
+ * The face-down cards are kept apart from the rest, since most moves do not
+ * turn a card face up. A board made by such a move shares the face-down cards
+ * of the board it was made from.
+ * <p>
+ * The draw pile is kept as the order in which it was dealt, shared by every
+ * board descended from the deal, together with a bit mask of the cards that
+ * have since been played from it. Playing a card from the draw pile only sets
+ * a bit.
+ * <p>
+ * The {@link #getPiles()}, {@link #getDrawPile()}, and {@link #getGoal()}
+ * methods decode the packed form on demand. They do not cache their results,
+ * so callers that need the same view repeatedly should hold on to it.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class Board implements ReadableBoard {
     
-    private final List<Pile> piles;
+    private static final int BITS_PER_GOAL_HEIGHT = 4;
     
-    private final List<Card> drawPile;
+    private static final int GOAL_HEIGHT_MASK = (1 << BITS_PER_GOAL_HEIGHT) - 1;
     
+    private static final Suit[] SUITS = Suit.values();
+    
+    /**
+     * The number of bytes written by {@link #writeTo(ByteBuffer, int)} before
+     * the cards: the fingerprint, the draw pile mask, the goal, and the draw
+     * index.
+     */
+    private static final int PACKED_HEADER_SIZE = Long.BYTES + Long.BYTES + Short.BYTES + Byte.BYTES;
+    
+    /**
+     * The packed goal with every card of every suit in it.
+     */
+    private static final int COMPLETE_GOAL;
+    
+    static {
+        int completeGoal = 0;
+        for (final Suit suit : SUITS) {
+            completeGoal |= CardIds.NUMBER_OF_CARDS / SUITS.length << (suit.ordinal() * BITS_PER_GOAL_HEIGHT);
+        }
+        COMPLETE_GOAL = completeGoal;
+    }
+    
+    private final int numberOfPiles;
+    
+    /*
+     * The layout, for p piles holding t cards in total, is:
+     * 
+     * [0, p) the number of face-up cards in each pile
+     * [p, 2p) the number of face-down cards in each pile
+     * [2p, 2p + t) the face-up cards, pile by pile, bottom to top
+     * 
+     * The array is never modified once the board is constructed, so boards that
+     * only differ in the draw pile share it.
+     */
+    private final byte[] cards;
+    
+    /**
+     * The face-down cards, pile by pile, bottom to top. Never modified, and
+     * shared by every board that has the same face-down cards.
+     */
+    private final byte[] faceDownCards;
+    
+    /**
+     * The draw pile as it was dealt, in order. Never modified, and shared by
+     * every board descended from the same deal.
+     */
+    private final byte[] dealtDrawPile;
+    
+    /**
+     * Bit {@code i} is set if the card at position {@code i} of
+     * {@link #dealtDrawPile} has been played.
+     */
+    private final long drawPileRemoved;
+    
+    /**
+     * The number of cards flipped, counting only the cards still in the draw
+     * pile.
+     */
     private final int drawIndex;
     
-    private final Map<Suit, List<Card>> goal;
+    /**
+     * The number of cards in the goal for each suit, packed four bits per
+     * suit in suit order.
+     */
+    private final int goal;
+    
+    /**
+     * The Zobrist fingerprint of this board. See {@link Zobrist} for what is
+     * hashed.
+     */
+    private final long fingerprint;
+    
+    /**
+     * The fingerprint {@link Solitaire#getFingerprint(ReadableBoard)} last
+     * gave this board, or {@code null}. A search fingerprints every board on
+     * the path again for each board it makes, so the result is kept. It is
+     * immutable, so a thread that reads it while another sets it sees either
+     * the old value or the new one.
+     */
+    private SearchFingerprint searchFingerprint;
     
     public Board(final List<Card> deck, final int numPiles) {
         super();
+        if (numPiles > Zobrist.MAX_PILES) {
+            throw new IllegalArgumentException("Too many piles: " + numPiles);
+        }
         
         int remaining = deck.size();
         final Iterator<Card> iter = deck.iterator();
@@ -43,83 +149,389 @@ public class Board {
             tempPiles.add(new Pile(stack, null));
         }
         
-        // this.piles = Collections.unmodifiableList(tempPiles);
-        this.piles = tempPiles;
-        
         final List<Card> tempDrawPile = new ArrayList<>(remaining);
         while (iter.hasNext()) {
             final Card card = iter.next();
             tempDrawPile.add(card);
         }
-        // this.drawPile = Collections.unmodifiableList(tempDrawPile);
-        this.drawPile = tempDrawPile;
-        this.drawIndex = 0;
-        
-        final Map<Suit, List<Card>> tempGoal = new EnumMap<>(Suit.class);
-        for (final Suit suit : Suit.values()) {
-            final List<Card> cards = Collections.emptyList();
-            tempGoal.put(suit, cards);
-        }
         
-        // this.goal = Collections.unmodifiableMap(tempGoal);
-        this.goal = tempGoal;
+        this.numberOfPiles = numPiles;
+        this.cards = pack(tempPiles);
+        this.faceDownCards = packFaceDown(tempPiles);
+        this.dealtDrawPile = packDrawPile(tempDrawPile);
+        this.drawPileRemoved = 0;
+        this.drawIndex = 0;
+        this.goal = 0;
+        this.fingerprint = computeFingerprint();
     }
     
     /**
-     * Constructs a new board. All parameters must be immutable.
+     * Constructs a new board. The goal is assumed to be built up from the ace
+     * in suit order, so only the number of cards for each suit is kept.
      */
     protected Board(final List<Pile> piles, final List<Card> drawPile, final int drawIndex,
             final Map<Suit, List<Card>> goal) {
         super();
-        this.piles = piles;
         if (drawIndex > drawPile.size()) {
             throw new IllegalArgumentException("Draw index outside of draw pile.");
         }
-        this.drawPile = drawPile;
+        if (piles.size() > Zobrist.MAX_PILES) {
+            throw new IllegalArgumentException("Too many piles: " + piles.size());
+        }
+        this.numberOfPiles = piles.size();
+        this.cards = pack(piles);
+        this.faceDownCards = packFaceDown(piles);
+        this.dealtDrawPile = packDrawPile(drawPile);
+        this.drawPileRemoved = 0;
+        this.drawIndex = drawIndex;
+        int packedGoal = 0;
+        for (final Suit suit : SUITS) {
+            packedGoal |= goal.get(suit).size() << (suit.ordinal() * BITS_PER_GOAL_HEIGHT);
+        }
+        this.goal = packedGoal;
+        this.fingerprint = computeFingerprint();
+    }
+    
+    /**
+     * Takes a snapshot of a mutable board.
+     */
+    Board(final MutableBoard board) {
+        super();
+        this.numberOfPiles = board.getNumberOfPiles();
+        int faceUp = 0;
+        int faceDown = 0;
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            faceUp += board.getNumberOfFaceUpCards(i);
+            faceDown += board.getNumberOfFaceDownCards(i);
+        }
+        this.cards = new byte[2 * numberOfPiles + faceUp];
+        this.faceDownCards = new byte[faceDown];
+        int offset = 2 * numberOfPiles;
+        int faceDownOffset = 0;
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            final int up = board.getNumberOfFaceUpCards(i);
+            final int down = board.getNumberOfFaceDownCards(i);
+            cards[i] = (byte) up;
+            cards[numberOfPiles + i] = (byte) down;
+            for (int j = 0; j < down; j++ ) {
+                faceDownCards[faceDownOffset++ ] = (byte) board.getCardId(i, j);
+            }
+            for (int j = 0; j < up; j++ ) {
+                cards[offset++ ] = (byte) board.getCardId(i, down + j);
+            }
+        }
+        this.dealtDrawPile = board.getDealtDrawPile();
+        this.drawPileRemoved = board.getDrawPileRemoved();
+        this.drawIndex = board.getDrawIndex();
+        int packedGoal = 0;
+        for (final Suit suit : SUITS) {
+            packedGoal |= board.getGoalHeight(suit) << (suit.ordinal() * BITS_PER_GOAL_HEIGHT);
+        }
+        this.goal = packedGoal;
+        this.fingerprint = board.getFingerprint();
+        assert fingerprint == computeFingerprint();
+    }
+    
+    private Board(final int numberOfPiles, final byte[] cards, final byte[] faceDownCards,
+            final byte[] dealtDrawPile, final long drawPileRemoved, final int drawIndex, final int goal,
+            final long fingerprint) {
+        super();
+        this.numberOfPiles = numberOfPiles;
+        this.cards = cards;
+        this.faceDownCards = faceDownCards;
+        this.dealtDrawPile = dealtDrawPile;
+        this.drawPileRemoved = drawPileRemoved;
         this.drawIndex = drawIndex;
         this.goal = goal;
+        this.fingerprint = fingerprint;
+    }
+    
+    private static byte[] pack(final List<Pile> piles) {
+        final int numberOfPiles = piles.size();
+        int size = 2 * numberOfPiles;
+        for (final Pile pile : piles) {
+            size += pile.getNumberOfFaceUpCards();
+        }
+        final byte[] cards = new byte[size];
+        int offset = 2 * numberOfPiles;
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            final Pile pile = piles.get(i);
+            cards[i] = (byte) pile.getNumberOfFaceUpCards();
+            cards[numberOfPiles + i] = (byte) pile.getNumberOfFaceDownCards();
+            offset = packCards(pile.getFaceUpCards(), cards, offset);
+        }
+        return cards;
+    }
+    
+    private static byte[] packFaceDown(final List<Pile> piles) {
+        int size = 0;
+        for (final Pile pile : piles) {
+            size += pile.getNumberOfFaceDownCards();
+        }
+        final byte[] faceDownCards = new byte[size];
+        int offset = 0;
+        for (final Pile pile : piles) {
+            offset = packCards(pile.getFaceDownCards(), faceDownCards, offset);
+        }
+        return faceDownCards;
+    }
+    
+    private static byte[] packDrawPile(final List<Card> drawPile) {
+        if (drawPile.size() > Long.SIZE) {
+            throw new IllegalArgumentException("Too many cards in the draw pile: " + drawPile.size());
+        }
+        final byte[] dealtDrawPile = new byte[drawPile.size()];
+        packCards(drawPile, dealtDrawPile, 0);
+        return dealtDrawPile;
+    }
+    
+    private static int packCards(final List<Card> source, final byte[] destination, int offset) {
+        for (final Card card : source) {
+            destination[offset++ ] = (byte) CardIds.getId(card);
+        }
+        return offset;
+    }
+    
+    private int getPileStart(final int index) {
+        int start = 2 * numberOfPiles;
+        for (int i = 0; i < index; i++ ) {
+            start += cards[i];
+        }
+        return start;
+    }
+    
+    private int getFaceDownStart(final int index) {
+        int start = 0;
+        for (int i = 0; i < index; i++ ) {
+            start += cards[numberOfPiles + i];
+        }
+        return start;
+    }
+    
+    @Override
+    public int getNumberOfPiles() {
+        return numberOfPiles;
+    }
+    
+    @Override
+    public int getNumberOfFaceDownCards(final int pile) {
+        return cards[numberOfPiles + pile];
     }
     
+    @Override
+    public int getNumberOfFaceUpCards(final int pile) {
+        return cards[pile];
+    }
+    
+    @Override
+    public Card getFaceUpCard(final int pile, final int index) {
+        if (index < 0 || index >= cards[pile]) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return CardIds.getCard(cards[getPileStart(pile) + index]);
+    }
+    
+    @Override
+    public Card getFaceDownCard(final int pile, final int index) {
+        if (index < 0 || index >= cards[numberOfPiles + pile]) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return CardIds.getCard(faceDownCards[getFaceDownStart(pile) + index]);
+    }
+    
+    @Override
+    public List<Card> getTopCards(final int pile, final int numberOfCards) {
+        if (numberOfCards < 1 || numberOfCards > cards[pile]) {
+            throw new IllegalArgumentException();
+        }
+        final int end = getPileStart(pile) + cards[pile];
+        return new CardList(cards, end - numberOfCards, end);
+    }
+    
+    /**
+     * Returns the identifier of a card in a pile, counting the face-down
+     * cards from the bottom of the pile first.
+     */
+    int getCardId(final int pile, final int index) {
+        final int faceDown = cards[numberOfPiles + pile];
+        if (index < faceDown) {
+            return faceDownCards[getFaceDownStart(pile) + index];
+        } else {
+            return cards[getPileStart(pile) + index - faceDown];
+        }
+    }
+    
+    /**
+     * Returns the draw pile as dealt. The array must not be modified.
+     */
+    byte[] getDealtDrawPile() {
+        return dealtDrawPile;
+    }
+    
+    /**
+     * Returns the mask of dealt draw pile positions that have been played.
+     */
+    long getDrawPileRemoved() {
+        return drawPileRemoved;
+    }
+    
+    /**
+     * Decodes and returns a single pile of the tableau.
+     * 
+     * @param index the index of the pile
+     * @return the pile
+     */
+    public Pile getPile(final int index) {
+        final int start = getPileStart(index);
+        final int faceDownStart = getFaceDownStart(index);
+        return new Pile(new CardList(faceDownCards, faceDownStart, faceDownStart + cards[numberOfPiles + index]),
+                new CardList(cards, start, start + cards[index]));
+    }
+    
+    /**
+     * Decodes and returns the piles of the tableau.
+     * 
+     * @return the piles
+     */
     public List<Pile> getPiles() {
-        return piles;
+        final List<Pile> piles = new ArrayList<>(numberOfPiles);
+        int start = 2 * numberOfPiles;
+        int faceDownStart = 0;
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            final int end = start + cards[i];
+            final int faceDownEnd = faceDownStart + cards[numberOfPiles + i];
+            piles.add(new Pile(new CardList(faceDownCards, faceDownStart, faceDownEnd),
+                    new CardList(cards, start, end)));
+            start = end;
+            faceDownStart = faceDownEnd;
+        }
+        return Collections.unmodifiableList(piles);
     }
     
+    /**
+     * Returns a view of the draw pile.
+     * 
+     * @return the draw pile
+     */
     public List<Card> getDrawPile() {
-        return drawPile;
+        return new DrawPileList();
     }
     
+    @Override
     public int getDrawIndex() {
         return drawIndex;
     }
     
+    /**
+     * Returns the number of cards in the goal for the given suit.
+     * 
+     * @param suit the suit
+     * @return the number of cards of {@code suit} in the goal
+     */
+    @Override
+    public int getGoalHeight(final Suit suit) {
+        return (goal >>> (suit.ordinal() * BITS_PER_GOAL_HEIGHT)) & GOAL_HEIGHT_MASK;
+    }
+    
+    /**
+     * Returns whether every card of every suit is in the goal. This runs in
+     * constant time.
+     * 
+     * @return whether the goal is complete
+     */
+    @Override
+    public boolean isGoalComplete() {
+        return goal == COMPLETE_GOAL;
+    }
+    
+    /**
+     * Returns a view of the goal. The goal is stored only as the height for
+     * each suit, so each list is derived from that height when read. Callers
+     * that only need the heights should use {@link #getGoalHeight(Suit)}.
+     * 
+     * @return the goal
+     */
     public Map<Suit, List<Card>> getGoal() {
-        return goal;
+        final Map<Suit, List<Card>> goalMap = new EnumMap<>(Suit.class);
+        for (final Suit suit : SUITS) {
+            goalMap.put(suit, new GoalList(suit, getGoalHeight(suit)));
+        }
+        return goalMap;
     }
     
+    @Override
     public boolean canFlipMoreDrawPileCards() {
-        return drawIndex < drawPile.size();
+        return drawIndex < getDrawPileSize();
     }
     
     public boolean isAtEndOfDrawPile() {
         // 0 represents no cards flipped, so offset by one
-        return drawIndex >= drawPile.size();
+        return drawIndex >= getDrawPileSize();
     }
     
+    @Override
     public boolean canResetDrawPile() {
         return drawIndex > 0;
     }
     
+    @Override
+    public int getDrawPileSize() {
+        return dealtDrawPile.length - Long.bitCount(drawPileRemoved);
+    }
+    
+    /**
+     * Returns the bits of the positions in a dealt draw pile that still hold
+     * a card.
+     */
+    private static long getDrawPileRemaining(final byte[] dealtDrawPile, final long drawPileRemoved) {
+        // Shifting a long by 64 is a no-op, so a full pile is a special case.
+        final long dealt = dealtDrawPile.length == Long.SIZE ? -1L : (1L << dealtDrawPile.length) - 1;
+        return dealt & ~drawPileRemoved;
+    }
+    
+    /**
+     * Returns the position in a dealt draw pile of the card at the given
+     * index of what remains of the draw pile.
+     */
+    static int getDrawPilePosition(final byte[] dealtDrawPile, final long drawPileRemoved, final int index) {
+        long remaining = getDrawPileRemaining(dealtDrawPile, drawPileRemoved);
+        for (int i = 0; i < index; i++ ) {
+            remaining &= remaining - 1;
+        }
+        return Long.numberOfTrailingZeros(remaining);
+    }
+    
+    private int getDrawPilePosition(final int index) {
+        return getDrawPilePosition(dealtDrawPile, drawPileRemoved, index);
+    }
+    
+    @Override
     public Card getDrawCard() {
-        return drawPile.get(drawIndex - 1);
+        if (drawIndex < 1) {
+            throw new IndexOutOfBoundsException("No card has been drawn.");
+        }
+        return CardIds.getCard(dealtDrawPile[getDrawPilePosition(drawIndex - 1)]);
+    }
+    
+    @Override
+    public Card getDrawPileCard(final int index) {
+        if (index < 0 || index >= getDrawPileSize()) {
+            throw new IndexOutOfBoundsException("No card at index " + index + " of the draw pile.");
+        }
+        return CardIds.getCard(dealtDrawPile[getDrawPilePosition(index)]);
     }
     
     private Card getTopOfGoal(final Suit suit) {
-        final List<Card> goalForSuit = goal.get(suit);
-        return goalForSuit.get(goalForSuit.size() - 1);
+        final int height = getGoalHeight(suit);
+        if (height < 1) {
+            throw new IndexOutOfBoundsException("No cards in the goal for suit " + suit + ".");
+        }
+        return CardIds.getCard(suit, height - 1);
     }
     
     public Board resetDrawIndex() {
-        return new Board(piles, drawPile, 0, goal);
+        return new Board(numberOfPiles, cards, faceDownCards, dealtDrawPile, drawPileRemoved, 0, goal,
+                fingerprint ^ changeDrawIndex(0));
     }
     
     public Board advanceDrawIndex(final int advance) {
@@ -127,151 +539,520 @@ public class Board {
             throw new IllegalArgumentException();
         }
         
-        final int newIndex = Math.min(drawIndex + advance, drawPile.size());
-        return new Board(piles, drawPile, newIndex, goal);
+        final int newIndex = Math.min(drawIndex + advance, getDrawPileSize());
+        return new Board(numberOfPiles, cards, faceDownCards, dealtDrawPile, drawPileRemoved, newIndex, goal,
+                fingerprint ^ changeDrawIndex(newIndex));
     }
     
     public Board moveStack(final int fromIndex, final int toIndex, final int numCards) {
         if (fromIndex == toIndex) {
             throw new IllegalArgumentException();
         }
+        checkFaceUpCards(fromIndex, numCards);
         
-        final Pile fromPile = piles.get(fromIndex);
-        final Pile toPile = piles.get(toIndex);
-        final List<Card> stackToMove = fromPile.getTopCards(numCards);
-        final Pile newFromPile = fromPile.getPileMissingTopCards(numCards);
-        final Pile newToPile = toPile.addNewCards(stackToMove);
-        
-        final List<Pile> newPiles = new ArrayList<>(piles);
-        newPiles.set(fromIndex, newFromPile);
-        newPiles.set(toIndex, newToPile);
-        // return new Board(Collections.unmodifiableList(newPiles), drawPile,
-        // drawIndex, goal);
-        return new Board(newPiles, drawPile, drawIndex, goal);
+        final int fromStart = getPileStart(fromIndex);
+        final int movedCard = cards[fromStart + cards[fromIndex] - numCards];
+        final long newFingerprint = fingerprint ^ takeFromPile(fromIndex, fromStart, numCards)
+                ^ putOnPile(toIndex, movedCard);
+                
+        final boolean flip = flipsCard(fromIndex, numCards);
+        final byte[] newCards = rearrange(fromIndex, numCards, toIndex, -1);
+        return new Board(numberOfPiles, newCards, flip ? removeFaceDownCard(fromIndex) : faceDownCards,
+                dealtDrawPile, drawPileRemoved, drawIndex, goal, newFingerprint);
     }
     
     public Board moveCardToGoal(final int index) {
-        final Pile pile = piles.get(index);
-        final Card card = pile.getTopCard();
-        final Pile newPile = pile.getPileMissingTopCards(1);
-        
-        final Map<Suit, List<Card>> newGoal = addToGoal(card);
-        
-        final List<Pile> newPiles = new ArrayList<>(piles);
-        newPiles.set(index, newPile);
+        checkFaceUpCards(index, 1);
+        final int pileStart = getPileStart(index);
+        final Card card = CardIds.getCard(cards[pileStart + cards[index] - 1]);
+        final long newFingerprint = fingerprint ^ takeFromPile(index, pileStart, 1);
         
-        // return new Board(Collections.unmodifiableList(newPiles), drawPile,
-        // drawIndex, newGoal);
-        return new Board(newPiles, drawPile, drawIndex, newGoal);
+        final boolean flip = flipsCard(index, 1);
+        final byte[] newCards = rearrange(index, 1, -1, -1);
+        return new Board(numberOfPiles, newCards, flip ? removeFaceDownCard(index) : faceDownCards,
+                dealtDrawPile, drawPileRemoved, drawIndex, addToGoal(card.getSuit()), newFingerprint);
     }
     
     public Board drawCardToPile(final int index) {
-        final Card card = getDrawCard();
-        final List<Card> newDrawPile = extractDrawnCard();
-        
+        if (drawIndex < 1) {
+            throw new IndexOutOfBoundsException("No card has been drawn.");
+        }
         final int newDrawIndex = drawIndex - 1;
-        
-        final Pile pile = piles.get(index);
-        final Pile newPile = pile.addNewCard(card);
-        
-        final List<Pile> newPiles = new ArrayList<>(piles);
-        newPiles.set(index, newPile);
-        
-        // return new Board(Collections.unmodifiableList(newPiles), newDrawPile,
-        // newDrawIndex, goal);
-        return new Board(newPiles, newDrawPile, newDrawIndex, goal);
+        final int position = getDrawPilePosition(newDrawIndex);
+        final int cardId = dealtDrawPile[position];
+        final long newFingerprint = fingerprint ^ takeFromDrawPile(position) ^ changeDrawIndex(newDrawIndex)
+                ^ putOnPile(index, cardId);
+                
+        final byte[] newCards = rearrange(-1, 1, index, cardId);
+        return new Board(numberOfPiles, newCards, faceDownCards, dealtDrawPile, drawPileRemoved | (1L << position),
+                newDrawIndex, goal, newFingerprint);
     }
     
     public Board drawCardToGoal() {
-        final Card card = getDrawCard();
-        final List<Card> newDrawPile = extractDrawnCard();
-        
+        if (drawIndex < 1) {
+            throw new IndexOutOfBoundsException("No card has been drawn.");
+        }
         final int newDrawIndex = drawIndex - 1;
+        final int position = getDrawPilePosition(newDrawIndex);
+        final Card card = CardIds.getCard(dealtDrawPile[position]);
+        final long newFingerprint = fingerprint ^ takeFromDrawPile(position) ^ changeDrawIndex(newDrawIndex);
         
-        final Map<Suit, List<Card>> newGoal = addToGoal(card);
-        
-        return new Board(piles, newDrawPile, newDrawIndex, newGoal);
+        return new Board(numberOfPiles, cards, faceDownCards, dealtDrawPile, drawPileRemoved | (1L << position),
+                newDrawIndex, addToGoal(card.getSuit()), newFingerprint);
     }
     
     public Board moveCardFromGoal(final Suit suit, final int index) {
         final Card card = getTopOfGoal(suit);
+        final int cardId = CardIds.getId(card);
+        final long newFingerprint = fingerprint ^ putOnPile(index, cardId);
         
-        final Map<Suit, List<Card>> newGoal = removeFromGoal(suit);
-        
-        final Pile pile = piles.get(index);
-        final Pile newPile = pile.addNewCard(card);
+        final byte[] newCards = rearrange(-1, 1, index, cardId);
+        return new Board(numberOfPiles, newCards, faceDownCards, dealtDrawPile, drawPileRemoved, drawIndex,
+                removeFromGoal(suit), newFingerprint);
+    }
+    
+    private void checkFaceUpCards(final int index, final int numCards) {
+        if (numCards < 1) {
+            throw new IllegalArgumentException();
+        }
+        if (numCards > cards[index]) {
+            throw new IllegalArgumentException();
+        }
+    }
+    
+    /**
+     * Returns whether taking the top cards off a pile leaves only face-down
+     * cards, so that the top one is turned face up.
+     */
+    private boolean flipsCard(final int index, final int numCards) {
+        return numCards == cards[index] && cards[numberOfPiles + index] > 0;
+    }
+    
+    /**
+     * Returns the identifier of the top face-down card of a pile.
+     */
+    private int getTopFaceDownCard(final int index) {
+        return faceDownCards[getFaceDownStart(index) + cards[numberOfPiles + index] - 1];
+    }
+    
+    /**
+     * Copies the face-down cards into a new array without the top face-down
+     * card of the given pile.
+     */
+    private byte[] removeFaceDownCard(final int index) {
+        final int position = getFaceDownStart(index) + cards[numberOfPiles + index] - 1;
+        final byte[] newFaceDownCards = new byte[faceDownCards.length - 1];
+        System.arraycopy(faceDownCards, 0, newFaceDownCards, 0, position);
+        System.arraycopy(faceDownCards, position + 1, newFaceDownCards, position, newFaceDownCards.length - position);
+        return newFaceDownCards;
+    }
+    
+    /**
+     * Copies the packed cards into a new array, applying a single move. If
+     * the move uncovers a face-down card, it is turned face up.
+     * 
+     * @param source the pile that loses its top {@code numCards} cards, or
+     *        {@code -1} if the cards do not come from the tableau
+     * @param numCards the number of cards moved
+     * @param destination the pile that receives the cards, or {@code -1} if
+     *        the cards leave the tableau
+     * @param card the identifier of the single card that is added to
+     *        {@code destination} when {@code source} is {@code -1}
+     * @return the new packed cards
+     */
+    private byte[] rearrange(final int source, final int numCards, final int destination, final int card) {
+        final int removed = source < 0 ? 0 : numCards;
+        final int added = destination < 0 ? 0 : numCards;
+        final boolean flip = source >= 0 && flipsCard(source, numCards);
+        final byte[] newCards = new byte[cards.length - removed + added + (flip ? 1 : 0)];
+        System.arraycopy(cards, 0, newCards, 0, 2 * numberOfPiles);
         
-        final List<Pile> newPiles = new ArrayList<>(piles);
-        newPiles.set(index, newPile);
+        final int movedStart = source < 0 ? -1 : getPileStart(source) + cards[source] - numCards;
+        int read = 2 * numberOfPiles;
+        int write = read;
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            final int length = cards[i];
+            final int kept = i == source ? length - numCards : length;
+            System.arraycopy(cards, read, newCards, write, kept);
+            read += length;
+            write += kept;
+            if (i == source && flip) {
+                newCards[write++ ] = (byte) getTopFaceDownCard(source);
+            }
+            if (i == destination) {
+                if (source < 0) {
+                    newCards[write] = (byte) card;
+                } else {
+                    System.arraycopy(cards, movedStart, newCards, write, numCards);
+                }
+                write += numCards;
+            }
+        }
         
-        return new Board(newPiles, drawPile, drawIndex, newGoal);
+        if (source >= 0) {
+            if (flip) {
+                // Flip the newly exposed card face up.
+                newCards[source] = 1;
+                newCards[numberOfPiles + source] = (byte) (cards[numberOfPiles + source] - 1);
+            } else {
+                newCards[source] = (byte) (cards[source] - numCards);
+            }
+        }
+        if (destination >= 0) {
+            newCards[destination] = (byte) (cards[destination] + added);
+        }
+        return newCards;
     }
     
-    private Map<Suit, List<Card>> addToGoal(final Card card) {
-        final Map<Suit, List<Card>> newGoal = new EnumMap<>(goal);
-        final Suit suit = card.getSuit();
-        final List<Card> stackForSuit = newGoal.get(suit);
-        final List<Card> newStackForSuit = new ArrayList<>(13);
-        newStackForSuit.addAll(stackForSuit);
-        newStackForSuit.add(card);
-        // newGoal.put(suit, Collections.unmodifiableList(newStackForSuit));
-        newGoal.put(suit, newStackForSuit);
-        
-        // return Collections.unmodifiableMap(newGoal);
-        return newGoal;
+    /**
+     * Returns the change in fingerprint from taking the top cards off a pile,
+     * including flipping the card that is exposed.
+     */
+    private long takeFromPile(final int index, final int pileStart, final int numCards) {
+        final int remaining = cards[index] - numCards;
+        final int movedCard = cards[pileStart + remaining];
+        if (remaining > 0) {
+            return Zobrist.onPile(movedCard, cards[pileStart + remaining - 1]);
+        }
+        if (cards[numberOfPiles + index] == 0) {
+            return Zobrist.onPile(movedCard, Zobrist.pileBase(index));
+        }
+        final int exposedCard = getTopFaceDownCard(index);
+        return Zobrist.onPile(movedCard, exposedCard) ^ Zobrist.faceDown(exposedCard);
     }
     
-    private Map<Suit, List<Card>> removeFromGoal(final Suit suit) {
-        final Map<Suit, List<Card>> newGoal = new EnumMap<>(goal);
-        final List<Card> stackForSuit = newGoal.get(suit);
-        // final List<Card> newStackForSuit = stackForSuit.subList(0,
-        // stackForSuit.size() - 1);
-        final List<Card> newStackForSuit = new ArrayList<>(stackForSuit.subList(0, stackForSuit.size() - 1));
-        newGoal.put(suit, newStackForSuit);
-        
-        // return Collections.unmodifiableMap(newGoal);
-        return newGoal;
+    /**
+     * Returns the change in fingerprint from putting a card, possibly the
+     * bottom of a stack, on top of a pile.
+     */
+    private long putOnPile(final int index, final int card) {
+        final int length = cards[index];
+        if (length == 0) {
+            return Zobrist.onPile(card, Zobrist.pileBase(index));
+        } else {
+            return Zobrist.onPile(card, cards[getPileStart(index) + length - 1]);
+        }
+    }
+    
+    /**
+     * Returns the change in fingerprint from taking a card out of the draw
+     * pile, which joins the cards on either side of it.
+     * 
+     * @param position the position of the card in {@link #dealtDrawPile}
+     */
+    private long takeFromDrawPile(final int position) {
+        return takeFromDrawPile(dealtDrawPile, drawPileRemoved, position);
+    }
+    
+    /**
+     * Returns the change in fingerprint from taking a card out of a draw pile,
+     * or from putting it back.
+     * 
+     * @param dealtDrawPile the draw pile as dealt
+     * @param drawPileRemoved the positions already played, which may or may
+     *        not include {@code position}
+     * @param position the position of the card in {@code dealtDrawPile}
+     */
+    static long takeFromDrawPile(final byte[] dealtDrawPile, final long drawPileRemoved, final int position) {
+        final long remaining = getDrawPileRemaining(dealtDrawPile, drawPileRemoved);
+        final long before = remaining & ((1L << position) - 1);
+        final long after = remaining & ( -2L << position);
+        final int card = dealtDrawPile[position];
+        final int previous =
+                before == 0 ? Zobrist.DRAW_PILE_BASE : dealtDrawPile[Long.SIZE - 1 - Long.numberOfLeadingZeros(before)];
+        long change = Zobrist.inDrawPile(card, previous);
+        if (after != 0) {
+            final int next = dealtDrawPile[Long.numberOfTrailingZeros(after)];
+            change ^= Zobrist.inDrawPile(next, card) ^ Zobrist.inDrawPile(next, previous);
+        }
+        return change;
+    }
+    
+    private long changeDrawIndex(final int newDrawIndex) {
+        return Zobrist.drawIndex(drawIndex) ^ Zobrist.drawIndex(newDrawIndex);
+    }
+    
+    private long computeFingerprint() {
+        long hash = Zobrist.drawIndex(drawIndex);
+        int offset = 2 * numberOfPiles;
+        int faceDownOffset = 0;
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            int below = Zobrist.pileBase(i);
+            for (int j = 0; j < cards[numberOfPiles + i]; j++ ) {
+                final int card = faceDownCards[faceDownOffset + j];
+                hash ^= Zobrist.onPile(card, below) ^ Zobrist.faceDown(card);
+                below = card;
+            }
+            for (int j = 0; j < cards[i]; j++ ) {
+                final int card = cards[offset + j];
+                hash ^= Zobrist.onPile(card, below);
+                below = card;
+            }
+            offset += cards[i];
+            faceDownOffset += cards[numberOfPiles + i];
+        }
+        int previous = Zobrist.DRAW_PILE_BASE;
+        for (int i = 0; i < dealtDrawPile.length; i++ ) {
+            if ((drawPileRemoved & (1L << i)) == 0) {
+                final int card = dealtDrawPile[i];
+                hash ^= Zobrist.inDrawPile(card, previous);
+                previous = card;
+            }
+        }
+        return hash;
+    }
+    
+    private int addToGoal(final Suit suit) {
+        return goal + (1 << (suit.ordinal() * BITS_PER_GOAL_HEIGHT));
+    }
+    
+    private int removeFromGoal(final Suit suit) {
+        return goal - (1 << (suit.ordinal() * BITS_PER_GOAL_HEIGHT));
+    }
+    
+    /**
+     * Returns a 64-bit fingerprint of this board. Equal boards have equal
+     * fingerprints, and unequal boards have equal fingerprints with
+     * negligible probability, so the fingerprint can stand in for the board
+     * when recording which boards have already been visited. Every move
+     * updates the fingerprint in constant time, so this never has to examine
+     * the cards.
+     * 
+     * @return the board fingerprint
+     */
+    @Override
+    public long getFingerprint() {
+        return fingerprint;
+    }
+    
+    SearchFingerprint getSearchFingerprint() {
+        return searchFingerprint;
+    }
+    
+    void setSearchFingerprint(final SearchFingerprint searchFingerprint) {
+        this.searchFingerprint = searchFingerprint;
     }
     
-    private List<Card> extractDrawnCard() {
-        final int size = drawPile.size();
-        final List<Card> newDrawPile = new ArrayList<>(size - 1);
-        newDrawPile.addAll(drawPile.subList(0, drawIndex - 1));
-        newDrawPile.addAll(drawPile.subList(drawIndex, size));
-        // return Collections.unmodifiableList(newDrawPile);
-        return newDrawPile;
+    /**
+     * Returns the most bytes {@link #writeTo(ByteBuffer, int)} uses for a
+     * board with the given number of piles, dealt from a standard deck. A
+     * board writes only the cards on its piles, so it uses fewer bytes while
+     * some cards are in the draw pile or the goal, but never more than this.
+     * 
+     * @param numberOfPiles the number of piles on the tableau
+     * @return the largest size of a packed board, in bytes
+     */
+    public static int getPackedSize(final int numberOfPiles) {
+        return PACKED_HEADER_SIZE + 2 * numberOfPiles + CardIds.NUMBER_OF_CARDS;
+    }
+    
+    /**
+     * Writes this board to a buffer. The order in which the draw pile was
+     * dealt is not written, so the board can only be read back with the help
+     * of another board from the same deal.
+     * 
+     * @param buffer the buffer to write to
+     * @param offset the index in {@code buffer} of the first byte to write
+     * @see #getPackedSize(int)
+     * @see #readFrom(ByteBuffer, int, Board)
+     */
+    public void writeTo(final ByteBuffer buffer, final int offset) {
+        buffer.putLong(offset, fingerprint);
+        buffer.putLong(offset + Long.BYTES, drawPileRemoved);
+        buffer.putShort(offset + 2 * Long.BYTES, (short) goal);
+        buffer.put(offset + 2 * Long.BYTES + Short.BYTES, (byte) drawIndex);
+        buffer.put(offset + PACKED_HEADER_SIZE, cards);
+        buffer.put(offset + PACKED_HEADER_SIZE + cards.length, faceDownCards);
+    }
+    
+    /**
+     * Reads a board written by {@link #writeTo(ByteBuffer, int)}. The board
+     * read shares the dealt draw pile of {@code relative}, which must come from
+     * the same deal, and shares its face-down cards as well if they are the
+     * same.
+     * 
+     * @param buffer the buffer to read from
+     * @param offset the index in {@code buffer} of the first byte to read
+     * @param relative a board from the same deal as the board read
+     * @return the board read
+     */
+    public static Board readFrom(final ByteBuffer buffer, final int offset, final Board relative) {
+        final int numberOfPiles = relative.numberOfPiles;
+        final int start = offset + PACKED_HEADER_SIZE;
+        int faceUp = 0;
+        int faceDown = 0;
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            faceUp += buffer.get(start + i);
+            faceDown += buffer.get(start + numberOfPiles + i);
+        }
+        final byte[] cards = new byte[2 * numberOfPiles + faceUp];
+        buffer.get(start, cards);
+        final int faceDownStart = start + cards.length;
+        byte[] faceDownCards = relative.faceDownCards;
+        if ( !isEqual(buffer, faceDownStart, faceDown, faceDownCards)) {
+            faceDownCards = new byte[faceDown];
+            buffer.get(faceDownStart, faceDownCards);
+        }
+        final Board board = new Board(numberOfPiles, cards, faceDownCards, relative.dealtDrawPile,
+                buffer.getLong(offset + Long.BYTES), buffer.get(offset + 2 * Long.BYTES + Short.BYTES),
+                buffer.getShort(offset + 2 * Long.BYTES) & 0xFFFF, buffer.getLong(offset));
+        assert board.fingerprint == board.computeFingerprint();
+        return board;
+    }
+    
+    private static boolean isEqual(final ByteBuffer buffer, final int offset, final int length, final byte[] bytes) {
+        if (length != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++ ) {
+            if (buffer.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
     }
     
     @Override
     public int hashCode() {
-        return 0xc284f7a1 ^ piles.hashCode() ^ Integer.rotateLeft(drawPile.hashCode(), 8)
-                ^ Integer.rotateLeft(drawIndex, 16) ^ Integer.rotateLeft(goal.hashCode(), 24);
+        return (int) (fingerprint ^ (fingerprint >>> 32));
     }
     
     @Override
     public boolean equals(final Object obj) {
         if (obj instanceof Board) {
             final Board board = (Board) obj;
-            if (drawPile.size() != board.drawPile.size()) {
-                return false;
-            }
-            for (final Suit suit : Suit.values()) {
-                if (goal.get(suit).size() != board.goal.get(suit).size()) {
-                    return false;
-                }
-            }
-            // Put drawIndex first since it changes a lot.
-            return drawIndex == board.drawIndex && piles.equals(board.piles) && goal.equals(board.goal)
-                    && drawPile.equals(board.drawPile);
+            // The fingerprint rules out nearly every unequal board.
+            return fingerprint == board.fingerprint && drawIndex == board.drawIndex && goal == board.goal
+                    && numberOfPiles == board.numberOfPiles
+                    && hasEqualDrawPile(board) && Arrays.equals(cards, board.cards)
+                    && Arrays.equals(faceDownCards, board.faceDownCards);
         } else {
             return false;
         }
     }
     
+    private boolean hasEqualDrawPile(final Board board) {
+        if (dealtDrawPile == board.dealtDrawPile) {
+            // Boards from the same deal.
+            return drawPileRemoved == board.drawPileRemoved;
+        } else {
+            return getDrawPile().equals(board.getDrawPile());
+        }
+    }
+    
     @Override
     public String toString() {
-        return "Board {piles: " + piles + ", drawPile: " + drawPile + ", drawIndex: " + drawIndex + ", goal: " + goal
-                + "}";
+        return "Board {piles: " + getPiles() + ", drawPile: " + getDrawPile() + ", drawIndex: " + drawIndex
+                + ", goal: " + getGoal() + "}";
+    }
+    
+    /**
+     * A read-only view of a range of packed cards.
+     */
+    static class CardList extends AbstractList<Card> {
+        
+        private final byte[] cards;
+        
+        private final int start;
+        
+        private final int end;
+        
+        public CardList(final byte[] cards, final int start, final int end) {
+            super();
+            this.cards = cards;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        public Card get(final int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return CardIds.getCard(cards[start + index]);
+        }
+        
+        @Override
+        public int size() {
+            return end - start;
+        }
+        
+    }
+    
+    /**
+     * A read-only view of the cards remaining in the draw pile.
+     */
+    private class DrawPileList extends AbstractList<Card> {
+        
+        @Override
+        public Card get(final int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return CardIds.getCard(dealtDrawPile[getDrawPilePosition(index)]);
+        }
+        
+        @Override
+        public int size() {
+            return getDrawPileSize();
+        }
+        
+    }
+    
+    /**
+     * A fingerprint taken by {@link Solitaire#getFingerprint(ReadableBoard)},
+     * together with the options of the game that took it.
+     */
+    static final class SearchFingerprint {
+        
+        private final int options;
+        
+        private final long fingerprint;
+        
+        public SearchFingerprint(final int options, final long fingerprint) {
+            super();
+            this.options = options;
+            this.fingerprint = fingerprint;
+        }
+        
+        public int getOptions() {
+            return options;
+        }
+        
+        public long getFingerprint() {
+            return fingerprint;
+        }
+        
+    }
+    
+    /**
+     * A read-only view of the goal for a single suit.
+     */
+    private static class GoalList extends AbstractList<Card> {
+        
+        private final Suit suit;
+        
+        private final int height;
+        
+        public GoalList(final Suit suit, final int height) {
+            super();
+            this.suit = suit;
+            this.height = height;
+        }
+        
+        @Override
+        public Card get(final int index) {
+            if (index < 0 || index >= height) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return CardIds.getCard(suit, index);
+        }
+        
+        @Override
+        public int size() {
+            return height;
+        }
+        
     }
     
 }
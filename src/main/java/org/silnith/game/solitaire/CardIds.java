@@ -0,0 +1,87 @@
+package org.silnith.game.solitaire;
+
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.deck.Value;
+
+
+/**
+ * Maps each card in a standard deck to a small integer identifier and back.
+ * Identifiers run from zero to {@link #NUMBER_OF_CARDS} minus one, so they
+ * fit in six bits. The cards of a suit are numbered consecutively in rank
+ * order, ace first.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public final class CardIds {
+    
+    private static final Suit[] SUITS = Suit.values();
+    
+    private static final Value[] VALUES = Value.values();
+    
+    /**
+     * The number of distinct card identifiers.
+     */
+    public static final int NUMBER_OF_CARDS = SUITS.length * VALUES.length;
+    
+    private static final Card[] CARDS;
+    
+    static {
+        CARDS = new Card[NUMBER_OF_CARDS];
+        for (final Suit suit : SUITS) {
+            for (final Value value : VALUES) {
+                CARDS[getId(suit, value.ordinal())] = new Card(value, suit);
+            }
+        }
+    }
+    
+    private CardIds() {
+        super();
+    }
+    
+    /**
+     * Returns the identifier for the given card.
+     * 
+     * @param card the card
+     * @return the identifier for {@code card}
+     */
+    public static int getId(final Card card) {
+        return getId(card.getSuit(), card.getValue().ordinal());
+    }
+    
+    /**
+     * Returns the identifier for the card of the given suit that is
+     * {@code rank} steps above the ace.
+     * 
+     * @param suit the suit of the card
+     * @param rank the zero-based rank of the card, zero being the ace
+     * @return the identifier for the card
+     */
+    public static int getId(final Suit suit, final int rank) {
+        return suit.ordinal() * VALUES.length + rank;
+    }
+    
+    /**
+     * Returns the card with the given identifier. The same instance is
+     * returned every time.
+     * 
+     * @param id the card identifier
+     * @return the card
+     */
+    public static Card getCard(final int id) {
+        return CARDS[id];
+    }
+    
+    /**
+     * Returns the card of the given suit that is {@code rank} steps above the
+     * ace.
+     * 
+     * @param suit the suit of the card
+     * @param rank the zero-based rank of the card, zero being the ace
+     * @return the card
+     */
+    public static Card getCard(final Suit suit, final int rank) {
+        return CARDS[getId(suit, rank)];
+    }
+    
+}
@@ -0,0 +1,81 @@
+package org.silnith.game.solitaire;
+
+import org.silnith.game.solitaire.move.AdvanceDrawPileMove;
+import org.silnith.game.solitaire.move.AutoPlayMove;
+import org.silnith.game.solitaire.move.DrawToGoalMove;
+import org.silnith.game.solitaire.move.DrawToPileMove;
+import org.silnith.game.solitaire.move.FlipAndDrawMove;
+import org.silnith.game.solitaire.move.GoalToPileMove;
+import org.silnith.game.solitaire.move.PileToGoalMove;
+import org.silnith.game.solitaire.move.ResetDrawPileMove;
+import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.move.StackMove;
+
+
+/**
+ * Puts the moves that make progress first. Moves that turn over a face-down
+ * card come first, the deepest pile first, since every face-down card must be
+ * turned over to win. Then come moves to the goal, moves that empty a pile
+ * for a King, and moves that bring a card into play from the draw pile.
+ * Moves that take a card back from the goal and moves through the draw pile
+ * come last. A card played after flipping through the draw pile loses a point
+ * for each flip, so that the nearest cards are tried first.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class HeuristicMoveOrdering implements MoveOrdering {
+    
+    private static final int REVEALS_CARD = 100;
+    
+    private static final int TO_GOAL = 50;
+    
+    private static final int EMPTIES_PILE = 40;
+    
+    private static final int DRAW_TO_PILE = 20;
+    
+    private static final int FROM_GOAL = -50;
+    
+    private static final int THROUGH_DRAW_PILE = -100;
+    
+    @Override
+    public int score(final ReadableBoard board, final SolitaireMove possibleMove) {
+        // The cards played to the goal after a move are safe, and not counted.
+        final SolitaireMove move =
+                possibleMove instanceof AutoPlayMove ? ((AutoPlayMove) possibleMove).getMove() : possibleMove;
+        if (move instanceof FlipAndDrawMove) {
+            final FlipAndDrawMove flipAndDraw = (FlipAndDrawMove) move;
+            return score(board, flipAndDraw.getDraw()) - flipAndDraw.getFlips();
+        } else if (move instanceof StackMove) {
+            final StackMove stackMove = (StackMove) move;
+            final int source = stackMove.getSourcePile();
+            if (stackMove.getNumberOfCards() == board.getNumberOfFaceUpCards(source)) {
+                final int faceDown = board.getNumberOfFaceDownCards(source);
+                if (faceDown > 0) {
+                    return REVEALS_CARD + faceDown;
+                }
+                // Moving a whole pile onto an empty one gains nothing.
+                if (board.getNumberOfFaceUpCards(stackMove.getDestinationPile()) > 0) {
+                    return EMPTIES_PILE;
+                }
+            }
+            return 0;
+        } else if (move instanceof PileToGoalMove) {
+            final int source = ((PileToGoalMove) move).getSourcePile();
+            final int faceDown = board.getNumberOfFaceDownCards(source);
+            if (faceDown > 0 && board.getNumberOfFaceUpCards(source) == 1) {
+                return REVEALS_CARD + faceDown;
+            }
+            return TO_GOAL;
+        } else if (move instanceof DrawToGoalMove) {
+            return TO_GOAL;
+        } else if (move instanceof DrawToPileMove) {
+            return DRAW_TO_PILE;
+        } else if (move instanceof GoalToPileMove) {
+            return FROM_GOAL;
+        } else if (move instanceof AdvanceDrawPileMove || move instanceof ResetDrawPileMove) {
+            return THROUGH_DRAW_PILE;
+        }
+        return 0;
+    }
+    
+}
@@ -0,0 +1,30 @@
+package org.silnith.game.solitaire;
+
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * A ranking of the moves from a board, used by
+ * {@link Solitaire#findAllMoves(ReadableBoard)} to put the most promising
+ * moves first. A depth-first search tries the moves in that order, so a good
+ * ranking finds a solution sooner. The ranking never changes which moves are
+ * found, only their order.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ * @see Solitaire#setMoveOrdering(MoveOrdering)
+ */
+public interface MoveOrdering {
+    
+    /**
+     * Returns the score of a move, higher being tried first. Moves with the
+     * same score keep the order in which they were found. This is called
+     * several times for each move, so it should be cheap and must not depend
+     * on anything but its arguments.
+     * 
+     * @param board the board the move is made from
+     * @param move the move
+     * @return the score of the move
+     */
+    public int score(ReadableBoard board, SolitaireMove move);
+    
+}
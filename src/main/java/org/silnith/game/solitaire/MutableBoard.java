@@ -0,0 +1,497 @@
+package org.silnith.game.solitaire;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * A game board that is changed in place. Moves are made with
+ * {@link #apply(SolitaireMove)} and taken back with
+ * {@link #undo(SolitaireMove)}, so a depth-first search can walk the game tree
+ * with a single board instead of allocating a new {@link Board} for every
+ * child. Moves must be undone in the reverse order they were made.
+ * <p>
+ * The fingerprint is kept up to date with the same keys as {@link Board}, so
+ * a mutable board can be checked against a transposition table directly. Use
+ * {@link #toBoard()} to take an immutable snapshot.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class MutableBoard implements ReadableBoard {
+    
+    private static final Suit[] SUITS = Suit.values();
+    
+    private final int numberOfPiles;
+    
+    /**
+     * The cards of each pile, bottom to top, face-down cards first. Every pile
+     * has room for the whole deck.
+     */
+    private final byte[][] piles;
+    
+    private final int[] pileSizes;
+    
+    private final int[] faceDownCounts;
+    
+    /**
+     * The draw pile as dealt, shared with the boards this was made from.
+     */
+    private byte[] dealtDrawPile;
+    
+    private long drawPileRemoved;
+    
+    private int drawIndex;
+    
+    private final int[] goalHeights;
+    
+    private long fingerprint;
+    
+    /**
+     * What each move made needs to be undone, one entry per move.
+     */
+    private int[] undoStack;
+    
+    private int undoSize;
+    
+    /**
+     * The positions replaced by deals, so that taking a deal back can restore
+     * them.
+     */
+    private final List<Board> dealtOver;
+    
+    /**
+     * Constructs a mutable board in the same position as the given board.
+     * 
+     * @param board the board to copy
+     */
+    public MutableBoard(final Board board) {
+        super();
+        this.numberOfPiles = board.getNumberOfPiles();
+        this.piles = new byte[numberOfPiles][CardIds.NUMBER_OF_CARDS];
+        this.pileSizes = new int[numberOfPiles];
+        this.faceDownCounts = new int[numberOfPiles];
+        this.goalHeights = new int[SUITS.length];
+        this.undoStack = new int[64];
+        this.undoSize = 0;
+        this.dealtOver = new ArrayList<>();
+        load(board);
+    }
+    
+    /**
+     * Sets this board to the same position as the given board.
+     */
+    private void load(final Board board) {
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            faceDownCounts[i] = board.getNumberOfFaceDownCards(i);
+            pileSizes[i] = faceDownCounts[i] + board.getNumberOfFaceUpCards(i);
+            for (int j = 0; j < pileSizes[i]; j++ ) {
+                piles[i][j] = (byte) board.getCardId(i, j);
+            }
+        }
+        dealtDrawPile = board.getDealtDrawPile();
+        drawPileRemoved = board.getDrawPileRemoved();
+        drawIndex = board.getDrawIndex();
+        for (final Suit suit : SUITS) {
+            goalHeights[suit.ordinal()] = board.getGoalHeight(suit);
+        }
+        fingerprint = board.getFingerprint();
+    }
+    
+    /**
+     * Returns an immutable snapshot of this board.
+     * 
+     * @return a board equal to this one
+     */
+    public Board toBoard() {
+        return new Board(this);
+    }
+    
+    /**
+     * Makes a move on this board.
+     * 
+     * @param move the move to make
+     */
+    public void apply(final SolitaireMove move) {
+        move.make(this);
+    }
+    
+    /**
+     * Takes back the last move made on this board.
+     * 
+     * @param move the move to take back, which must be the last one made and
+     *        not yet taken back
+     */
+    public void undo(final SolitaireMove move) {
+        move.unmake(this);
+    }
+    
+    /**
+     * Returns the number of moves made and not yet taken back.
+     * 
+     * @return the number of moves that can be undone
+     */
+    public int getUndoDepth() {
+        return undoSize;
+    }
+    
+    private void pushUndo(final int value) {
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, 2 * undoStack.length);
+        }
+        undoStack[undoSize++ ] = value;
+    }
+    
+    private int popUndo() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to undo.");
+        }
+        return undoStack[ --undoSize];
+    }
+    
+    @Override
+    public int getNumberOfPiles() {
+        return numberOfPiles;
+    }
+    
+    @Override
+    public int getNumberOfFaceDownCards(final int pile) {
+        return faceDownCounts[pile];
+    }
+    
+    @Override
+    public int getNumberOfFaceUpCards(final int pile) {
+        return pileSizes[pile] - faceDownCounts[pile];
+    }
+    
+    @Override
+    public Card getFaceUpCard(final int pile, final int index) {
+        if (index < 0 || index >= getNumberOfFaceUpCards(pile)) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return CardIds.getCard(piles[pile][faceDownCounts[pile] + index]);
+    }
+    
+    @Override
+    public Card getFaceDownCard(final int pile, final int index) {
+        if (index < 0 || index >= faceDownCounts[pile]) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return CardIds.getCard(piles[pile][index]);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This copies the cards, since the board may change.
+     */
+    @Override
+    public List<Card> getTopCards(final int pile, final int numberOfCards) {
+        if (numberOfCards < 1 || numberOfCards > getNumberOfFaceUpCards(pile)) {
+            throw new IllegalArgumentException();
+        }
+        final int end = pileSizes[pile];
+        return new Board.CardList(Arrays.copyOfRange(piles[pile], end - numberOfCards, end), 0, numberOfCards);
+    }
+    
+    /**
+     * Returns the identifier of a card in a pile, counting the face-down
+     * cards from the bottom of the pile first.
+     */
+    int getCardId(final int pile, final int index) {
+        return piles[pile][index];
+    }
+    
+    byte[] getDealtDrawPile() {
+        return dealtDrawPile;
+    }
+    
+    long getDrawPileRemoved() {
+        return drawPileRemoved;
+    }
+    
+    @Override
+    public int getDrawIndex() {
+        return drawIndex;
+    }
+    
+    @Override
+    public int getDrawPileSize() {
+        return dealtDrawPile.length - Long.bitCount(drawPileRemoved);
+    }
+    
+    @Override
+    public Card getDrawCard() {
+        if (drawIndex < 1) {
+            throw new IndexOutOfBoundsException("No card has been drawn.");
+        }
+        return CardIds.getCard(dealtDrawPile[Board.getDrawPilePosition(dealtDrawPile, drawPileRemoved, drawIndex - 1)]);
+    }
+    
+    @Override
+    public Card getDrawPileCard(final int index) {
+        if (index < 0 || index >= getDrawPileSize()) {
+            throw new IndexOutOfBoundsException("No card at index " + index + " of the draw pile.");
+        }
+        return CardIds.getCard(dealtDrawPile[Board.getDrawPilePosition(dealtDrawPile, drawPileRemoved, index)]);
+    }
+    
+    @Override
+    public boolean canFlipMoreDrawPileCards() {
+        return drawIndex < getDrawPileSize();
+    }
+    
+    @Override
+    public boolean canResetDrawPile() {
+        return drawIndex > 0;
+    }
+    
+    @Override
+    public int getGoalHeight(final Suit suit) {
+        return goalHeights[suit.ordinal()];
+    }
+    
+    @Override
+    public boolean isGoalComplete() {
+        for (final int height : goalHeights) {
+            if (height != CardIds.NUMBER_OF_CARDS / SUITS.length) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public long getFingerprint() {
+        return fingerprint;
+    }
+    
+    /**
+     * Returns what the card at the given position of a pile rests on, for
+     * the fingerprint.
+     */
+    private int getCardBelow(final int pile, final int position) {
+        return position == 0 ? Zobrist.pileBase(pile) : piles[pile][position - 1];
+    }
+    
+    /**
+     * Puts cards on top of a pile.
+     */
+    private void putOnPile(final int pile, final byte[] source, final int start, final int numCards) {
+        final int size = pileSizes[pile];
+        fingerprint ^= Zobrist.onPile(source[start], getCardBelow(pile, size));
+        System.arraycopy(source, start, piles[pile], size, numCards);
+        pileSizes[pile] = size + numCards;
+    }
+    
+    private void putOnPile(final int pile, final int card) {
+        final int size = pileSizes[pile];
+        fingerprint ^= Zobrist.onPile(card, getCardBelow(pile, size));
+        piles[pile][size] = (byte) card;
+        pileSizes[pile] = size + 1;
+    }
+    
+    /**
+     * Takes cards off the top of a pile, without turning any card face up.
+     */
+    private void takeFromPile(final int pile, final int numCards) {
+        final int newSize = pileSizes[pile] - numCards;
+        fingerprint ^= Zobrist.onPile(piles[pile][newSize], getCardBelow(pile, newSize));
+        pileSizes[pile] = newSize;
+    }
+    
+    /**
+     * Turns the top card of a pile face up if it is face down.
+     * 
+     * @return whether a card was turned
+     */
+    private boolean flipTopCard(final int pile) {
+        final int faceDown = faceDownCounts[pile];
+        if (faceDown > 0 && faceDown == pileSizes[pile]) {
+            fingerprint ^= Zobrist.faceDown(piles[pile][faceDown - 1]);
+            faceDownCounts[pile] = faceDown - 1;
+            return true;
+        } else {
+            return false;
+        }
+    }
+    
+    /**
+     * Turns the top card of a pile back face down.
+     */
+    private void unflipTopCard(final int pile) {
+        final int faceDown = faceDownCounts[pile];
+        fingerprint ^= Zobrist.faceDown(piles[pile][faceDown]);
+        faceDownCounts[pile] = faceDown + 1;
+    }
+    
+    private void checkFaceUpCards(final int pile, final int numCards) {
+        if (numCards < 1) {
+            throw new IllegalArgumentException();
+        }
+        if (numCards > getNumberOfFaceUpCards(pile)) {
+            throw new IllegalArgumentException();
+        }
+    }
+    
+    private void setDrawIndex(final int newDrawIndex) {
+        fingerprint ^= Zobrist.drawIndex(drawIndex) ^ Zobrist.drawIndex(newDrawIndex);
+        drawIndex = newDrawIndex;
+    }
+    
+    /**
+     * Takes the draw card out of the draw pile.
+     * 
+     * @return the position of the card in the dealt draw pile
+     */
+    private int takeDrawCard() {
+        if (drawIndex < 1) {
+            throw new IndexOutOfBoundsException("No card has been drawn.");
+        }
+        final int position = Board.getDrawPilePosition(dealtDrawPile, drawPileRemoved, drawIndex - 1);
+        fingerprint ^= Board.takeFromDrawPile(dealtDrawPile, drawPileRemoved, position);
+        drawPileRemoved |= 1L << position;
+        setDrawIndex(drawIndex - 1);
+        return position;
+    }
+    
+    /**
+     * Puts a card taken by {@link #takeDrawCard()} back in the draw pile.
+     */
+    private void returnDrawCard(final int position) {
+        drawPileRemoved &= ~(1L << position);
+        fingerprint ^= Board.takeFromDrawPile(dealtDrawPile, drawPileRemoved, position);
+        setDrawIndex(drawIndex + 1);
+    }
+    
+    public void resetDrawIndex() {
+        pushUndo(drawIndex);
+        setDrawIndex(0);
+    }
+    
+    public void undoResetDrawIndex() {
+        setDrawIndex(popUndo());
+    }
+    
+    public void advanceDrawIndex(final int advance) {
+        if (advance < 1) {
+            throw new IllegalArgumentException();
+        }
+        pushUndo(drawIndex);
+        setDrawIndex(Math.min(drawIndex + advance, getDrawPileSize()));
+    }
+    
+    public void undoAdvanceDrawIndex() {
+        setDrawIndex(popUndo());
+    }
+    
+    public void moveStack(final int fromIndex, final int toIndex, final int numCards) {
+        if (fromIndex == toIndex) {
+            throw new IllegalArgumentException();
+        }
+        checkFaceUpCards(fromIndex, numCards);
+        putOnPile(toIndex, piles[fromIndex], pileSizes[fromIndex] - numCards, numCards);
+        takeFromPile(fromIndex, numCards);
+        pushUndo(flipTopCard(fromIndex) ? 1 : 0);
+    }
+    
+    public void undoMoveStack(final int fromIndex, final int toIndex, final int numCards) {
+        if (popUndo() != 0) {
+            unflipTopCard(fromIndex);
+        }
+        putOnPile(fromIndex, piles[toIndex], pileSizes[toIndex] - numCards, numCards);
+        takeFromPile(toIndex, numCards);
+    }
+    
+    public void moveCardToGoal(final int index) {
+        checkFaceUpCards(index, 1);
+        final int card = piles[index][pileSizes[index] - 1];
+        takeFromPile(index, 1);
+        goalHeights[CardIds.getCard(card).getSuit().ordinal()]++ ;
+        pushUndo(card << 1 | (flipTopCard(index) ? 1 : 0));
+    }
+    
+    public void undoMoveCardToGoal(final int index) {
+        final int undo = popUndo();
+        if ((undo & 1) != 0) {
+            unflipTopCard(index);
+        }
+        final int card = undo >>> 1;
+        goalHeights[CardIds.getCard(card).getSuit().ordinal()]-- ;
+        putOnPile(index, card);
+    }
+    
+    public void drawCardToPile(final int index) {
+        final int position = takeDrawCard();
+        putOnPile(index, dealtDrawPile[position]);
+        pushUndo(position);
+    }
+    
+    public void undoDrawCardToPile(final int index) {
+        takeFromPile(index, 1);
+        returnDrawCard(popUndo());
+    }
+    
+    public void drawCardToGoal() {
+        final int position = takeDrawCard();
+        goalHeights[CardIds.getCard(dealtDrawPile[position]).getSuit().ordinal()]++ ;
+        pushUndo(position);
+    }
+    
+    public void undoDrawCardToGoal() {
+        final int position = popUndo();
+        goalHeights[CardIds.getCard(dealtDrawPile[position]).getSuit().ordinal()]-- ;
+        returnDrawCard(position);
+    }
+    
+    /**
+     * Replaces the position with a new deal. Taking the deal back restores
+     * the position it replaced.
+     * 
+     * @param dealt the board as dealt
+     * @throws IllegalArgumentException if the deal has a different number
+     *         of piles
+     */
+    public void deal(final Board dealt) {
+        if (dealt.getNumberOfPiles() != numberOfPiles) {
+            throw new IllegalArgumentException(
+                    "Deal has " + dealt.getNumberOfPiles() + " piles instead of " + numberOfPiles + ".");
+        }
+        dealtOver.add(toBoard());
+        pushUndo(0);
+        load(dealt);
+    }
+    
+    public void undoDeal() {
+        popUndo();
+        load(dealtOver.remove(dealtOver.size() - 1));
+    }
+    
+    public void moveCardFromGoal(final Suit suit, final int index) {
+        final int height = goalHeights[suit.ordinal()];
+        if (height < 1) {
+            throw new IndexOutOfBoundsException("No cards in the goal for suit " + suit + ".");
+        }
+        goalHeights[suit.ordinal()] = height - 1;
+        putOnPile(index, CardIds.getId(suit, height - 1));
+        pushUndo(0);
+    }
+    
+    public void undoMoveCardFromGoal(final Suit suit, final int index) {
+        popUndo();
+        takeFromPile(index, 1);
+        goalHeights[suit.ordinal()]++ ;
+    }
+    
+    @Override
+    public String toString() {
+        return "MutableBoard " + toBoard();
+    }
+    
+}
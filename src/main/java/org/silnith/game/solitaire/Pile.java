@@ -13,6 +13,12 @@ public class Pile {
     
     private final List<Card> faceUp;
     
+    /**
+     * The Zobrist fingerprint of this pile, keyed the same way as the piles
+     * of a {@link Board} but with a base shared by every pile.
+     */
+    private final long fingerprint;
+    
     public Pile(List<? extends Card> faceDownCards, List<? extends Card> faceUpCards) {
         super();
         if (faceDownCards == null) {
@@ -33,6 +39,54 @@ public class Pile {
          * It actually performs significantly better to copy the lists than to
          * use the provided lists, since the provided lists are often sublists.
          */
+        this.fingerprint = computeFingerprint();
+    }
+    
+    /**
+     * Constructs a pile whose fingerprint is already known. The face-up cards
+     * must not be empty unless the face-down cards are empty too.
+     */
+    private Pile(final List<Card> faceDownCards, final List<Card> faceUpCards, final long fingerprint) {
+        super();
+        this.faceDown = new ArrayList<>(faceDownCards);
+        this.faceUp = new ArrayList<>(faceUpCards);
+        this.fingerprint = fingerprint;
+    }
+    
+    private long computeFingerprint() {
+        long hash = 0;
+        int below = Zobrist.ANY_PILE_BASE;
+        for (final Card card : faceDown) {
+            final int id = CardIds.getId(card);
+            hash ^= Zobrist.onPile(id, below) ^ Zobrist.faceDown(id);
+            below = id;
+        }
+        for (final Card card : faceUp) {
+            final int id = CardIds.getId(card);
+            hash ^= Zobrist.onPile(id, below);
+            below = id;
+        }
+        return hash;
+    }
+    
+    private int getTopCardId() {
+        if ( !faceUp.isEmpty()) {
+            return CardIds.getId(faceUp.get(faceUp.size() - 1));
+        } else if ( !faceDown.isEmpty()) {
+            return CardIds.getId(faceDown.get(faceDown.size() - 1));
+        } else {
+            return Zobrist.ANY_PILE_BASE;
+        }
+    }
+    
+    /**
+     * Returns a 64-bit fingerprint of this pile. Equal piles have equal
+     * fingerprints.
+     * 
+     * @return the pile fingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
     }
     
     public boolean hasFaceDownCards() {
@@ -51,6 +105,10 @@ public class Pile {
         return faceUp.size();
     }
     
+    public List<Card> getFaceDownCards() {
+        return faceDown;
+    }
+    
     public List<Card> getFaceUpCards() {
         return faceUp;
     }
@@ -87,7 +145,23 @@ public class Pile {
         
         final int end = faceUp.size();
         final int start = end - numberOfCards;
-        return new Pile(faceDown, faceUp.subList(0, start));
+        long newFingerprint = fingerprint;
+        for (int i = end - 1; i > start; i-- ) {
+            newFingerprint ^= Zobrist.onPile(CardIds.getId(faceUp.get(i)), CardIds.getId(faceUp.get(i - 1)));
+        }
+        final int bottomCard = CardIds.getId(faceUp.get(start));
+        if (start > 0) {
+            newFingerprint ^= Zobrist.onPile(bottomCard, CardIds.getId(faceUp.get(start - 1)));
+            return new Pile(faceDown, faceUp.subList(0, start), newFingerprint);
+        }
+        if (faceDown.isEmpty()) {
+            return new Pile(faceDown, faceUp.subList(0, 0), 0);
+        }
+        // Flip the newly exposed card face up.
+        final int index = faceDown.size() - 1;
+        final int newTopCard = CardIds.getId(faceDown.get(index));
+        newFingerprint ^= Zobrist.onPile(bottomCard, newTopCard) ^ Zobrist.faceDown(newTopCard);
+        return new Pile(faceDown.subList(0, index), faceDown.subList(index, index + 1), newFingerprint);
     }
     
     public Pile addNewCards(final List<Card> newCards) {
@@ -97,7 +171,14 @@ public class Pile {
         final List<Card> newFaceUp = new ArrayList<>(faceUp.size() + newCards.size());
         newFaceUp.addAll(faceUp);
         newFaceUp.addAll(newCards);
-        return new Pile(faceDown, newFaceUp);
+        long newFingerprint = fingerprint;
+        int below = getTopCardId();
+        for (final Card card : newCards) {
+            final int id = CardIds.getId(card);
+            newFingerprint ^= Zobrist.onPile(id, below);
+            below = id;
+        }
+        return new Pile(faceDown, newFaceUp, newFingerprint);
     }
     
     public Pile addNewCard(final Card newCard) {
@@ -107,18 +188,22 @@ public class Pile {
         final List<Card> newFaceUp = new ArrayList<>(faceUp.size() + 1);
         newFaceUp.addAll(faceUp);
         newFaceUp.add(newCard);
-        return new Pile(faceDown, newFaceUp);
+        final long newFingerprint = fingerprint ^ Zobrist.onPile(CardIds.getId(newCard), getTopCardId());
+        return new Pile(faceDown, newFaceUp, newFingerprint);
     }
     
     @Override
     public int hashCode() {
-        return 0x1280ce7a ^ faceDown.hashCode() ^ Integer.rotateLeft(faceUp.hashCode(), 16);
+        return (int) (fingerprint ^ (fingerprint >>> 32));
     }
     
     @Override
     public boolean equals(final Object obj) {
         if (obj instanceof Pile) {
             final Pile pile = (Pile) obj;
+            if (fingerprint != pile.fingerprint) {
+                return false;
+            }
             if (faceDown.size() != pile.faceDown.size()) {
                 return false;
             }
@@ -0,0 +1,131 @@
+package org.silnith.game.solitaire;
+
+import java.util.List;
+
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+
+
+/**
+ * Read access to a game board, shared by the immutable {@link Board} and the
+ * {@link MutableBoard} used for depth-first search. Everything that
+ * {@link Solitaire#findAllMoves(ReadableBoard)} needs can be read through
+ * this interface without decoding whole piles.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public interface ReadableBoard {
+    
+    /**
+     * Returns the number of piles on the tableau.
+     * 
+     * @return the number of piles
+     */
+    public int getNumberOfPiles();
+    
+    /**
+     * Returns the number of face-down cards in a pile.
+     * 
+     * @param pile the index of the pile
+     * @return the number of face-down cards
+     */
+    public int getNumberOfFaceDownCards(int pile);
+    
+    /**
+     * Returns the number of face-up cards in a pile.
+     * 
+     * @param pile the index of the pile
+     * @return the number of face-up cards
+     */
+    public int getNumberOfFaceUpCards(int pile);
+    
+    /**
+     * Returns a face-down card of a pile.
+     * 
+     * @param pile the index of the pile
+     * @param index the index of the card among the face-down cards, zero
+     *        being the bottom card of the pile
+     * @return the card
+     */
+    public Card getFaceDownCard(int pile, int index);
+    
+    /**
+     * Returns a face-up card of a pile.
+     * 
+     * @param pile the index of the pile
+     * @param index the index of the card among the face-up cards, zero being
+     *        the bottom face-up card
+     * @return the card
+     */
+    public Card getFaceUpCard(int pile, int index);
+    
+    /**
+     * Returns the top face-up cards of a pile, bottom to top. The returned
+     * list does not change if the board changes.
+     * 
+     * @param pile the index of the pile
+     * @param numberOfCards the number of cards
+     * @return the top {@code numberOfCards} cards of the pile
+     */
+    public List<Card> getTopCards(int pile, int numberOfCards);
+    
+    /**
+     * Returns the number of cards flipped from the draw pile.
+     * 
+     * @return the draw index
+     */
+    public int getDrawIndex();
+    
+    /**
+     * Returns the card on top of the flipped cards of the draw pile.
+     * 
+     * @return the draw card
+     * @throws IndexOutOfBoundsException if no card has been flipped
+     */
+    public Card getDrawCard();
+    
+    /**
+     * Returns the number of cards left in the draw pile, flipped or not.
+     * 
+     * @return the size of the draw pile
+     */
+    public int getDrawPileSize();
+    
+    /**
+     * Returns a card of the draw pile. The card at {@code getDrawIndex() - 1}
+     * is the {@link #getDrawCard() draw card}.
+     * 
+     * @param index the index of the card, from zero
+     * @return the card at {@code index}
+     * @throws IndexOutOfBoundsException if there is no card at {@code index}
+     */
+    public Card getDrawPileCard(int index);
+    
+    public boolean canFlipMoreDrawPileCards();
+    
+    public boolean canResetDrawPile();
+    
+    /**
+     * Returns the number of cards in the goal for the given suit.
+     * 
+     * @param suit the suit
+     * @return the number of cards of {@code suit} in the goal
+     */
+    public int getGoalHeight(Suit suit);
+    
+    /**
+     * Returns whether every card of every suit is in the goal.
+     * 
+     * @return whether the goal is complete
+     */
+    public boolean isGoalComplete();
+    
+    /**
+     * Returns a 64-bit fingerprint of the board. Equal boards have equal
+     * fingerprints, whichever implementation holds them.
+     * 
+     * @return the board fingerprint
+     */
+    public long getFingerprint();
+    
+}
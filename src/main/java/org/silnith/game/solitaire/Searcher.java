@@ -2,22 +2,39 @@ package org.silnith.game.solitaire;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 
 import org.silnith.deck.Card;
 import org.silnith.game.GameState;
 import org.silnith.game.solitaire.config.SearcherConfiguration;
+import org.silnith.game.solitaire.move.AutoPlayMove;
 import org.silnith.game.solitaire.move.DealMove;
+import org.silnith.game.solitaire.move.FlipAndDrawMove;
 import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.search.CancellableSearch;
+import org.silnith.game.solitaire.search.DeadEndCache;
+import org.silnith.game.solitaire.search.FrontierArena;
+import org.silnith.game.solitaire.search.Heuristic;
+import org.silnith.game.solitaire.search.TranspositionTable;
 import org.silnith.util.LinkedNode;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
@@ -26,34 +43,161 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 /**
  * A stateful search engine used to expand and traverse the game state tree for
  * a particular game starting position.
- *
+ * 
  * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
  */
-public class Searcher implements Runnable {
+public class Searcher implements CancellableSearch {
+    
+    /**
+     * The maximum depth that does not limit the search.
+     */
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+    
+    /**
+     * Spreads a depth over the bits of a fingerprint, so that the same board
+     * at different depths has unrelated keys in the transposition table.
+     */
+    private static final long DEPTH_KEY_MULTIPLIER = 0x9E3779B97F4A7C15L;
     
     private final Solitaire game;
     
     private final GameState<SolitaireMove, Board> startNode;
     
 //    private final BlockingDeque<GameState<Board>> pendingNodes;
-    private final Deque<GameState<SolitaireMove, Board>> pendingNodes;
+    /**
+     * The nodes waiting for a worker, held outside of the heap.
+     */
+    private final FrontierArena pendingNodes;
+    
+    /**
+     * The number of nodes that are either waiting in {@link #pendingNodes} or
+     * being expanded by a worker. A node is counted until all of its children
+     * have been counted, so this only reaches zero once the workers have
+     * searched the whole tree.
+     */
+    private final AtomicLong nodesInFlight;
+    
+    /**
+     * One permit for every node put in {@link #pendingNodes}, so that idle
+     * workers can block until there is work.
+     */
+    private final Semaphore queuedNodes;
+    
+    private final CountDownLatch finished;
     
     private final AtomicInteger maxDepthSearched;
     
     private final AtomicLong nodesSearched;
     
+    /**
+     * The number of nodes not searched because they were deeper than
+     * {@link #maxDepth}.
+     */
+    private final AtomicLong depthCutoffs;
+    
+    private int maxDepth;
+    
+    /**
+     * The number of moves, counting the first, in the shortest solution found
+     * so far, or {@link Integer#MAX_VALUE} if none has been found.
+     */
+    private final AtomicInteger incumbentLength;
+    
+    private final AtomicReference<GameState<SolitaireMove, Board>> bestSolution;
+    
+    /**
+     * The number of nodes not searched because they could not lead to a
+     * solution shorter than the incumbent.
+     */
+    private final AtomicLong boundCutoffs;
+    
+    private Heuristic lowerBound;
+    
+    private Consumer<GameState<SolitaireMove, Board>> solutionListener;
+    
+    /**
+     * Raised to stop every worker. Workers check it between expansions.
+     */
+    private final AtomicBoolean cancelled;
+    
+    private boolean stopOnFirstSolution;
+    
+    /**
+     * The number of nodes that were made but never searched because the
+     * search was cancelled.
+     */
+    private final AtomicLong cancelledNodes;
+    
+    /**
+     * The number of moves that were found but never made because the search
+     * was cancelled.
+     */
+    private final AtomicLong cancelledMoves;
+    
+    /**
+     * The number of boards made whose draw index was merged with the
+     * beginning of the draw pile in their fingerprint.
+     */
+    private final AtomicLong drawPilePositionsMerged;
+    
     private final Collection<GameState<SolitaireMove, Board>> solutions;
     
+    private final TranspositionTable transpositionTable;
+    
+    private DeadEndCache deadEndCache;
+    
+    /**
+     * Constructs a searcher that only rejects boards that repeat along the
+     * path from the start node.
+     * 
+     * @param game the game
+     * @param startNode the starting position
+     */
     @Inject
     public Searcher(final Solitaire game, final GameState<SolitaireMove, Board> startNode) {
+        this(game, startNode, null);
+    }
+    
+    /**
+     * Constructs a searcher that also rejects boards that were reached before
+     * by a different sequence of moves. The transposition table may be shared
+     * with other searchers of the same game.
+     * 
+     * @param game the game
+     * @param startNode the starting position
+     * @param transpositionTable the boards already visited, or {@code null}
+     */
+    public Searcher(final Solitaire game, final GameState<SolitaireMove, Board> startNode,
+            final TranspositionTable transpositionTable) {
         super();
         this.startNode = startNode;
         this.game = game;
 //        this.pendingNodes = new LinkedBlockingDeque<>();
-        this.pendingNodes = new ConcurrentLinkedDeque<>();
+        this.pendingNodes = new FrontierArena(startNode, INITIAL_PENDING_CAPACITY);
+        this.pendingNodes.push(Collections.singletonList(startNode));
+        this.nodesInFlight = new AtomicLong(1);
+        this.queuedNodes = new Semaphore(1);
+        this.finished = new CountDownLatch(1);
         this.maxDepthSearched = new AtomicInteger();
         this.nodesSearched = new AtomicLong();
+        this.depthCutoffs = new AtomicLong();
+        this.maxDepth = UNLIMITED_DEPTH;
+        this.incumbentLength = new AtomicInteger(Integer.MAX_VALUE);
+        this.bestSolution = new AtomicReference<>();
+        this.boundCutoffs = new AtomicLong();
+        this.lowerBound = null;
+        this.solutionListener = null;
+        this.cancelled = new AtomicBoolean();
+        this.stopOnFirstSolution = false;
+        this.cancelledNodes = new AtomicLong();
+        this.cancelledMoves = new AtomicLong();
+        this.drawPilePositionsMerged = new AtomicLong();
         this.solutions = Collections.synchronizedSet(new HashSet<GameState<SolitaireMove, Board>>());
+        this.transpositionTable = transpositionTable;
+        this.deadEndCache = null;
+        if (transpositionTable != null) {
+            transpositionTable.add(game.getFingerprint(startNode.getBoards().getFirst()));
+        }
     }
     
     public Solitaire getGame() {
@@ -72,18 +216,340 @@ public class Searcher implements Runnable {
         return nodesSearched.get();
     }
     
+    /**
+     * Returns the number of nodes that were not searched because they were
+     * deeper than the maximum depth.
+     * 
+     * @return the number of depth cutoffs
+     * @see #setMaxDepth(int)
+     */
+    public long getDepthCutoffs() {
+        return depthCutoffs.get();
+    }
+    
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    /**
+     * Sets the greatest number of boards, counting the start board, on the
+     * path to a node that is searched. Moves are not searched from deeper
+     * nodes, but a solution is still found if the last move wins. This must
+     * be set before the search starts.
+     * <p>
+     * With a maximum depth, the transposition table keeps a board once for
+     * each depth it is reached at, since a board reached by a shorter path
+     * has more moves left to search. Transpositions at different depths are
+     * then searched again.
+     * 
+     * @param maxDepth the maximum depth, or {@link #UNLIMITED_DEPTH}
+     */
+    public void setMaxDepth(final int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Maximum depth must be positive: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+    
+    /**
+     * Switches the search to finding the shortest solution by branch and
+     * bound. The search keeps the length of the shortest solution found so
+     * far, shared by every thread, and does not search a node if the moves
+     * made to reach it plus the lower bound on the moves still needed are
+     * not fewer than that. Only solutions shorter than every earlier one are
+     * recorded. Lengths are counted by {@link Solitaire#getLength(GameState)}.
+     * This must be set before the search starts.
+     * <p>
+     * The bound must never overestimate. Even so, a transposition table can
+     * reject a board reached by a shorter path after a longer one, so the
+     * solution is only certain to be the shortest without one.
+     * 
+     * @param lowerBound a lower bound on the number of moves to win, or
+     *        {@code null} to record every solution
+     * @see #getBestSolution()
+     */
+    public void setLowerBound(final Heuristic lowerBound) {
+        this.lowerBound = lowerBound;
+    }
+    
+    public Heuristic getLowerBound() {
+        return lowerBound;
+    }
+    
+    /**
+     * Sets a listener that is called with each solution as soon as it is
+     * recorded, from the thread that found it. This must be set before the
+     * search starts.
+     * 
+     * @param solutionListener the listener, or {@code null}
+     */
+    public void setSolutionListener(final Consumer<GameState<SolitaireMove, Board>> solutionListener) {
+        this.solutionListener = solutionListener;
+    }
+    
+    /**
+     * Returns the shortest solution found so far. This may be called at any
+     * time while the search runs.
+     * 
+     * @return the shortest solution, or {@code null} if none has been found
+     */
+    public GameState<SolitaireMove, Board> getBestSolution() {
+        return bestSolution.get();
+    }
+    
+    /**
+     * Returns the number of nodes not searched because they could not lead to
+     * a shorter solution.
+     * 
+     * @return the number of bound cutoffs
+     * @see #setLowerBound(Heuristic)
+     */
+    public long getBoundCutoffs() {
+        return boundCutoffs.get();
+    }
+    
+    public boolean isStopOnFirstSolution() {
+        return stopOnFirstSolution;
+    }
+    
+    /**
+     * Sets whether the search stops as soon as one solution is found. The
+     * thread that finds it cancels the search, so exactly one solution is
+     * recorded. This must be set before the search starts.
+     * 
+     * @param stopOnFirstSolution {@code true} to stop at the first solution
+     * @see #cancel()
+     */
+    public void setStopOnFirstSolution(final boolean stopOnFirstSolution) {
+        this.stopOnFirstSolution = stopOnFirstSolution;
+    }
+    
+    /**
+     * Stops the search. Workers notice between expansions and throw away the
+     * nodes and moves they have not searched, counting them. The search then
+     * finishes as though the whole tree had been searched, and no further
+     * solutions are recorded.
+     * 
+     * @return {@code true} if this call cancelled the search, {@code false}
+     *         if it was already cancelled
+     * @see #getCancelledNodes()
+     * @see #getCancelledMoves()
+     */
+    @Override
+    public boolean cancel() {
+        return cancelled.compareAndSet(false, true);
+    }
+    
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+    
+    /**
+     * Returns whether the whole tree was searched without being cancelled or
+     * cut off by the maximum depth.
+     * 
+     * @return {@code true} if the search was exhausted
+     */
+    @Override
+    public boolean isExhausted() {
+        return !cancelled.get() && depthCutoffs.get() == 0;
+    }
+    
+    /**
+     * Returns the number of nodes that were made but never searched because
+     * the search was cancelled. Once the search has finished this is exact.
+     * 
+     * @return the number of cancelled nodes
+     */
+    public long getCancelledNodes() {
+        return cancelledNodes.get();
+    }
+    
+    /**
+     * Returns the number of moves that were found but never made into nodes
+     * because the search was cancelled. Once the search has finished this is
+     * exact.
+     * 
+     * @return the number of cancelled moves
+     */
+    public long getCancelledMoves() {
+        return cancelledMoves.get();
+    }
+    
+    /**
+     * Returns the number of boards made by the search whose draw index was
+     * merged with the beginning of the draw pile. Each board is counted once,
+     * however many times its fingerprint is taken.
+     * 
+     * @return the number of draw pile positions merged
+     * @see Solitaire#isDrawIndexMerged(ReadableBoard)
+     */
+    public long getDrawPilePositionsMerged() {
+        return drawPilePositionsMerged.get();
+    }
+    
+    public long getPendingNodesCount() {
+        return pendingNodes.size();
+    }
+    
+    /**
+     * Returns the number of bytes used outside of the heap by the nodes
+     * waiting for the workers returned by {@link #getNewWorker()}.
+     * 
+     * @return the bytes used by pending nodes
+     */
+    public long getPendingNodesBytes() {
+        return pendingNodes.getBytesUsed();
+    }
+    
+    /**
+     * Returns the greatest number of bytes used outside of the heap by the
+     * nodes waiting for the workers returned by {@link #getNewWorker()}.
+     * 
+     * @return the peak bytes used by pending nodes
+     */
+    public long getMaxPendingNodesBytes() {
+        return pendingNodes.getMaxBytesUsed();
+    }
+    
+    /**
+     * Returns whether the workers returned by {@link #getNewWorker()} have
+     * searched the entire tree, or been cancelled.
+     * 
+     * @return {@code true} if the search is complete
+     */
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+    
+    /**
+     * Waits until the workers returned by {@link #getNewWorker()} have
+     * searched the entire tree, or been cancelled.
+     * 
+     * @throws InterruptedException if the current thread is interrupted while
+     *         waiting
+     */
+    public void awaitCompletion() throws InterruptedException {
+        finished.await();
+    }
+    
+    /**
+     * Waits until the workers returned by {@link #getNewWorker()} have
+     * searched the entire tree, or the timeout expires.
+     * 
+     * @param timeout the maximum time to wait
+     * @param unit the unit of {@code timeout}
+     * @return {@code true} if the search is complete
+     * @throws InterruptedException if the current thread is interrupted while
+     *         waiting
+     */
+    public boolean awaitCompletion(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+    
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+    
+    @Override
     public Collection<GameState<SolitaireMove, Board>> getSolutions() {
         return Collections.unmodifiableCollection(solutions);
     }
     
+    public DeadEndCache getDeadEndCache() {
+        return deadEndCache;
+    }
+    
+    /**
+     * Sets a cache of boards proven to be dead ends. A board in the cache is
+     * not searched. The search of {@link #run()} adds each board whose whole
+     * subtree it searched without a win, depth cutoff, or bound cutoff, and
+     * the tasks of {@link #getNewTask()} do the same for each board that was
+     * forked off as a task of its own. The workers of {@link #getNewWorker()}
+     * only look boards up, since they do not know which subtree a node
+     * belongs to.
+     * The cache may be shared with other searchers of the same game. This
+     * must be set before the search starts.
+     * <p>
+     * A board is only proven if no move below it was pruned, whether as a
+     * cycle, by the move before it, or by the transposition table, since each
+     * of those depends on the path the board was reached by. A board skipped
+     * by the transposition table still counts if it is already a dead end.
+     * 
+     * @param deadEndCache the proven dead ends, or {@code null}
+     */
+    public void setDeadEndCache(final DeadEndCache deadEndCache) {
+        this.deadEndCache = deadEndCache;
+    }
+    
+    /**
+     * Searches the entire tree below the start node in the current thread,
+     * unless cancelled.
+     * <p>
+     * The search keeps the path from the start node on an explicit stack, so
+     * the depth of the tree is not limited by the size of the thread stack.
+     * Each entry holds a node with the moves found for it, and a child is
+     * made from a move only when the search reaches it. Children are visited
+     * in the order the game returns the moves, so the moves a
+     * {@link MoveOrdering} puts first are searched first.
+     */
     @Override
     public void run() {
-        searchNode(startNode);
-    }
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        GameState<SolitaireMove, Board>[] path = new GameState[INITIAL_STACK_DEPTH];
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        List<SolitaireMove>[] moves = new List[INITIAL_STACK_DEPTH];
+        int[] nextMove = new int[INITIAL_STACK_DEPTH];
+        Proof[] proofs = new Proof[INITIAL_STACK_DEPTH];
     
-    private void searchNode(final GameState<SolitaireMove, Board> node) {
-        for (final GameState<SolitaireMove, Board> newNode : search(node)) {
-            searchNode(newNode);
+        int top = 0;
+        path[0] = startNode;
+        proofs[0] = new Proof();
+        moves[0] = findMovesToSearch(startNode, proofs[0]);
+        nextMove[0] = 0;
+        while (top >= 0) {
+            if (cancelled.get()) {
+                for (int i = 0; i <= top; i++ ) {
+                    cancelledMoves.addAndGet(moves[i].size() - nextMove[i]);
+                }
+                return;
+            }
+            if (nextMove[top] == moves[top].size()) {
+                recordDeadEnd(path[top], proofs[top]);
+                if (top > 0) {
+                    proofs[top - 1].add(proofs[top]);
+                }
+                path[top] = null;
+                moves[top] = null;
+                top-- ;
+                continue;
+            }
+            final GameState<SolitaireMove, Board> node = path[top];
+            final GameState<SolitaireMove, Board> newNode =
+                    expand(node, moves[top].get(nextMove[top]++ ), proofs[top]);
+            if (newNode == null) {
+                continue;
+            }
+            if (top + 1 == path.length) {
+                path = Arrays.copyOf(path, 2 * path.length);
+                moves = Arrays.copyOf(moves, 2 * moves.length);
+                nextMove = Arrays.copyOf(nextMove, 2 * nextMove.length);
+                proofs = Arrays.copyOf(proofs, 2 * proofs.length);
+            }
+            if (proofs[top + 1] == null) {
+                proofs[top + 1] = new Proof();
+            } else {
+                proofs[top + 1].reset();
+            }
+            final List<SolitaireMove> newMoves = findMovesToSearch(newNode, proofs[top + 1]);
+            if (newMoves.isEmpty()) {
+                proofs[top].add(proofs[top + 1]);
+                continue;
+            }
+            top++ ;
+            path[top] = newNode;
+            moves[top] = newMoves;
+            nextMove[top] = 0;
         }
     }
     
@@ -98,11 +564,41 @@ public class Searcher implements Runnable {
         } while ( !succeeded);
     }
     
-    public Collection<GameState<SolitaireMove, Board>> search(final GameState<SolitaireMove, Board> node) {
-        nodesSearched.incrementAndGet();
-        final LinkedNode<SolitaireMove> pastMoves = node.getMoves();
+    public List<GameState<SolitaireMove, Board>> search(final GameState<SolitaireMove, Board> node) {
+        return search(node, null);
+    }
+    
+    /**
+     * Searches a node and returns its children, last move first, noting in
+     * the proof the nodes searched and anything that keeps the node from
+     * being proven a dead end.
+     */
+    private List<GameState<SolitaireMove, Board>> search(final GameState<SolitaireMove, Board> node,
+            final Proof proof) {
+        final List<SolitaireMove> possibleMoves = findMovesToSearch(node, proof);
+        final List<GameState<SolitaireMove, Board>> nextMoves = new ArrayList<>();
+        for (int i = 0; i < possibleMoves.size(); i++ ) {
+            if (cancelled.get()) {
+                cancelledMoves.addAndGet(possibleMoves.size() - i);
+                break;
+            }
+            final GameState<SolitaireMove, Board> newNode = expand(node, possibleMoves.get(i), proof);
+            if (newNode != null) {
+                nextMoves.add(newNode);
+            }
+        }
+        // Flip the list to preserve the LIFO behavior.
+        Collections.reverse(nextMoves);
+        return nextMoves;
+    }
+    
+    /**
+     * Counts a node as searched and returns the moves that can be made from
+     * it. A node deeper than the maximum depth is not searched, and has no
+     * moves, nor is a node that can no longer beat the incumbent solution.
+     */
+    private List<SolitaireMove> findMovesToSearch(final GameState<SolitaireMove, Board> node, final Proof proof) {
         final LinkedNode<Board> pastBoards = node.getBoards();
-        final Board currentBoard = pastBoards.getFirst();
         
 //        if (game.isWin(currentBoard)) {
 //            solutions.add(node);
@@ -110,76 +606,366 @@ public class Searcher implements Runnable {
 //            continue;
 //        }
 
-//        if (pastBoards.size() > MAX_DEPTH) {
-//            continue;
-//        }
+        if (pastBoards.size() > maxDepth) {
+            depthCutoffs.incrementAndGet();
+            Proof.disprove(proof);
+            return Collections.emptyList();
+        }
+        // The incumbent may have improved while the node was waiting.
+        if (isBeyondBound(game.getLength(node), pastBoards.getFirst())) {
+            Proof.disprove(proof);
+            return Collections.emptyList();
+        }
         
-        final Collection<SolitaireMove> possibleMoves = game.findAllMoves(currentBoard);
-        final List<GameState<SolitaireMove, Board>> nextMoves = new ArrayList<>();
-        for (final SolitaireMove possibleMove : possibleMoves) {
-            final Board possibleBoard = possibleMove.apply(currentBoard);
-            game.validate(possibleBoard);
-            
-            final GameState<SolitaireMove, Board> newNode =
-                    game.pruneGameState(new GameState<>(node, possibleMove, possibleBoard));
-                    
-            if (game.isWin(possibleBoard)) {
-                solutions.add(newNode);
-                setMaxDepthSearched(pastBoards.size());
-//                printSolution(newNode);
-                continue;
+        nodesSearched.incrementAndGet();
+        if (proof != null) {
+            proof.nodes++ ;
+        }
+        return game.findAllMoves(pastBoards.getFirst());
+    }
+    
+    /**
+     * Makes a move from a node and returns the child node, or {@code null} if
+     * the child does not need to be searched. A child that wins the game is
+     * recorded as a solution and not searched.
+     */
+    private GameState<SolitaireMove, Board> expand(final GameState<SolitaireMove, Board> node,
+            final SolitaireMove possibleMove, final Proof proof) {
+        final Board possibleBoard = possibleMove.apply(node.getBoards().getFirst());
+        game.validate(possibleBoard);
+        
+        final GameState<SolitaireMove, Board> newNode =
+                game.pruneGameState(new GameState<>(node, possibleMove, possibleBoard));
+        if (newNode == null) {
+            // A cycle or a pruned move depends on the path to the node.
+            Proof.disprove(proof);
+            return null;
+        }
+        
+        if (game.isWin(possibleBoard)) {
+            Proof.disprove(proof);
+            recordSolution(newNode);
+            setMaxDepthSearched(node.getBoards().size());
+//            printSolution(newNode);
+            return null;
+        }
+        
+        /*
+         * Check the depth and the bound before the transposition table, so
+         * that a board cut off here can still be searched if reached by a
+         * shorter path.
+         */
+        if (newNode.getBoards().size() > maxDepth) {
+            depthCutoffs.incrementAndGet();
+            Proof.disprove(proof);
+            return null;
+        }
+        if (isBeyondBound(game.getLength(newNode), possibleBoard)) {
+            Proof.disprove(proof);
+            return null;
+        }
+        
+        /*
+         * Check the transposition table after the win check, since every
+         * solution ends on the same board. With a maximum depth, how far a
+         * board is searched depends on how deep it was reached, so a board
+         * reached at another depth is stored and searched again.
+         */
+        final long fingerprint = game.getFingerprint(possibleBoard);
+        if (game.isDrawIndexMerged(possibleBoard)) {
+            drawPilePositionsMerged.incrementAndGet();
+        }
+        final long key = maxDepth == UNLIMITED_DEPTH ? fingerprint
+                : fingerprint ^ newNode.getBoards().size() * DEPTH_KEY_MULTIPLIER;
+        if (transpositionTable != null && !transpositionTable.add(key)) {
+            /*
+             * The board was reached along another path, whose search may
+             * still be running or may have pruned moves this one would not.
+             */
+            if (deadEndCache == null || !deadEndCache.contains(fingerprint)) {
+                Proof.disprove(proof);
             }
-            
-            nextMoves.add(newNode);
+            return null;
         }
-        // Flip the list to preserve the LIFO behavior.
-        Collections.reverse(nextMoves);
-        return nextMoves;
+        
+        if (deadEndCache != null && deadEndCache.isDeadEnd(fingerprint)) {
+            return null;
+        }
+        
+        return newNode;
+    }
+    
+    /**
+     * Adds a node to the dead end cache if its whole subtree has been
+     * searched without a win, a cutoff, or a pruned move.
+     */
+    private void recordDeadEnd(final GameState<SolitaireMove, Board> node, final Proof proof) {
+        if (deadEndCache != null && proof.proven && !cancelled.get()) {
+            deadEndCache.add(game.getFingerprint(node.getBoards().getFirst()), proof.nodes);
+        }
+    }
+    
+    /**
+     * Returns whether a node cannot lead to a solution shorter than the
+     * incumbent, and counts it as cut off if so.
+     */
+    private boolean isBeyondBound(final int length, final Board board) {
+        if (lowerBound == null) {
+            return false;
+        }
+        final int incumbent = incumbentLength.get();
+        if (incumbent != Integer.MAX_VALUE && length + lowerBound.estimate(board) >= incumbent) {
+            boundCutoffs.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Records a solution. In branch and bound mode only a solution shorter
+     * than the incumbent is recorded, and it becomes the new incumbent. When
+     * stopping on the first solution, only the thread that cancels the search
+     * records one.
+     */
+    private void recordSolution(final GameState<SolitaireMove, Board> solution) {
+        if (stopOnFirstSolution) {
+            if ( !cancel()) {
+                return;
+            }
+        } else if (cancelled.get()) {
+            return;
+        }
+        final int length = game.getLength(solution);
+        if (lowerBound != null) {
+            int incumbent;
+            do {
+                incumbent = incumbentLength.get();
+                if (length >= incumbent) {
+                    return;
+                }
+            } while ( !incumbentLength.compareAndSet(incumbent, length));
+        }
+        /*
+         * Another thread may have published a shorter solution between the
+         * compare-and-set and this, so only replace a longer one.
+         */
+        GameState<SolitaireMove, Board> best;
+        do {
+            best = bestSolution.get();
+            if (best != null && game.getLength(best) <= length) {
+                break;
+            }
+        } while ( !bestSolution.compareAndSet(best, solution));
+        solutions.add(solution);
+        if (solutionListener != null) {
+            solutionListener.accept(solution);
+        }
+    }
+    
+    /**
+     * What the search found below one node: how many nodes it searched, and
+     * whether it found anything that keeps the node from being a proven dead
+     * end. Proofs of different subtrees are added together as the subtrees
+     * finish.
+     */
+    private static final class Proof {
+        
+        private long nodes;
+        
+        private boolean proven;
+        
+        public Proof() {
+            super();
+            reset();
+        }
+        
+        public void reset() {
+            nodes = 0;
+            proven = true;
+        }
+        
+        public synchronized void add(final Proof other) {
+            nodes += other.nodes;
+            proven &= other.proven;
+        }
+        
+        /**
+         * Marks a proof as failed, if there is one.
+         */
+        public static void disprove(final Proof proof) {
+            if (proof != null) {
+                proof.proven = false;
+            }
+        }
+        
     }
     
-//    private static final int MAX_DEPTH = 54;
+    private static final int INITIAL_STACK_DEPTH = 64;
+    
+    private static final int INITIAL_PENDING_CAPACITY = 1024;
     
-    private void putNodeInQueue(final GameState<SolitaireMove, Board> node) throws InterruptedException {
-//        pendingNodes.putLast(node);
-        pendingNodes.add(node);
+    private void putNodesInQueue(final List<GameState<SolitaireMove, Board>> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        // Count the nodes before they can be taken, so the count cannot reach zero early.
+        nodesInFlight.addAndGet(nodes.size());
+        pendingNodes.push(nodes);
+        queuedNodes.release(nodes.size());
     }
     
-    private GameState<SolitaireMove, Board> getNodeFromQueue() throws InterruptedException {
-//        return pendingNodes.takeLast();
-        GameState<SolitaireMove, Board> node = pendingNodes.pollLast();
-        while (node == null) {
-            Thread.sleep(3000);
-            node = pendingNodes.pollLast();
+    /**
+     * Marks a node taken from the queue as fully expanded.
+     */
+    private void finishNode() {
+        if (nodesInFlight.decrementAndGet() == 0) {
+            finished.countDown();
+            // Wake one idle worker, which wakes the next as it leaves.
+            queuedNodes.release();
         }
-        return node;
     }
     
+    /**
+     * Returns a worker that searches nodes from a queue shared with the other
+     * workers of this searcher. Workers return as soon as the whole tree has
+     * been searched, or when interrupted. Once the search is cancelled the
+     * workers empty the queue without searching, and then return.
+     * 
+     * @return a new worker
+     * @see #awaitCompletion()
+     */
     public Runnable getNewWorker() {
         return new Worker();
     }
     
+    /**
+     * Returns a task that searches the entire tree below the start node when
+     * run in a {@link ForkJoinPool}. The task completes when the whole tree
+     * has been searched.
+     * <p>
+     * Each thread explores its own part of the tree depth-first, and idle
+     * threads steal the shallowest unexplored nodes from busy ones. Those
+     * nodes have the largest subtrees, so steals are rare.
+     * 
+     * @return a new search task
+     */
+    public ForkJoinTask<Void> getNewTask() {
+        return new SearchTask(null, startNode);
+    }
+    
+    private class SearchTask extends CountedCompleter<Void> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final GameState<SolitaireMove, Board> node;
+        
+        /**
+         * The proof for the subtree of {@link #node}, which is this task and
+         * every task it forked.
+         */
+        private final Proof proof;
+        
+        public SearchTask(final CountedCompleter<?> parent, final GameState<SolitaireMove, Board> node) {
+            super(parent);
+            this.node = node;
+            this.proof = new Proof();
+        }
+        
+        @Override
+        public void compute() {
+            final Proof searched = new Proof();
+            GameState<SolitaireMove, Board> current = node;
+            while (current != null) {
+                if (cancelled.get()) {
+                    cancelledNodes.incrementAndGet();
+                    Proof.disprove(searched);
+                    break;
+                }
+                final List<GameState<SolitaireMove, Board>> newNodes = search(current, searched);
+                /*
+                 * Fork all but the last child, which is the first move found,
+                 * and keep going with that one in this thread. Forked tasks
+                 * are taken back in LIFO order, so this thread still visits
+                 * the children in the same order as the other search modes.
+                 */
+                final int last = newNodes.size() - 1;
+                for (int i = 0; i < last; i++ ) {
+                    addToPendingCount(1);
+                    new SearchTask(this, newNodes.get(i)).fork();
+                }
+                current = last < 0 ? null : newNodes.get(last);
+            }
+            // Forked tasks may already be adding their proofs.
+            proof.add(searched);
+            tryComplete();
+        }
+        
+        @Override
+        public void onCompletion(final CountedCompleter<?> caller) {
+            recordDeadEnd(node, proof);
+            final SearchTask parent = (SearchTask) getCompleter();
+            if (parent != null) {
+                parent.proof.add(proof);
+            }
+        }
+        
+    }
+    
     private class Worker implements Runnable {
         
         @Override
         public void run() {
-            do {
-                try {
-                    final GameState<SolitaireMove, Board> node = getNodeFromQueue();
-                    final Collection<GameState<SolitaireMove, Board>> newNodes = search(node);
-                    for (final GameState<SolitaireMove, Board> newNode : newNodes) {
-                        putNodeInQueue(newNode);
+            try {
+                while (true) {
+                    queuedNodes.acquire();
+                    if (isDone()) {
+                        queuedNodes.release();
+                        return;
+                    }
+                    final GameState<SolitaireMove, Board> node = pendingNodes.pop();
+                    try {
+                        if (cancelled.get()) {
+                            cancelledNodes.incrementAndGet();
+                        } else {
+                            final List<GameState<SolitaireMove, Board>> newNodes = search(node);
+                            if (cancelled.get()) {
+                                cancelledNodes.addAndGet(newNodes.size());
+                            } else {
+                                putNodesInQueue(newNodes);
+                            }
+                        }
+                    } finally {
+                        pendingNodes.release(node);
+                        finishNode();
                     }
-                } catch (final InterruptedException e) {
-//                    e.printStackTrace();
                 }
-            } while ( !pendingNodes.isEmpty());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
         
     }
     
-    private static final int NUM_THREADS = 8;
-    
-    public static void main(final String[] args) throws InterruptedException {
+    /**
+     * Searches a shuffled deck in parallel. The optional first argument is the
+     * number of threads, which defaults to the number of available
+     * processors. The optional second argument is the maximum depth, which
+     * defaults to unlimited.
+     */
+    public static void main(final String[] args) throws InterruptedException, ExecutionException {
+        final int numThreads;
+        if (args.length > 0) {
+            numThreads = Integer.parseInt(args[0]);
+        } else {
+            numThreads = Runtime.getRuntime().availableProcessors();
+        }
+        final int maxDepth;
+        if (args.length > 1) {
+            maxDepth = Integer.parseInt(args[1]);
+        } else {
+            maxDepth = UNLIMITED_DEPTH;
+        }
+        
         final ApplicationContext context = new AnnotationConfigApplicationContext(SearcherConfiguration.class);
         
         final List<Card> deck = context.getBean("deck", List.class);
@@ -198,27 +984,45 @@ public class Searcher implements Runnable {
         
         System.out.println(firstBoard);
         
-        final Searcher searcher = new Searcher(solitaire, startingNode);
-//        searcher.pendingNodes.putLast(startingNode);
-        searcher.pendingNodes.add(startingNode);
+        final TranspositionTable transpositionTable = context.getBean(TranspositionTable.class);
+        final Searcher searcher = new Searcher(solitaire, startingNode, transpositionTable);
+        searcher.setMaxDepth(maxDepth);
+        final DeadEndCache deadEndCache = context.getBean(DeadEndCache.class);
+        searcher.setDeadEndCache(deadEndCache);
         
 //        searcher.run();
-        final Collection<Thread> threads = new ArrayList<>(NUM_THREADS);
-        for (int i = 0; i < NUM_THREADS; i++ ) {
-            final Runnable worker = searcher.getNewWorker();
-            final Thread thread = new Thread(worker);
-            threads.add(thread);
-            thread.start();
-        }
+        final ForkJoinPool pool = new ForkJoinPool(numThreads);
+        final ForkJoinTask<Void> task = pool.submit(searcher.getNewTask());
         
         final NumberFormat formatter = NumberFormat.getIntegerInstance();
+        boolean done = false;
         do {
-            Thread.sleep(3000);
+            try {
+                task.get(3, TimeUnit.SECONDS);
+                done = true;
+            } catch (final TimeoutException e) {
+                // Still searching, so report progress.
+            }
             System.out.println();
             System.out.println("Number of solutions found: " + formatter.format(searcher.solutions.size()));
             System.out.println("Maximum tree depth searched: " + formatter.format(searcher.maxDepthSearched.get()));
-            System.out.println("Pending nodes to search: " + formatter.format(searcher.pendingNodes.size()));
+            System.out.println("Pending nodes to search: " + formatter.format(pool.getQueuedTaskCount()));
             System.out.println("Nodes searched: " + formatter.format(searcher.nodesSearched.get()));
+            System.out.println("Depth cutoffs: " + formatter.format(searcher.depthCutoffs.get()));
+            System.out.println("Bound cutoffs: " + formatter.format(searcher.boundCutoffs.get()));
+            System.out.println("Cancelled nodes: " + formatter.format(searcher.cancelledNodes.get()));
+            System.out.println("Cancelled moves: " + formatter.format(searcher.cancelledMoves.get()));
+            System.out.println("Transposition table hits: " + formatter.format(transpositionTable.getHits()));
+            System.out.println("Transposition table misses: " + formatter.format(transpositionTable.getMisses()));
+            System.out.println("Transposition table entries: " + formatter.format(transpositionTable.getSize())
+                    + " of " + formatter.format(transpositionTable.getCapacity()));
+            System.out.println("Dead end cache hits: " + formatter.format(deadEndCache.getHits()) + " ("
+                    + NumberFormat.getPercentInstance().format(deadEndCache.getHitRate()) + ")");
+            System.out.println("Nodes saved by dead end cache: " + formatter.format(deadEndCache.getNodesSaved()));
+            System.out.println("Dead end cache entries: " + formatter.format(deadEndCache.getSize()) + " of "
+                    + formatter.format(deadEndCache.getCapacity()));
+            System.out.println("Draw pile positions merged: "
+                    + formatter.format(searcher.drawPilePositionsMerged.get()));
 //            System.out.println("Cycles detected: " +
 //                    formatter.format(solitaire.cyclesDetected.get()));
 //            System.out.println("Draw advances coalesced: " +
@@ -227,11 +1031,9 @@ public class Searcher implements Runnable {
 //                    formatter.format(searcher.pileMoveAfterDrawAdvancePrune.get()));
 //            System.out.println("Repeated moves of the same pile pruned: " +
 //                    formatter.format(searcher.samePileMovedTwicePrune.get()));
-        } while ( !searcher.pendingNodes.isEmpty());
+        } while ( !done);
         
-        for (final Thread thread : threads) {
-            thread.interrupt();
-        }
+        pool.shutdown();
         
         System.out.println("Number of solutions found: " + formatter.format(searcher.solutions.size()));
         System.out.println();
@@ -243,7 +1045,10 @@ public class Searcher implements Runnable {
     
     private static void printSolution(final GameState<SolitaireMove, Board> node) {
         final LinkedNode<SolitaireMove> winningMoves = node.getMoves();
-        final List<SolitaireMove> copy = new ArrayList<>(winningMoves);
+        final List<SolitaireMove> copy = new ArrayList<>();
+        for (final SolitaireMove move : winningMoves) {
+            addSteps(copy, move);
+        }
         Collections.reverse(copy);
         int count = 0;
         synchronized (System.out) {
@@ -255,4 +1060,25 @@ public class Searcher implements Runnable {
         }
     }
     
+    /**
+     * Adds the moves a player would make for one move of a solution, last
+     * first, since the solution is read from the end. The cards played to the
+     * goal automatically and the flips through the draw pile are printed as
+     * moves of their own.
+     */
+    private static void addSteps(final List<SolitaireMove> copy, final SolitaireMove move) {
+        final List<SolitaireMove> steps;
+        if (move instanceof AutoPlayMove) {
+            steps = ((AutoPlayMove) move).getSteps();
+        } else if (move instanceof FlipAndDrawMove) {
+            steps = ((FlipAndDrawMove) move).getSteps();
+        } else {
+            copy.add(move);
+            return;
+        }
+        for (int i = steps.size() - 1; i >= 0; i-- ) {
+            addSteps(copy, steps.get(i));
+        }
+    }
+    
 }
@@ -35,9 +35,11 @@ import org.silnith.deck.Value;
 import org.silnith.game.Game;
 import org.silnith.game.GameState;
 import org.silnith.game.solitaire.move.AdvanceDrawPileMove;
+import org.silnith.game.solitaire.move.AutoPlayMove;
 import org.silnith.game.solitaire.move.DealMove;
 import org.silnith.game.solitaire.move.DrawToGoalMove;
 import org.silnith.game.solitaire.move.DrawToPileMove;
+import org.silnith.game.solitaire.move.FlipAndDrawMove;
 import org.silnith.game.solitaire.move.GoalToPileMove;
 import org.silnith.game.solitaire.move.PileToGoalMove;
 import org.silnith.game.solitaire.move.ResetDrawPileMove;
@@ -48,12 +50,28 @@ import org.silnith.util.LinkedNode;
 
 public class Solitaire implements Game<SolitaireMove, Board> {
     
+    /**
+     * For each way of swapping the two red suits, the two black suits, both,
+     * or neither, the identifier each card becomes.
+     */
+    private static final int[][] SUIT_SWAPS = suitSwaps();
+    
     private final int numberOfStacks;
     
     private int drawAdvance;
     
     private boolean returnRedundantMoves;
     
+    private MoveOrdering moveOrdering;
+    
+    private boolean autoPlaySafeMoves;
+    
+    private boolean flipAndDrawMoves;
+    
+    private boolean mergePilePermutations;
+    
+    private boolean mergeSuitSwaps;
+    
     private final BoardValidator boardValidator;
     
     private final AtomicLong cyclesDetected;
@@ -78,6 +96,11 @@ public class Solitaire implements Game<SolitaireMove, Board> {
         this.numberOfStacks = numberOfStacks;
         this.drawAdvance = 3;
         this.returnRedundantMoves = false;
+        this.moveOrdering = null;
+        this.autoPlaySafeMoves = false;
+        this.flipAndDrawMoves = false;
+        this.mergePilePermutations = false;
+        this.mergeSuitSwaps = false;
         this.boardValidator = boardValidator;
         
         this.cyclesDetected = new AtomicLong();
@@ -121,50 +144,144 @@ public class Solitaire implements Game<SolitaireMove, Board> {
     }
     
     /**
-     * Returns whether {@link #findAllMoves(Board)} will return more than one
-     * move that results in an equivalent game state. For example, if the game
-     * board allows a king to be moved to an empty pile and there is more than
-     * one empty pile, {@link #findAllMoves(Board)} will return a separate move
-     * for each empty pile if this is {@code true}. If this is {@code false},
-     * {@link #findAllMoves(Board)} will only return a single move representing
-     * the move of the king to an empty pile.
+     * Returns whether {@link #findAllMoves(ReadableBoard)} will return more
+     * than one move that results in an equivalent game state. For example, if
+     * the game board allows a king to be moved to an empty pile and there is
+     * more than one empty pile, {@link #findAllMoves(ReadableBoard)} will
+     * return a separate move for each empty pile if this is {@code true}. If
+     * this is {@code false}, {@link #findAllMoves(ReadableBoard)} will only
+     * return a single move representing the move of the king to an empty pile.
      * <p>
      * In less precise terms, this represents whether a human would consider
-     * moves returned by {@link #findAllMoves(Board)} to be redundant. For
-     * listing all possible legal moves that may be made, this should be set to
-     * {@code true}. For searching the game tree efficiently, this should be set
-     * to {@code false}.
+     * moves returned by {@link #findAllMoves(ReadableBoard)} to be redundant.
+     * For listing all possible legal moves that may be made, this should be set
+     * to {@code true}. For searching the game tree efficiently, this should be
+     * set to {@code false}.
      * 
-     * @return whether {@link #findAllMoves(Board)} will return more than one
-     *         move that can result in an equivalent game state
+     * @return whether {@link #findAllMoves(ReadableBoard)} will return more
+     *         than one move that can result in an equivalent game state
      */
     public boolean isReturnRedundantMoves() {
         return returnRedundantMoves;
     }
     
     /**
-     * Sets whether {@link #findAllMoves(Board)} will return more than one move
-     * that results in an equivalent game state. For example, if the game board
-     * allows a king to be moved to an empty pile and there is more than one
-     * empty pile, {@link #findAllMoves(Board)} will return a separate move for
-     * each empty pile if this is {@code true}. If this is {@code false},
-     * {@link #findAllMoves(Board)} will only return a single move representing
-     * the move of the king to an empty pile.
+     * Sets whether {@link #findAllMoves(ReadableBoard)} will return more than
+     * one move that results in an equivalent game state. For example, if the
+     * game board allows a king to be moved to an empty pile and there is more
+     * than one empty pile, {@link #findAllMoves(ReadableBoard)} will return a
+     * separate move for each empty pile if this is {@code true}. If this is
+     * {@code false}, {@link #findAllMoves(ReadableBoard)} will only return a
+     * single move representing the move of the king to an empty pile.
      * <p>
      * In less precise terms, this represents whether a human would consider
-     * moves returned by {@link #findAllMoves(Board)} to be redundant. For
-     * listing all possible legal moves that may be made, this should be set to
-     * {@code true}. For searching the game tree efficiently, this should be set
-     * to {@code false}.
+     * moves returned by {@link #findAllMoves(ReadableBoard)} to be redundant.
+     * For listing all possible legal moves that may be made, this should be set
+     * to {@code true}. For searching the game tree efficiently, this should be
+     * set to {@code false}.
      * 
-     * @param returnRedundantMoves whether {@link #findAllMoves(Board)} will
-     *        return more than one move that can result in an equivalent game
-     *        state
+     * @param returnRedundantMoves whether {@link #findAllMoves(ReadableBoard)}
+     *        will return more than one move that can result in an equivalent
+     *        game state
      */
     public void setReturnRedundantMoves(final boolean returnRedundantMoves) {
         this.returnRedundantMoves = returnRedundantMoves;
     }
     
+    public MoveOrdering getMoveOrdering() {
+        return moveOrdering;
+    }
+    
+    /**
+     * Sets the ranking used to order the moves returned by
+     * {@link #findAllMoves(ReadableBoard)}. Without one, the moves are
+     * returned in the order they are found: drawing a card, then moves from
+     * each pile, then advancing or resetting the draw pile, or with
+     * {@link #setFlipAndDrawMoves(boolean) flip and draw moves} drawing the
+     * cards deeper in the draw pile.
+     * 
+     * @param moveOrdering the ranking of moves, or {@code null} to keep the
+     *        order in which they are found
+     */
+    public void setMoveOrdering(final MoveOrdering moveOrdering) {
+        this.moveOrdering = moveOrdering;
+    }
+    
+    public boolean isAutoPlaySafeMoves() {
+        return autoPlaySafeMoves;
+    }
+    
+    /**
+     * Sets whether each move returned by {@link #findAllMoves(ReadableBoard)}
+     * plays every card it makes safe to put in the goal, as one
+     * {@link AutoPlayMove}. The search then never tries the other orders of
+     * playing those cards, nor taking back a card from the goal that no card
+     * left on the piles could ever need.
+     * 
+     * @param autoPlaySafeMoves whether to play safe cards to the goal as part
+     *        of the move that frees them
+     */
+    public void setAutoPlaySafeMoves(final boolean autoPlaySafeMoves) {
+        this.autoPlaySafeMoves = autoPlaySafeMoves;
+    }
+    
+    public boolean isFlipAndDrawMoves() {
+        return flipAndDrawMoves;
+    }
+    
+    /**
+     * Sets whether {@link #findAllMoves(ReadableBoard)} plays every card that
+     * flipping through the draw pile can reach, each as one
+     * {@link FlipAndDrawMove}, instead of returning moves that advance or
+     * reset the draw pile. Flipping changes nothing but which card can be
+     * played, so no solution is lost, and each solution is shorter by every
+     * flip it made.
+     * 
+     * @param flipAndDrawMoves whether to flip through the draw pile as part
+     *        of the move that plays a card from it
+     */
+    public void setFlipAndDrawMoves(final boolean flipAndDrawMoves) {
+        this.flipAndDrawMoves = flipAndDrawMoves;
+    }
+    
+    public boolean isMergePilePermutations() {
+        return mergePilePermutations;
+    }
+    
+    /**
+     * Sets whether {@link #getFingerprint(ReadableBoard)} gives the same
+     * fingerprint to boards that hold the same piles in a different order.
+     * Every move from one has a move from the other that differs only in the
+     * pile indices, so one is won exactly when the other is. The search still
+     * makes its moves on the real board, so the moves of a solution need no
+     * translating.
+     * 
+     * @param mergePilePermutations whether to ignore the order of the piles
+     *        when fingerprinting a board
+     */
+    public void setMergePilePermutations(final boolean mergePilePermutations) {
+        this.mergePilePermutations = mergePilePermutations;
+    }
+    
+    public boolean isMergeSuitSwaps() {
+        return mergeSuitSwaps;
+    }
+    
+    /**
+     * Sets whether {@link #getFingerprint(ReadableBoard)} gives the same
+     * fingerprint to boards that differ only by swapping the two suits of one
+     * color, or of both colors, everywhere. Which card can go on which
+     * depends only on color and rank, so every move from one board has a
+     * move of the swapped cards from the other, and one is won exactly when
+     * the other is.
+     * 
+     * @param mergeSuitSwaps whether to ignore swaps of suits of the same
+     *        color when fingerprinting a board
+     */
+    public void setMergeSuitSwaps(final boolean mergeSuitSwaps) {
+        this.mergeSuitSwaps = mergeSuitSwaps;
+    }
+    
     public long getCyclesDetected() {
         return cyclesDetected.get();
     }
@@ -388,8 +505,31 @@ public class Solitaire implements Game<SolitaireMove, Board> {
             return cardToAdd.getValue() == Value.KING;
         }
         
-        final Card topCard = pile.getTopCard();
+        return canStackOn(cardToAdd, pile.getTopCard());
+    }
+        
+    /**
+     * Returns whether the given card can be added to a pile of the given
+     * board.
+     * 
+     * @param card the card to potentially put on the pile
+     * @param board the board
+     * @param pile the index of the pile that is to receive the card
+     * @return whether this is a legal move
+     */
+    protected boolean canAddToPile(final Card card, final ReadableBoard board, final int pile) {
+        final int size = board.getNumberOfFaceUpCards(pile);
+        if (size == 0) {
+            return card.getValue() == Value.KING;
+        }
         
+        return canStackOn(card, board.getFaceUpCard(pile, size - 1));
+    }
+    
+    /**
+     * Returns whether a card may be put on top of another card in a pile.
+     */
+    private boolean canStackOn(final Card cardToAdd, final Card topCard) {
         if (topCard.getSuit().getColor() != cardToAdd.getSuit().getColor()
                 && topCard.getValue().getValue() == 1 + cardToAdd.getValue().getValue()) {
             return true;
@@ -402,39 +542,23 @@ public class Solitaire implements Game<SolitaireMove, Board> {
      * Returns the top card in the goal for the given suit.
      * 
      * @param suit the suit to check
-     * @param goal the goal
+     * @param board the board holding the goal
      * @return the top card from the goal for {@code suit}
      */
-    protected Card getTopOfGoal(final Suit suit, final Map<Suit, List<Card>> goal) {
-        final List<Card> goalForSuit = goal.get(suit);
-        
-        final Card topOfGoal = goalForSuit.get(goalForSuit.size() - 1);
-        
-        return topOfGoal;
+    protected Card getTopOfGoal(final Suit suit, final ReadableBoard board) {
+        return CardIds.getCard(suit, board.getGoalHeight(suit) - 1);
     }
     
     /**
      * Returns whether the given card can be added to the goal.
      * 
      * @param card the card to add to the goal
-     * @param goal the goal
+     * @param board the board holding the goal
      * @return whether this is a legal move
      */
-    protected boolean canAddToGoal(final Card card, final Map<Suit, List<Card>> goal) {
-        final Suit suit = card.getSuit();
-        final List<Card> goalForSuit = goal.get(suit);
-        
-        if (goalForSuit.isEmpty()) {
-            return card.getValue() == Value.ACE;
-        }
-        
-        final Card topOfGoal = goalForSuit.get(goalForSuit.size() - 1);
-        
-        if (card.getValue().getValue() == 1 + topOfGoal.getValue().getValue()) {
-            return true;
-        } else {
-            return false;
-        }
+    protected boolean canAddToGoal(final Card card, final ReadableBoard board) {
+        // The goal for a suit holding n cards runs from the ace up to rank n.
+        return card.getValue().getValue() == 1 + board.getGoalHeight(card.getSuit());
     }
     
     /**
@@ -442,28 +566,18 @@ public class Solitaire implements Game<SolitaireMove, Board> {
      * on top of the given card.
      * 
      * @param suit the suit in the goal from which to draw
-     * @param goal the goal
+     * @param board the board holding the goal
      * @param card the card to stack on
      * @return whether this is a legal move
      */
-    protected boolean canTakeFromGoal(final Suit suit, final Map<Suit, List<Card>> goal, final Card card) {
+    protected boolean canTakeFromGoal(final Suit suit, final ReadableBoard board, final Card card) {
         if (card.getSuit().getColor() == suit.getColor()) {
             return false;
         }
         
-        final List<Card> goalForSuit = goal.get(suit);
-        
-        if (goalForSuit.isEmpty()) {
-            return false;
-        }
+        final int height = board.getGoalHeight(suit);
         
-        final Card topOfGoal = goalForSuit.get(goalForSuit.size() - 1);
-        
-        if (card.getValue().getValue() - 1 == topOfGoal.getValue().getValue()) {
-            return true;
-        } else {
-            return false;
-        }
+        return height > 0 && card.getValue().getValue() - 1 == height;
     }
     
     /**
@@ -475,14 +589,211 @@ public class Solitaire implements Game<SolitaireMove, Board> {
      */
     @Override
     public boolean isWin(final Board currentBoard) {
-        final Map<Suit, List<Card>> goal = currentBoard.getGoal();
-        for (final Suit suit : Suit.values()) {
-            final List<Card> goalForSuit = goal.get(suit);
-            if (goalForSuit.size() != Value.values().length) {
-                return false;
+        return currentBoard.isGoalComplete();
+    }
+    
+    /**
+     * Returns whether the given board is a game of solitaire that has been won.
+     * 
+     * @param currentBoard the board to check
+     * @return {@code true} if all the cards in the given board have been moved
+     *         to the goal
+     */
+    public boolean isWin(final ReadableBoard currentBoard) {
+        return currentBoard.isGoalComplete();
+    }
+    
+    /**
+     * Returns the number of moves made to reach a node, counted the way a
+     * player would make them. With {@link #setAutoPlaySafeMoves(boolean)
+     * auto-play}, each card an {@link AutoPlayMove} plays to the goal counts
+     * as a move of its own, so that lengths can be compared with a lower bound
+     * that needs one move per card.
+     * 
+     * @param node the node
+     * @return the number of moves made to reach the node
+     */
+    public int getLength(final GameState<SolitaireMove, Board> node) {
+        int length = node.getMoves().size();
+        if (autoPlaySafeMoves) {
+            for (final SolitaireMove move : node.getMoves()) {
+                if (move instanceof AutoPlayMove) {
+                    length += ((AutoPlayMove) move).getSafeMoves().size();
+                }
             }
         }
-        return true;
+        return length;
+    }
+    
+    /**
+     * Returns whether {@link #getFingerprint(ReadableBoard)} gives a board the
+     * fingerprint it would have with nothing flipped from the draw pile. This
+     * is only done with {@link #setFlipAndDrawMoves(boolean) flip and draw
+     * moves}, for a draw index that flipping from the beginning stops at.
+     * 
+     * @param board the board
+     * @return {@code true} if the draw index of the board is merged with the
+     *         beginning of the draw pile
+     */
+    public boolean isDrawIndexMerged(final ReadableBoard board) {
+        final int drawIndex = board.getDrawIndex();
+        return flipAndDrawMoves && drawIndex > 0
+                && (drawIndex % drawAdvance == 0 || drawIndex == board.getDrawPileSize());
+    }
+    
+    /**
+     * Returns the fingerprint searches should store for a board. Boards with
+     * the same fingerprint can reach the same boards, so a search needs only
+     * visit one of them.
+     * <p>
+     * With {@link #setFlipAndDrawMoves(boolean) flip and draw moves}, every
+     * draw index that flipping from the beginning of the draw pile stops at
+     * can reach every other by flipping and resetting, so the same cards can
+     * be played from all of them. Those boards are given the fingerprint of
+     * the board with nothing flipped. A draw index left between two of those
+     * stops, by taking a card from the draw pile, cannot be reached again and
+     * is kept. Without flip and draw moves, the draw index decides which
+     * card can be played next, and is kept.
+     * <p>
+     * With {@link #setMergePilePermutations(boolean) pile permutations
+     * merged}, the bottom card of each pile is fingerprinted as resting on
+     * the same base whatever pile it is in. Every other card is fingerprinted
+     * by the card it rests on, so the fingerprint is then the same for every
+     * order of the piles, as if they were sorted.
+     * <p>
+     * With {@link #setMergeSuitSwaps(boolean) suit swaps merged}, the board
+     * is fingerprinted as it is and with each swap of the suits of one color,
+     * and the least of the four fingerprints is kept.
+     * 
+     * @param board the board
+     * @return the fingerprint of the board, as far as a search is concerned
+     */
+    public long getFingerprint(final ReadableBoard board) {
+        if ((mergePilePermutations || mergeSuitSwaps) && board instanceof Board) {
+            final Board searchBoard = (Board) board;
+            final int options = getFingerprintOptions();
+            final Board.SearchFingerprint cached = searchBoard.getSearchFingerprint();
+            if (cached != null && cached.getOptions() == options) {
+                return cached.getFingerprint();
+            }
+            final long fingerprint = computeFingerprint(board);
+            searchBoard.setSearchFingerprint(new Board.SearchFingerprint(options, fingerprint));
+            return fingerprint;
+        }
+        return computeFingerprint(board);
+    }
+    
+    /**
+     * Returns the options that {@link #getFingerprint(ReadableBoard)} depends
+     * on, packed into an {@code int}, so that a fingerprint kept with a board
+     * is not used once they change.
+     */
+    private int getFingerprintOptions() {
+        return (flipAndDrawMoves ? drawAdvance : 0) << 2 | (mergeSuitSwaps ? 2 : 0) | (mergePilePermutations ? 1 : 0);
+    }
+    
+    private long computeFingerprint(final ReadableBoard board) {
+        long fingerprint = board.getFingerprint();
+        int drawIndex = board.getDrawIndex();
+        if (isDrawIndexMerged(board)) {
+            fingerprint ^= Zobrist.drawIndex(drawIndex) ^ Zobrist.drawIndex(0);
+            drawIndex = 0;
+        }
+        if (mergeSuitSwaps) {
+            return getFingerprintOverSuitSwaps(board, drawIndex);
+        }
+        if (mergePilePermutations) {
+            final int numberOfPiles = board.getNumberOfPiles();
+            for (int i = 0; i < numberOfPiles; i++ ) {
+                final Card bottom;
+                if (board.getNumberOfFaceDownCards(i) > 0) {
+                    bottom = board.getFaceDownCard(i, 0);
+                } else if (board.getNumberOfFaceUpCards(i) > 0) {
+                    bottom = board.getFaceUpCard(i, 0);
+                } else {
+                    continue;
+                }
+                final int card = CardIds.getId(bottom);
+                fingerprint ^= Zobrist.onPile(card, Zobrist.pileBase(i)) ^ Zobrist.onPile(card, Zobrist.ANY_PILE_BASE);
+            }
+        }
+        return fingerprint;
+    }
+    
+    /**
+     * Computes the fingerprint of the board once for each swap of suits, the
+     * same way {@link Board} does but with every card replaced, and returns
+     * the least.
+     */
+    private long getFingerprintOverSuitSwaps(final ReadableBoard board, final int drawIndex) {
+        final int numberOfPiles = board.getNumberOfPiles();
+        final int[] faceDown = new int[numberOfPiles];
+        final int[] pileSize = new int[numberOfPiles];
+        final int drawPileSize = board.getDrawPileSize();
+        // The cards of each pile from the bottom up, then the draw pile.
+        final int[] cards = new int[CardIds.NUMBER_OF_CARDS];
+        int count = 0;
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            faceDown[i] = board.getNumberOfFaceDownCards(i);
+            pileSize[i] = faceDown[i] + board.getNumberOfFaceUpCards(i);
+            for (int j = 0; j < faceDown[i]; j++ ) {
+                cards[count++ ] = CardIds.getId(board.getFaceDownCard(i, j));
+            }
+            for (int j = faceDown[i]; j < pileSize[i]; j++ ) {
+                cards[count++ ] = CardIds.getId(board.getFaceUpCard(i, j - faceDown[i]));
+            }
+        }
+        for (int i = 0; i < drawPileSize; i++ ) {
+            cards[count++ ] = CardIds.getId(board.getDrawPileCard(i));
+        }
+        
+        long minimum = Long.MAX_VALUE;
+        for (final int[] swap : SUIT_SWAPS) {
+            long hash = Zobrist.drawIndex(drawIndex);
+            int k = 0;
+            for (int i = 0; i < numberOfPiles; i++ ) {
+                int below = mergePilePermutations ? Zobrist.ANY_PILE_BASE : Zobrist.pileBase(i);
+                for (int j = 0; j < pileSize[i]; j++ ) {
+                    final int card = swap[cards[k++ ]];
+                    hash ^= Zobrist.onPile(card, below);
+                    if (j < faceDown[i]) {
+                        hash ^= Zobrist.faceDown(card);
+                    }
+                    below = card;
+                }
+            }
+            int previous = Zobrist.DRAW_PILE_BASE;
+            for (int i = 0; i < drawPileSize; i++ ) {
+                final int card = swap[cards[k++ ]];
+                hash ^= Zobrist.inDrawPile(card, previous);
+                previous = card;
+            }
+            minimum = Math.min(minimum, hash);
+        }
+        return minimum;
+    }
+    
+    private static int[][] suitSwaps() {
+        final Suit[] suits = Suit.values();
+        final int[][] swaps = new int[4][CardIds.NUMBER_OF_CARDS];
+        for (int swap = 0; swap < swaps.length; swap++ ) {
+            for (final Suit suit : suits) {
+                // The first bit swaps the red suits, the second the black.
+                final boolean swapped = (swap & (suit.getColor() == HEART.getColor() ? 1 : 2)) != 0;
+                Suit image = suit;
+                if (swapped) {
+                    for (final Suit other : suits) {
+                        if (other != suit && other.getColor() == suit.getColor()) {
+                            image = other;
+                        }
+                    }
+                }
+                for (int rank = 0; rank < Value.values().length; rank++ ) {
+                    swaps[swap][CardIds.getId(suit, rank)] = CardIds.getId(image, rank);
+                }
+            }
+        }
+        return swaps;
     }
     
     /**
@@ -505,62 +816,40 @@ public class Solitaire implements Game<SolitaireMove, Board> {
      * returned collection of moves will contain redundant possibilities if
      * {@link #isReturnRedundantMoves()} is set to {@code true}. Note that
      * redundant moves will not be identical, but some set of moves may result
-     * in virtually equivalent board states.
+     * in virtually equivalent board states. If there is a
+     * {@link #setMoveOrdering(MoveOrdering) move ordering}, the most promising
+     * moves come first.
      * 
      * @param currentBoard the board to search for legal moves
      * @return a collection of legal moves for the given board
      */
-    public Collection<SolitaireMove> findAllMoves(final Board currentBoard) {
-        final Collection<SolitaireMove> moves = new ArrayList<>();
+    public List<SolitaireMove> findAllMoves(final ReadableBoard currentBoard) {
+        final List<SolitaireMove> moves = new ArrayList<>();
         
-        final Map<Suit, List<Card>> goal = currentBoard.getGoal();
         int minGoalStack = 0;
-        for (final List<Card> goalForSuit : goal.values()) {
-            minGoalStack = Math.max(minGoalStack, goalForSuit.size());
+        for (final Suit suit : Suit.values()) {
+            minGoalStack = Math.max(minGoalStack, currentBoard.getGoalHeight(suit));
         }
-        final List<Pile> piles = currentBoard.getPiles();
+        final int numberOfPiles = currentBoard.getNumberOfPiles();
         /*
          * Check whether we can draw a card.
          */
         final int drawIndex = currentBoard.getDrawIndex();
         if (drawIndex > 0) {
-            final Card card = currentBoard.getDrawCard();
-            // Can we draw it directly to the goal?
-            if (canAddToGoal(card, goal)) {
-                moves.add(new DrawToGoalMove(drawIndex, card));
-            }
-            /*
-             * If all the goal stacks are up to 4, then there is no reason to
-             * keep any card 6 or lower on the board.
-             */
-            if (returnRedundantMoves || card.getValue().getValue() > minGoalStack + 2) {
-                // Can we draw it to one of the piles?
-                final boolean isKing = card.getValue() == Value.KING;
-                for (int i = 0; i < piles.size(); i++ ) {
-                    if (canAddToPile(card, piles.get(i))) {
-                        moves.add(new DrawToPileMove(drawIndex, i, card));
-                        if (isKing && !returnRedundantMoves) {
-                            // If it is a King, we should only create one move.
-                            break;
-                        }
-                    }
-                }
-            }
+            addDrawMoves(moves, currentBoard, drawIndex, minGoalStack, false, 0);
         }
-        for (int i = 0; i < piles.size(); i++ ) {
-            final Pile sourcePile = piles.get(i);
-            if ( !sourcePile.hasFaceUpCards()) {
-                assert !sourcePile.hasFaceDownCards();
+        for (int i = 0; i < numberOfPiles; i++ ) {
+            final int size = currentBoard.getNumberOfFaceUpCards(i);
+            if (size == 0) {
+                assert currentBoard.getNumberOfFaceDownCards(i) == 0;
                 continue;
             }
-            final List<Card> sourceFaceUpCards = sourcePile.getFaceUpCards();
-            final int size = sourceFaceUpCards.size();
-            final Card sourceTopCard = sourceFaceUpCards.get(size - 1);
+            final Card sourceTopCard = currentBoard.getFaceUpCard(i, size - 1);
             
             /*
              * Check whether we can move a card from a pile to the goal.
              */
-            if (canAddToGoal(sourceTopCard, goal)) {
+            if (canAddToGoal(sourceTopCard, currentBoard)) {
                 moves.add(new PileToGoalMove(i, sourceTopCard));
             }
             
@@ -568,12 +857,15 @@ public class Solitaire implements Game<SolitaireMove, Board> {
              * Check whether we can move a card from the goal to a pile.
              */
             for (final Suit suit : Suit.values()) {
-                if (canTakeFromGoal(suit, goal, sourceTopCard)) {
-                    moves.add(new GoalToPileMove(i, getTopOfGoal(suit, goal)));
+                if (canTakeFromGoal(suit, currentBoard, sourceTopCard)) {
+                    final Card goalCard = getTopOfGoal(suit, currentBoard);
+                    if ( !autoPlaySafeMoves || !isNeverNeededBack(goalCard, currentBoard)) {
+                        moves.add(new GoalToPileMove(i, goalCard));
+                    }
                 }
             }
             
-            final Card sourceBottomCard = sourceFaceUpCards.get(0);
+            final Card sourceBottomCard = currentBoard.getFaceUpCard(i, 0);
             final int min = sourceTopCard.getValue().getValue();
             final int max = sourceBottomCard.getValue().getValue();
             
@@ -590,37 +882,37 @@ public class Solitaire implements Game<SolitaireMove, Board> {
             /*
              * Check whether we can move cards from one pile to another pile.
              */
-            for (int j = 0; j < piles.size(); j++ ) {
+            for (int j = 0; j < numberOfPiles; j++ ) {
                 if (i == j) {
                     continue;
                 }
                 
                 // check if we can move cards from stack i to stack j
-                final Pile destinationPile = piles.get(j);
-                if ( !destinationPile.hasFaceUpCards()) {
+                final int destinationSize = currentBoard.getNumberOfFaceUpCards(j);
+                if (destinationSize == 0) {
                     // can only move a King here
-                    assert !destinationPile.hasFaceDownCards();
+                    assert currentBoard.getNumberOfFaceDownCards(j) == 0;
                     
-                    if ( !sourcePile.hasFaceDownCards() && !returnRedundantMoves) {
+                    if (currentBoard.getNumberOfFaceDownCards(i) == 0 && !returnRedundantMoves) {
                         // No reason to move a King when it is not on top of
                         // another card.
                         continue;
                     }
                     
                     if (sourceBottomCard.getValue() == Value.KING) {
-                        moves.add(new StackMove(i, j, size, sourceFaceUpCards));
+                        moves.add(new StackMove(i, j, size, currentBoard.getTopCards(i, size)));
                     }
                 } else {
                     // destination has cards already, can only move source
                     // card(s) that are lower value and of the right color
-                    final Card destinationTopCard = destinationPile.getTopCard();
+                    final Card destinationTopCard = currentBoard.getFaceUpCard(j, destinationSize - 1);
                     final Value destinationValue = destinationTopCard.getValue();
                     final int targetValue = destinationValue.getValue() - 1;
                     
                     if (min <= targetValue && max >= targetValue) {
                         final int numCards = targetValue - min + 1;
                         
-                        final List<Card> stackToMove = sourcePile.getTopCards(numCards);
+                        final List<Card> stackToMove = currentBoard.getTopCards(i, numCards);
                         
                         final Suit destinationSuit = destinationTopCard.getSuit();
                         final Suit suitToMove = stackToMove.get(0).getSuit();
@@ -634,16 +926,120 @@ public class Solitaire implements Game<SolitaireMove, Board> {
         /*
          * Try to flip through the draw pile.
          */
-        if (currentBoard.canFlipMoreDrawPileCards()) {
+        if (flipAndDrawMoves) {
+            addFlipAndDrawMoves(moves, currentBoard, minGoalStack);
+        } else if (currentBoard.canFlipMoreDrawPileCards()) {
             moves.add(new AdvanceDrawPileMove(drawIndex, drawAdvance));
         } else {
             if (currentBoard.canResetDrawPile()) {
                 moves.add(new ResetDrawPileMove(drawIndex));
             }
         }
+        if (autoPlaySafeMoves) {
+            for (int i = 0; i < moves.size(); i++ ) {
+                moves.set(i, AutoPlayMove.after(currentBoard, moves.get(i)));
+            }
+        }
+        if (moveOrdering != null) {
+            sortMoves(currentBoard, moves);
+        }
         return moves;
     }
     
+    /**
+     * Adds the moves of the draw pile card at the given draw index, after the
+     * given number of flips to bring it to the top.
+     */
+    private void addDrawMoves(final List<SolitaireMove> moves, final ReadableBoard currentBoard, final int index,
+            final int minGoalStack, final boolean reset, final int flips) {
+        final Card card = currentBoard.getDrawPileCard(index - 1);
+        // Can we draw it directly to the goal?
+        if (canAddToGoal(card, currentBoard)) {
+            moves.add(afterFlips(currentBoard, reset, flips, new DrawToGoalMove(index, card)));
+        }
+        /*
+         * If all the goal stacks are up to 4, then there is no reason to keep
+         * any card 6 or lower on the board.
+         */
+        if (returnRedundantMoves || card.getValue().getValue() > minGoalStack + 2) {
+            // Can we draw it to one of the piles?
+            final boolean isKing = card.getValue() == Value.KING;
+            final int numberOfPiles = currentBoard.getNumberOfPiles();
+            for (int i = 0; i < numberOfPiles; i++ ) {
+                if (canAddToPile(card, currentBoard, i)) {
+                    moves.add(afterFlips(currentBoard, reset, flips, new DrawToPileMove(index, i, card)));
+                    if (isKing && !returnRedundantMoves) {
+                        // If it is a King, we should only create one move.
+                        break;
+                    }
+                }
+            }
+        }
+    }
+    
+    private SolitaireMove afterFlips(final ReadableBoard currentBoard, final boolean reset, final int flips,
+            final SolitaireMove draw) {
+        if (flips == 0) {
+            return draw;
+        }
+        return new FlipAndDrawMove(currentBoard.getDrawIndex(), currentBoard.getDrawPileSize(), reset, flips, draw);
+    }
+    
+    /**
+     * Adds the moves of every other card that flipping through the draw pile
+     * brings to the top. Those are every {@link #drawAdvance} cards after the
+     * draw index and the last card, then after a reset every
+     * {@link #drawAdvance} cards from the beginning and the last card again.
+     * Each card is played after the fewest flips that reach it.
+     */
+    private void addFlipAndDrawMoves(final List<SolitaireMove> moves, final ReadableBoard currentBoard,
+            final int minGoalStack) {
+        final int drawIndex = currentBoard.getDrawIndex();
+        final int drawPileSize = currentBoard.getDrawPileSize();
+        int flips = 0;
+        int index = drawIndex;
+        while (index < drawPileSize) {
+            index = Math.min(index + drawAdvance, drawPileSize);
+            flips++ ;
+            addDrawMoves(moves, currentBoard, index, minGoalStack, false, flips);
+        }
+        if (drawIndex == 0) {
+            // Nothing is flipped, so a reset would reach nothing new.
+            return;
+        }
+        // The reset.
+        flips++ ;
+        index = 0;
+        while (index < drawPileSize) {
+            index = Math.min(index + drawAdvance, drawPileSize);
+            flips++ ;
+            final boolean reachedWithoutReset = index == drawIndex
+                    || index > drawIndex && ((index - drawIndex) % drawAdvance == 0 || index == drawPileSize);
+            if ( !reachedWithoutReset) {
+                addDrawMoves(moves, currentBoard, index, minGoalStack, true, flips);
+            }
+        }
+    }
+    
+    /**
+     * Sorts moves by the move ordering, highest score first, keeping the order
+     * of moves with the same score. There are rarely more than a couple dozen
+     * moves, so an insertion sort that scores each move as it is compared
+     * costs less than allocating an array of scores.
+     */
+    private void sortMoves(final ReadableBoard currentBoard, final List<SolitaireMove> moves) {
+        for (int i = 1; i < moves.size(); i++ ) {
+            final SolitaireMove move = moves.get(i);
+            final int score = moveOrdering.score(currentBoard, move);
+            int j = i - 1;
+            while (j >= 0 && moveOrdering.score(currentBoard, moves.get(j)) < score) {
+                moves.set(j + 1, moves.get(j));
+                j-- ;
+            }
+            moves.set(j + 1, move);
+        }
+    }
+    
     @Override
     public GameState<SolitaireMove, Board> pruneGameState(final GameState<SolitaireMove, Board> state) {
         final SolitaireMove possibleMove = state.getMoves().getFirst();
@@ -657,22 +1053,7 @@ public class Solitaire implements Game<SolitaireMove, Board> {
             return null;
         }
         final SolitaireMove currentMove = pastMoves.getFirst();
-        /*
-         * If two consecutive moves are moving the same stack of cards, they are
-         * redundant and the second may be pruned.
-         */
-        if (currentMove.hasCards() && possibleMove.hasCards()
-                && currentMove.getCards().equals(possibleMove.getCards())) {
-            samePileMovedTwicePrune.incrementAndGet();
-            return null;
-        }
-        /*
-         * Attempt to prune the search space by only allowing moves that
-         * interact with the draw pile if the previous move changed the draw
-         * index.
-         */
-        if (shouldPruneDueToStackMoveAfterDrawAdvance(currentMove, possibleMove)) {
-            pileMoveAfterDrawAdvancePrune.incrementAndGet();
+        if (isPrunedAfter(currentMove, possibleMove)) {
             return null;
         }
         /*
@@ -694,14 +1075,86 @@ public class Solitaire implements Game<SolitaireMove, Board> {
         return state;
     }
     
+    /**
+     * Returns whether a move need not be searched because of the move made
+     * just before it. This applies the pruning rules of
+     * {@link #pruneGameState(GameState)} that only look at the moves, for
+     * searches that do not keep a {@link GameState} for every node.
+     * 
+     * @param currentMove the last move made
+     * @param possibleMove the move that might be made next
+     * @return {@code true} if {@code possibleMove} should not be searched
+     */
+    public boolean isPrunedAfter(final SolitaireMove currentMove, final SolitaireMove possibleMove) {
+        /*
+         * If two consecutive moves are moving the same stack of cards, they are
+         * redundant and the second may be pruned. Not so if the first played
+         * cards to the goal, since that may have opened the place the stack
+         * moves to next.
+         */
+        if ( !(currentMove instanceof AutoPlayMove) && currentMove.hasCards() && possibleMove.hasCards()
+                && currentMove.getCards().equals(possibleMove.getCards())) {
+            samePileMovedTwicePrune.incrementAndGet();
+            return true;
+        }
+        /*
+         * Attempt to prune the search space by only allowing moves that
+         * interact with the draw pile if the previous move changed the draw
+         * index.
+         */
+        if (shouldPruneDueToStackMoveAfterDrawAdvance(currentMove, possibleMove)) {
+            pileMoveAfterDrawAdvancePrune.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Returns whether a card in the goal can never be of use on the piles
+     * again, so that taking it back gains nothing. A card taken back can only
+     * hold a card of the other color one lower. Once the card is safe, those
+     * are all in the goal, and could only come back to hold the cards of this
+     * color two lower. If both goals of this color hold those as well, every
+     * card further down the chain is in the goal too.
+     */
+    private static boolean isNeverNeededBack(final Card card, final ReadableBoard board) {
+        if ( !AutoPlayMove.isSafe(card, board)) {
+            return false;
+        }
+        final Suit cardSuit = card.getSuit();
+        final int value = card.getValue().getValue();
+        for (final Suit suit : Suit.values()) {
+            if (suit.getColor() == cardSuit.getColor() && board.getGoalHeight(suit) < value - 2) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     private boolean searchTreeHasCycle(final LinkedNode<Board> pastBoards, final Board possibleBoard) {
-        return pastBoards.contains(possibleBoard);
+        if ( !mergePilePermutations && !mergeSuitSwaps) {
+            return pastBoards.contains(possibleBoard);
+        }
+        /*
+         * Coming back to the same piles in another order, or with suits
+         * swapped, is a cycle too. The fingerprint of each board on the path
+         * was kept when the board was made.
+         */
+        final long fingerprint = getFingerprint(possibleBoard);
+        for (final Board pastBoard : pastBoards) {
+            if (getFingerprint(pastBoard) == fingerprint) {
+                return true;
+            }
+        }
+        return false;
     }
     
     private boolean shouldPruneDueToStackMoveAfterDrawAdvance(final SolitaireMove currentMove,
             final SolitaireMove possibleMove) {
         if (currentMove instanceof AdvanceDrawPileMove || currentMove instanceof ResetDrawPileMove) {
-            if (possibleMove instanceof StackMove || possibleMove instanceof PileToGoalMove) {
+            final SolitaireMove chosenMove =
+                    possibleMove instanceof AutoPlayMove ? ((AutoPlayMove) possibleMove).getMove() : possibleMove;
+            if (chosenMove instanceof StackMove || chosenMove instanceof PileToGoalMove) {
                 return true;
             }
         }
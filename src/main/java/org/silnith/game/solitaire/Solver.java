@@ -4,13 +4,14 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.silnith.deck.Card;
 import org.silnith.game.GameState;
-import org.silnith.game.ai.Searcher;
 import org.silnith.game.solitaire.config.SearcherConfiguration;
 import org.silnith.game.solitaire.move.DealMove;
 import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.search.TranspositionTable;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 
@@ -26,9 +27,12 @@ public class Solver {
             final GameState<SolitaireMove, Board> initialState =
                     new GameState<SolitaireMove, Board>(dealMove, initialBoard);
                     
-            final Searcher<SolitaireMove, Board> searcher = new Searcher<>(solitaire, initialState);
-            
-            final int numThreads = 8;
+            final Searcher searcher =
+                    new Searcher(solitaire, initialState, context.getBean(TranspositionTable.class));
+            // One winning line is enough, so stop every worker once it is found.
+            searcher.setStopOnFirstSolution(true);
+                    
+            final int numThreads = Runtime.getRuntime().availableProcessors();
             final Collection<Thread> threads = new ArrayList<>(numThreads);
             for (int i = 0; i < numThreads; i++ ) {
                 final Runnable worker = searcher.getNewWorker();
@@ -38,8 +42,7 @@ public class Solver {
             }
             
             final NumberFormat formatter = NumberFormat.getIntegerInstance();
-            do {
-                Thread.sleep(3000);
+            while ( !searcher.awaitCompletion(3, TimeUnit.SECONDS)) {
                 System.out.println();
                 System.out.println();
                 System.out.println("Number of solutions found: " + formatter.format(searcher.getSolutions().size()));
@@ -55,12 +58,17 @@ public class Solver {
                         + formatter.format(solitaire.getPileMoveAfterDrawAdvancesPruned()));
                 System.out.println("Repeat moves of the same pile pruned: "
                         + formatter.format(solitaire.getSamePileMovedTwicePrunes()));
-            } while ( !searcher.isDone());
+            }
             
+            // The workers return on their own once the search is complete or cancelled.
             for (final Thread thread : threads) {
-                thread.interrupt();
+                thread.join();
             }
             
+            System.out.println();
+            System.out.println("Nodes searched: " + formatter.format(searcher.getNodesSearched()));
+            System.out.println("Cancelled nodes: " + formatter.format(searcher.getCancelledNodes()));
+            System.out.println("Cancelled moves: " + formatter.format(searcher.getCancelledMoves()));
             System.out.println(searcher.getSolutions());
         }
     }
@@ -0,0 +1,136 @@
+package org.silnith.game.solitaire;
+
+/**
+ * The random keys used to fingerprint boards and piles.
+ * <p>
+ * A card is keyed by what it rests on rather than by its absolute position.
+ * On the tableau that is either the card underneath it or the base of its
+ * pile, and in the draw pile it is the card before it. Moving a whole stack
+ * then changes a single relation, so the fingerprint of a new board can be
+ * derived from its parent in constant time. Cards in the goal contribute
+ * nothing, since where they are follows from where every other card is.
+ * <p>
+ * The keys come from a fixed seed so that fingerprints are the same from one
+ * run to the next.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+final class Zobrist {
+    
+    /**
+     * The largest number of piles a board may have.
+     */
+    static final int MAX_PILES = 11;
+    
+    /**
+     * What the bottom card of a standalone {@link Pile} rests on. Piles on a
+     * board use a distinct base per pile index instead.
+     */
+    static final int ANY_PILE_BASE = CardIds.NUMBER_OF_CARDS + MAX_PILES;
+    
+    /**
+     * What the first card of the draw pile follows.
+     */
+    static final int DRAW_PILE_BASE = CardIds.NUMBER_OF_CARDS;
+    
+    private static final int PILE_CODES = ANY_PILE_BASE + 1;
+    
+    private static final int DRAW_PILE_CODES = DRAW_PILE_BASE + 1;
+    
+    private static final long[] ON_PILE;
+    
+    private static final long[] FACE_DOWN;
+    
+    private static final long[] IN_DRAW_PILE;
+    
+    private static final long[] DRAW_INDEX;
+    
+    static {
+        long seed = 0x5eed50117a12eL;
+        ON_PILE = new long[CardIds.NUMBER_OF_CARDS * PILE_CODES];
+        for (int i = 0; i < ON_PILE.length; i++ ) {
+            ON_PILE[i] = seed = nextKey(seed);
+        }
+        FACE_DOWN = new long[CardIds.NUMBER_OF_CARDS];
+        for (int i = 0; i < FACE_DOWN.length; i++ ) {
+            FACE_DOWN[i] = seed = nextKey(seed);
+        }
+        IN_DRAW_PILE = new long[CardIds.NUMBER_OF_CARDS * DRAW_PILE_CODES];
+        for (int i = 0; i < IN_DRAW_PILE.length; i++ ) {
+            IN_DRAW_PILE[i] = seed = nextKey(seed);
+        }
+        DRAW_INDEX = new long[CardIds.NUMBER_OF_CARDS + 1];
+        for (int i = 0; i < DRAW_INDEX.length; i++ ) {
+            DRAW_INDEX[i] = seed = nextKey(seed);
+        }
+    }
+    
+    private Zobrist() {
+        super();
+    }
+    
+    /**
+     * Advances a SplitMix64 generator. The state and the output are kept in
+     * the same value, so the output of one step seeds the next.
+     */
+    private static long nextKey(final long previous) {
+        long z = previous + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Returns what a card placed on an empty pile of a board rests on.
+     * 
+     * @param pile the pile index
+     * @return the code for the base of the pile
+     */
+    static int pileBase(final int pile) {
+        return CardIds.NUMBER_OF_CARDS + pile;
+    }
+    
+    /**
+     * Returns the key for a tableau card resting on the given card or base.
+     * 
+     * @param card the card identifier
+     * @param below the identifier of the card underneath, or a pile base
+     * @return the key
+     */
+    static long onPile(final int card, final int below) {
+        return ON_PILE[card * PILE_CODES + below];
+    }
+    
+    /**
+     * Returns the key for a tableau card being face down.
+     * 
+     * @param card the card identifier
+     * @return the key
+     */
+    static long faceDown(final int card) {
+        return FACE_DOWN[card];
+    }
+    
+    /**
+     * Returns the key for a draw pile card following the given card.
+     * 
+     * @param card the card identifier
+     * @param previous the identifier of the previous card in the draw pile,
+     *        or {@link #DRAW_PILE_BASE}
+     * @return the key
+     */
+    static long inDrawPile(final int card, final int previous) {
+        return IN_DRAW_PILE[card * DRAW_PILE_CODES + previous];
+    }
+    
+    /**
+     * Returns the key for the draw index.
+     * 
+     * @param drawIndex the draw index
+     * @return the key
+     */
+    static long drawIndex(final int drawIndex) {
+        return DRAW_INDEX[drawIndex];
+    }
+    
+}
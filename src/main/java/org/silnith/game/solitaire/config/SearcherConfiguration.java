@@ -3,14 +3,27 @@ package org.silnith.game.solitaire.config;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.silnith.deck.Card;
 import org.silnith.deck.Suit;
 import org.silnith.deck.Value;
 import org.silnith.game.solitaire.BoardValidator;
 import org.silnith.game.solitaire.GoalValidator;
+import org.silnith.game.solitaire.HeuristicMoveOrdering;
+import org.silnith.game.solitaire.MoveOrdering;
 import org.silnith.game.solitaire.PileValidator;
 import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.search.BeamSearcher;
+import org.silnith.game.solitaire.search.BestFirstSearcher;
+import org.silnith.game.solitaire.search.DeadEndCache;
+import org.silnith.game.solitaire.search.DepthFirstSearcher;
+import org.silnith.game.solitaire.search.Heuristic;
+import org.silnith.game.solitaire.search.MinimumMovesHeuristic;
+import org.silnith.game.solitaire.search.Portfolio;
+import org.silnith.game.solitaire.search.RestartSchedule;
+import org.silnith.game.solitaire.search.RestartingSearcher;
+import org.silnith.game.solitaire.search.TranspositionTable;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -18,6 +31,59 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class SearcherConfiguration {
     
+    /**
+     * The memory cap for the shared transposition table. Each visited board
+     * costs eight bytes.
+     */
+    public static final long TRANSPOSITION_TABLE_BYTES = 256L * 1024 * 1024;
+    
+    /**
+     * The memory cap for the shared cache of proven dead ends. Each board
+     * costs eight bytes.
+     */
+    public static final long DEAD_END_CACHE_BYTES = 64L * 1024 * 1024;
+    
+    /**
+     * The number of boards a beam search keeps at each depth, unless the
+     * {@code solitaire.beamWidth} property is set.
+     */
+    public static final int BEAM_WIDTH = 1000;
+    
+    /**
+     * The CPU time the strategies of the portfolio share for one deal.
+     */
+    public static final long PORTFOLIO_CPU_SECONDS = 60;
+    
+    /**
+     * The memory cap for the transposition table of each strategy in the
+     * portfolio. The strategies prune differently, so they cannot share one.
+     */
+    public static final long PORTFOLIO_TABLE_BYTES = 64L * 1024 * 1024;
+    
+    /**
+     * The number of nodes in the shortest attempt of a restarting search.
+     */
+    public static final long RESTART_UNIT = 1000;
+    
+    /**
+     * The seed for the order of the moves in a restarting search, fixed so
+     * that runs can be repeated.
+     */
+    public static final long RESTART_SEED = 0;
+    
+    @org.springframework.beans.factory.annotation.Value("${solitaire.beamWidth:" + BEAM_WIDTH + "}")
+    private int beamWidth;
+    
+    /**
+     * Returns the width of a beam search.
+     * 
+     * @return the number of boards a beam search keeps at each depth
+     * @see org.silnith.game.solitaire.search.BeamSearcher
+     */
+    public int getBeamWidth() {
+        return beamWidth;
+    }
+    
     @Bean
     public GoalValidator goalValidator() {
         return new GoalValidator();
@@ -33,13 +99,71 @@ public class SearcherConfiguration {
         return new BoardValidator(7, 52, pileValidator(), goalValidator());
     }
     
+    /**
+     * The order in which the moves from each board are tried.
+     */
+    @Bean
+    public MoveOrdering moveOrdering() {
+        return new HeuristicMoveOrdering();
+    }
+    
     @Bean
     public Solitaire game() {
         final Solitaire solitaire = new Solitaire(7, boardValidator());
         solitaire.setReturnRedundantMoves(false);
+        solitaire.setMoveOrdering(moveOrdering());
+        solitaire.setAutoPlaySafeMoves(true);
+        solitaire.setFlipAndDrawMoves(true);
+        solitaire.setMergePilePermutations(true);
         return solitaire;
     }
     
+    @Bean
+    public TranspositionTable transpositionTable() {
+        return new TranspositionTable(TRANSPOSITION_TABLE_BYTES);
+    }
+    
+    @Bean
+    public DeadEndCache deadEndCache() {
+        return new DeadEndCache(DEAD_END_CACHE_BYTES);
+    }
+    
+    /**
+     * The ranking of boards in a beam search, lower being better.
+     * 
+     * @see org.silnith.game.solitaire.search.BeamSearcher
+     */
+    @Bean
+    public Heuristic beamScorer() {
+        return new MinimumMovesHeuristic();
+    }
+    
+    /**
+     * The strategies raced on each deal, and the CPU time they share. Each of
+     * them skips boards it has reached before, so none of them proves a deal
+     * unsolvable by running out of boards.
+     */
+    @Bean
+    public Portfolio portfolio() {
+        final Solitaire game = game();
+        final Portfolio portfolio = new Portfolio(PORTFOLIO_CPU_SECONDS, TimeUnit.SECONDS);
+        portfolio.addStrategy("depth-first", startNode -> new DepthFirstSearcher(game, startNode,
+                new TranspositionTable(PORTFOLIO_TABLE_BYTES)));
+        portfolio.addStrategy("best-first", startNode -> new BestFirstSearcher(game, startNode,
+                new MinimumMovesHeuristic(), 2, new TranspositionTable(PORTFOLIO_TABLE_BYTES)));
+        portfolio.addStrategy("greedy", startNode -> new BestFirstSearcher(game, startNode,
+                new MinimumMovesHeuristic(), BestFirstSearcher.GREEDY, new TranspositionTable(PORTFOLIO_TABLE_BYTES)));
+        portfolio.addStrategy("beam",
+                startNode -> new BeamSearcher(game, startNode, beamScorer(), beamWidth));
+        portfolio.addStrategy("restarting", startNode -> {
+            final RestartingSearcher searcher =
+                    new RestartingSearcher(game, startNode, RestartSchedule.luby(RESTART_UNIT), RESTART_SEED);
+            searcher.setDeadEndCache(new DeadEndCache(PORTFOLIO_TABLE_BYTES));
+            return searcher;
+        });
+        return portfolio;
+    }
+    
     @Bean
     public List<Card> deck() {
         final List<Card> deck = new ArrayList<>(52);
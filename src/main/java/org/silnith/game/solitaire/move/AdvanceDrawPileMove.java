@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.silnith.deck.Card;
 import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
 
 
 public class AdvanceDrawPileMove implements SolitaireMove {
@@ -46,6 +47,16 @@ public class AdvanceDrawPileMove implements SolitaireMove {
         return board.advanceDrawIndex(increment);
     }
     
+    @Override
+    public void make(final MutableBoard board) {
+        board.advanceDrawIndex(increment);
+    }
+    
+    @Override
+    public void unmake(final MutableBoard board) {
+        board.undoAdvanceDrawIndex();
+    }
+    
     @Override
     public int hashCode() {
         return Integer.rotateLeft(beginningIndex, 24) ^ Integer.rotateLeft(increment, 8);
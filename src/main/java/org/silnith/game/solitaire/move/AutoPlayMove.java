@@ -0,0 +1,254 @@
+package org.silnith.game.solitaire.move;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
+import org.silnith.game.solitaire.ReadableBoard;
+
+
+/**
+ * A move followed by every move to the goal that it makes safe. A card is safe
+ * to put in the goal once both goals of the other color hold the cards one
+ * lower, since the only cards that could be put on it are then in the goal
+ * already. Aces and twos are always safe. Playing safe cards at once, as part
+ * of the move that freed them, saves the search from trying every order of
+ * playing them.
+ * <p>
+ * Only cards on the piles are played. Taking a card from the draw pile
+ * changes which cards can be drawn later, so it is never certain to be safe.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class AutoPlayMove implements SolitaireMove {
+    
+    private static final Suit[] SUITS = Suit.values();
+    
+    private final SolitaireMove move;
+    
+    private final List<SolitaireMove> safeMoves;
+    
+    public AutoPlayMove(final SolitaireMove move, final List<SolitaireMove> safeMoves) {
+        super();
+        this.move = move;
+        this.safeMoves = Collections.unmodifiableList(safeMoves);
+    }
+    
+    /**
+     * Returns the move that was chosen.
+     * 
+     * @return the chosen move
+     */
+    public SolitaireMove getMove() {
+        return move;
+    }
+    
+    /**
+     * Returns the moves to the goal played after the chosen move, in order.
+     * 
+     * @return the safe moves
+     */
+    public List<SolitaireMove> getSafeMoves() {
+        return safeMoves;
+    }
+    
+    /**
+     * Returns every move made, the chosen move first, so that a solution can
+     * be replayed one card at a time.
+     * 
+     * @return the chosen move and the safe moves
+     */
+    public List<SolitaireMove> getSteps() {
+        final List<SolitaireMove> steps = new ArrayList<>(safeMoves.size() + 1);
+        steps.add(move);
+        steps.addAll(safeMoves);
+        return steps;
+    }
+    
+    @Override
+    public boolean hasCards() {
+        return move.hasCards();
+    }
+    
+    @Override
+    public List<Card> getCards() {
+        return move.getCards();
+    }
+    
+    @Override
+    public Board apply(final Board board) {
+        Board result = move.apply(board);
+        for (final SolitaireMove safeMove : safeMoves) {
+            result = safeMove.apply(result);
+        }
+        return result;
+    }
+    
+    @Override
+    public void make(final MutableBoard board) {
+        move.make(board);
+        for (final SolitaireMove safeMove : safeMoves) {
+            safeMove.make(board);
+        }
+    }
+    
+    @Override
+    public void unmake(final MutableBoard board) {
+        for (int i = safeMoves.size() - 1; i >= 0; i-- ) {
+            safeMoves.get(i).unmake(board);
+        }
+        move.unmake(board);
+    }
+    
+    @Override
+    public int hashCode() {
+        return move.hashCode() * 31 + safeMoves.hashCode();
+    }
+    
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj instanceof AutoPlayMove) {
+            final AutoPlayMove autoPlay = (AutoPlayMove) obj;
+            return move.equals(autoPlay.move) && safeMoves.equals(autoPlay.safeMoves);
+        } else {
+            return false;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(move.toString());
+        for (final SolitaireMove safeMove : safeMoves) {
+            builder.append(" Then ").append(safeMove);
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Returns whether a card can be put in the goal without losing anything.
+     * 
+     * @param card the card
+     * @param board the board
+     * @return {@code true} if the card is safe to put in the goal
+     */
+    public static boolean isSafe(final Card card, final ReadableBoard board) {
+        final int value = card.getValue().getValue();
+        if (value <= 2) {
+            return true;
+        }
+        final Suit cardSuit = card.getSuit();
+        for (final Suit suit : SUITS) {
+            if (suit.getColor() != cardSuit.getColor() && board.getGoalHeight(suit) < value - 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isSafe(final Card card, final int[] goalHeights) {
+        final int value = card.getValue().getValue();
+        if (value <= 2) {
+            return true;
+        }
+        final Suit cardSuit = card.getSuit();
+        for (final Suit suit : SUITS) {
+            if (suit.getColor() != cardSuit.getColor() && goalHeights[suit.ordinal()] < value - 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns a move together with the safe moves to the goal it leads to,
+     * or the move alone if it leads to none. The moves are worked out from
+     * the board before the move, without making it.
+     * 
+     * @param board the board the move is made from
+     * @param possibleMove the move
+     * @return the move followed by the safe moves it leads to
+     */
+    public static SolitaireMove after(final ReadableBoard board, final SolitaireMove possibleMove) {
+        // Flipping through the draw pile first changes no pile nor the goal.
+        final SolitaireMove move = possibleMove instanceof FlipAndDrawMove ? ((FlipAndDrawMove) possibleMove).getDraw()
+                : possibleMove;
+        final int numberOfPiles = board.getNumberOfPiles();
+        final int[] goalHeights = new int[SUITS.length];
+        for (final Suit suit : SUITS) {
+            goalHeights[suit.ordinal()] = board.getGoalHeight(suit);
+        }
+        /*
+         * The cards taken from the top of each pile, counting down into the
+         * face-down cards once the face-up ones are gone, and the cards the
+         * move puts on a pile, which are taken first.
+         */
+        final int[] taken = new int[numberOfPiles];
+        int addedPile = -1;
+        List<Card> added = Collections.emptyList();
+        int numberAdded = 0;
+        if (move instanceof StackMove) {
+            final StackMove stackMove = (StackMove) move;
+            taken[stackMove.getSourcePile()] = stackMove.getNumberOfCards();
+            addedPile = stackMove.getDestinationPile();
+            added = stackMove.getCards();
+            numberAdded = stackMove.getNumberOfCards();
+        } else if (move instanceof DrawToPileMove) {
+            final DrawToPileMove drawMove = (DrawToPileMove) move;
+            addedPile = drawMove.getDestinationPile();
+            added = drawMove.getCards();
+            numberAdded = 1;
+        } else if (move instanceof PileToGoalMove) {
+            final PileToGoalMove goalMove = (PileToGoalMove) move;
+            taken[goalMove.getSourcePile()] = 1;
+            goalHeights[goalMove.getCard().getSuit().ordinal()]++ ;
+        } else if (move instanceof DrawToGoalMove) {
+            goalHeights[((DrawToGoalMove) move).getCard().getSuit().ordinal()]++ ;
+        } else {
+            // Moves through the draw pile change no pile, and a card taken from the goal is not put back.
+            return possibleMove;
+        }
+        
+        List<SolitaireMove> safeMoves = null;
+        boolean played;
+        do {
+            played = false;
+            for (int pile = 0; pile < numberOfPiles; pile++ ) {
+                final Card card;
+                if (pile == addedPile && numberAdded > 0) {
+                    card = added.get(numberAdded - 1);
+                } else {
+                    final int faceUp = board.getNumberOfFaceUpCards(pile) - taken[pile];
+                    if (faceUp > 0) {
+                        card = board.getFaceUpCard(pile, faceUp - 1);
+                    } else if (board.getNumberOfFaceDownCards(pile) + faceUp > 0) {
+                        // The top face-down card has been turned over.
+                        card = board.getFaceDownCard(pile, board.getNumberOfFaceDownCards(pile) + faceUp - 1);
+                    } else {
+                        continue;
+                    }
+                }
+                final int suit = card.getSuit().ordinal();
+                if (goalHeights[suit] != card.getValue().getValue() - 1 || !isSafe(card, goalHeights)) {
+                    continue;
+                }
+                if (safeMoves == null) {
+                    safeMoves = new ArrayList<>();
+                }
+                safeMoves.add(new PileToGoalMove(pile, card));
+                goalHeights[suit]++ ;
+                if (pile == addedPile && numberAdded > 0) {
+                    numberAdded-- ;
+                } else {
+                    taken[pile]++ ;
+                }
+                played = true;
+            }
+        } while (played);
+        return safeMoves == null ? possibleMove : new AutoPlayMove(possibleMove, safeMoves);
+    }
+    
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.silnith.deck.Card;
 import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
 
 
 public class DealMove implements SolitaireMove {
@@ -41,6 +42,23 @@ public class DealMove implements SolitaireMove {
         return new Board(deck, numberOfStacks);
     }
     
+    /**
+     * A deal starts a new game, so it replaces whatever position the board
+     * was in.
+     */
+    @Override
+    public void make(final MutableBoard board) {
+        board.deal(new Board(deck, numberOfStacks));
+    }
+    
+    /**
+     * Restores the position the deal replaced.
+     */
+    @Override
+    public void unmake(final MutableBoard board) {
+        board.undoDeal();
+    }
+    
     @Override
     public int hashCode() {
         return Integer.rotateLeft(numberOfStacks, 16) ^ deck.hashCode();
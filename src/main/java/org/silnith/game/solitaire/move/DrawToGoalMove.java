@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.silnith.deck.Card;
 import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
 
 
 public class DrawToGoalMove implements SolitaireMove {
@@ -42,6 +43,16 @@ public class DrawToGoalMove implements SolitaireMove {
         return board.drawCardToGoal();
     }
     
+    @Override
+    public void make(final MutableBoard board) {
+        board.drawCardToGoal();
+    }
+    
+    @Override
+    public void unmake(final MutableBoard board) {
+        board.undoDrawCardToGoal();
+    }
+    
     @Override
     public int hashCode() {
         return sourceIndex ^ card.hashCode();
@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.silnith.deck.Card;
 import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
 
 
 public class DrawToPileMove implements SolitaireMove {
@@ -49,6 +50,16 @@ public class DrawToPileMove implements SolitaireMove {
         return board.drawCardToPile(destinationPile);
     }
     
+    @Override
+    public void make(final MutableBoard board) {
+        board.drawCardToPile(destinationPile);
+    }
+    
+    @Override
+    public void unmake(final MutableBoard board) {
+        board.undoDrawCardToPile(destinationPile);
+    }
+    
     @Override
     public int hashCode() {
         return sourceIndex ^ destinationPile ^ card.hashCode();
@@ -0,0 +1,185 @@
+package org.silnith.game.solitaire.move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.silnith.deck.Card;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
+
+
+/**
+ * Flips through the draw pile until a card is on top, and plays that card.
+ * Flipping through the draw pile changes nothing but which card can be
+ * played, so every card that some number of flips and resets would bring to
+ * the top can be played as one move. The search then needs no level for each
+ * flip.
+ * <p>
+ * The move remembers how many flips, counting the reset, it stands for, so
+ * that cheaper moves can be preferred.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class FlipAndDrawMove implements SolitaireMove {
+    
+    private final int beginningIndex;
+    
+    private final int drawPileSize;
+    
+    private final boolean reset;
+    
+    private final int flips;
+    
+    private final SolitaireMove draw;
+    
+    /**
+     * Constructs a new move.
+     * 
+     * @param beginningIndex the draw index before the move
+     * @param drawPileSize the number of cards in the draw pile
+     * @param reset whether the draw pile is flipped to the end and reset on
+     *        the way to the card
+     * @param flips the number of flips, counting the reset
+     * @param draw the move of the card, a {@link DrawToPileMove} or a
+     *        {@link DrawToGoalMove}
+     */
+    public FlipAndDrawMove(final int beginningIndex, final int drawPileSize, final boolean reset, final int flips,
+            final SolitaireMove draw) {
+        super();
+        if ( !(draw instanceof DrawToPileMove || draw instanceof DrawToGoalMove)) {
+            throw new IllegalArgumentException("Not a move from the draw pile: " + draw);
+        }
+        this.beginningIndex = beginningIndex;
+        this.drawPileSize = drawPileSize;
+        this.reset = reset;
+        this.flips = flips;
+        this.draw = draw;
+    }
+    
+    public int getBeginningIndex() {
+        return beginningIndex;
+    }
+    
+    public int getDrawPileSize() {
+        return drawPileSize;
+    }
+    
+    public boolean isReset() {
+        return reset;
+    }
+    
+    /**
+     * Returns the number of times the draw pile is flipped or reset to bring
+     * the card to the top.
+     * 
+     * @return the number of flips
+     */
+    public int getFlips() {
+        return flips;
+    }
+    
+    /**
+     * Returns the move of the card once it is on top of the draw pile.
+     * 
+     * @return the move from the draw pile
+     */
+    public SolitaireMove getDraw() {
+        return draw;
+    }
+    
+    /**
+     * Returns the draw index at which the card is on top.
+     * 
+     * @return the index of the card, plus one
+     */
+    public int getDrawIndex() {
+        if (draw instanceof DrawToPileMove) {
+            return ((DrawToPileMove) draw).getSourceIndex();
+        } else {
+            return ((DrawToGoalMove) draw).getSourceIndex();
+        }
+    }
+    
+    private int getAdvance() {
+        return reset ? getDrawIndex() : getDrawIndex() - beginningIndex;
+    }
+    
+    /**
+     * Returns the moves a player would make, the flips coalesced, so that a
+     * solution can be replayed.
+     * 
+     * @return the moves through the draw pile and the move of the card
+     */
+    public List<SolitaireMove> getSteps() {
+        final List<SolitaireMove> steps = new ArrayList<>(4);
+        if (reset) {
+            if (beginningIndex < drawPileSize) {
+                steps.add(new AdvanceDrawPileMove(beginningIndex, drawPileSize - beginningIndex));
+            }
+            steps.add(new ResetDrawPileMove(drawPileSize));
+            steps.add(new AdvanceDrawPileMove(0, getAdvance()));
+        } else {
+            steps.add(new AdvanceDrawPileMove(beginningIndex, getAdvance()));
+        }
+        steps.add(draw);
+        return steps;
+    }
+    
+    @Override
+    public boolean hasCards() {
+        return true;
+    }
+    
+    @Override
+    public List<Card> getCards() {
+        return draw.getCards();
+    }
+    
+    @Override
+    public Board apply(final Board board) {
+        // Flipping to the end before the reset changes nothing that is kept.
+        final Board flipped = reset ? board.resetDrawIndex() : board;
+        return draw.apply(flipped.advanceDrawIndex(getAdvance()));
+    }
+    
+    @Override
+    public void make(final MutableBoard board) {
+        if (reset) {
+            board.resetDrawIndex();
+        }
+        board.advanceDrawIndex(getAdvance());
+        draw.make(board);
+    }
+    
+    @Override
+    public void unmake(final MutableBoard board) {
+        draw.unmake(board);
+        board.undoAdvanceDrawIndex();
+        if (reset) {
+            board.undoResetDrawIndex();
+        }
+    }
+    
+    @Override
+    public int hashCode() {
+        return Integer.rotateLeft(beginningIndex, 24) ^ Integer.rotateLeft(flips, 16) ^ draw.hashCode();
+    }
+    
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj instanceof FlipAndDrawMove) {
+            final FlipAndDrawMove move = (FlipAndDrawMove) obj;
+            return beginningIndex == move.beginningIndex && drawPileSize == move.drawPileSize && reset == move.reset
+                    && flips == move.flips && draw.equals(move.draw);
+        } else {
+            return false;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "Flip the draw pile " + flips + (flips == 1 ? " time" : " times") + (reset ? ", resetting it" : "")
+                + ". " + draw;
+    }
+    
+}
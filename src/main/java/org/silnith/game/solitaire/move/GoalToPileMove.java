@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.silnith.deck.Card;
 import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
 
 
 public class GoalToPileMove implements SolitaireMove {
@@ -42,6 +43,16 @@ public class GoalToPileMove implements SolitaireMove {
         return board.moveCardFromGoal(card.getSuit(), destinationPile);
     }
     
+    @Override
+    public void make(final MutableBoard board) {
+        board.moveCardFromGoal(card.getSuit(), destinationPile);
+    }
+    
+    @Override
+    public void unmake(final MutableBoard board) {
+        board.undoMoveCardFromGoal(card.getSuit(), destinationPile);
+    }
+    
     @Override
     public int hashCode() {
         return Integer.rotateLeft(destinationPile, 8) ^ card.hashCode();
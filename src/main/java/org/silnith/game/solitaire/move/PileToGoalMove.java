@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.silnith.deck.Card;
 import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
 
 
 public class PileToGoalMove implements SolitaireMove {
@@ -42,6 +43,16 @@ public class PileToGoalMove implements SolitaireMove {
         return board.moveCardToGoal(sourcePile);
     }
     
+    @Override
+    public void make(final MutableBoard board) {
+        board.moveCardToGoal(sourcePile);
+    }
+    
+    @Override
+    public void unmake(final MutableBoard board) {
+        board.undoMoveCardToGoal(sourcePile);
+    }
+    
     @Override
     public int hashCode() {
         return Integer.rotateLeft(sourcePile, 16) ^ card.hashCode();
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.silnith.deck.Card;
 import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
 
 
 public class ResetDrawPileMove implements SolitaireMove {
@@ -34,6 +35,16 @@ public class ResetDrawPileMove implements SolitaireMove {
         return board.resetDrawIndex();
     }
     
+    @Override
+    public void make(final MutableBoard board) {
+        board.resetDrawIndex();
+    }
+    
+    @Override
+    public void unmake(final MutableBoard board) {
+        board.undoResetDrawIndex();
+    }
+    
     @Override
     public int hashCode() {
         return 0x5f23bc91 ^ sourceIndex;
@@ -5,6 +5,7 @@ import java.util.List;
 import org.silnith.deck.Card;
 import org.silnith.game.move.Move;
 import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
 
 
 /**
@@ -29,4 +30,19 @@ public interface SolitaireMove extends Move<Board> {
      */
     public List<Card> getCards();
     
+    /**
+     * Makes this move on a mutable board, changing it in place.
+     * 
+     * @param board the board to change
+     */
+    public void make(MutableBoard board);
+    
+    /**
+     * Takes this move back on a mutable board. This must be the last move
+     * made on the board that has not been taken back.
+     * 
+     * @param board the board to change
+     */
+    public void unmake(MutableBoard board);
+    
 }
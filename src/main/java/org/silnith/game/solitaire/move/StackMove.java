@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.silnith.deck.Card;
 import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
 
 
 public class StackMove implements SolitaireMove {
@@ -51,6 +52,16 @@ public class StackMove implements SolitaireMove {
         return board.moveStack(sourcePile, destinationPile, numberOfCards);
     }
     
+    @Override
+    public void make(final MutableBoard board) {
+        board.moveStack(sourcePile, destinationPile, numberOfCards);
+    }
+    
+    @Override
+    public void unmake(final MutableBoard board) {
+        board.undoMoveStack(sourcePile, destinationPile, numberOfCards);
+    }
+    
     @Override
     public int hashCode() {
         return Integer.rotateLeft(sourcePile, 8) ^ Integer.rotateLeft(destinationPile, 16)
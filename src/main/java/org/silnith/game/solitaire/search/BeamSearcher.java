@@ -0,0 +1,277 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * A beam search, which keeps only the best few boards at each depth. It is
+ * not complete: a deal it fails to solve may still be winnable. In exchange,
+ * the work per depth is bounded by the width of the beam, so it gives a
+ * quick answer for screening many deals.
+ * <p>
+ * Each layer is expanded in parallel in the common fork/join pool. Boards
+ * that appear more than once in a layer are kept once, and the remaining
+ * boards are ranked by a {@link Heuristic scorer}, lowest first. The search
+ * stops at the first layer that holds a winning board. The layers do not
+ * depend on how the threads are scheduled, so a search with the same width
+ * always keeps the same boards.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class BeamSearcher implements CancellableSearch {
+    
+    /**
+     * The default maximum number of layers, well past the length of any
+     * solution.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 500;
+    
+    private static final Comparator<Candidate> BEST_FIRST = new Comparator<Candidate>() {
+        
+        @Override
+        public int compare(final Candidate o1, final Candidate o2) {
+            final int byScore = Integer.compare(o1.score, o2.score);
+            if (byScore != 0) {
+                return byScore;
+            }
+            // Break ties by board so that the beam does not depend on thread timing.
+            return Long.compare(o1.fingerprint, o2.fingerprint);
+        }
+        
+    };
+    
+    /**
+     * Chooses which of the boards with the same fingerprint is kept: the one
+     * with the lower score, then the one generated first. The boards may
+     * differ, and reach the layer in any order from the threads.
+     */
+    private static final Comparator<Candidate> KEPT_FIRST = new Comparator<Candidate>() {
+        
+        @Override
+        public int compare(final Candidate o1, final Candidate o2) {
+            final int byScore = Integer.compare(o1.score, o2.score);
+            if (byScore != 0) {
+                return byScore;
+            }
+            return Long.compare(o1.order, o2.order);
+        }
+        
+    };
+    
+    private final Solitaire game;
+    
+    private final GameState<SolitaireMove, Board> startNode;
+    
+    private final Heuristic scorer;
+    
+    private final int width;
+    
+    private final AtomicLong nodesExpanded;
+    
+    private final AtomicLong duplicatesEliminated;
+    
+    private final AtomicLong layersSearched;
+    
+    private final Collection<GameState<SolitaireMove, Board>> solutions;
+    
+    private int maxDepth;
+    
+    private final AtomicBoolean cancelled;
+    
+    /**
+     * Whether any layer had more boards than the beam could keep.
+     */
+    private volatile boolean truncated;
+    
+    private volatile boolean exhausted;
+    
+    /**
+     * Constructs a new beam searcher.
+     * 
+     * @param game the game
+     * @param startNode the starting position
+     * @param scorer the ranking of boards, lower being better
+     * @param width the number of boards to keep at each depth
+     */
+    public BeamSearcher(final Solitaire game, final GameState<SolitaireMove, Board> startNode,
+            final Heuristic scorer, final int width) {
+        super();
+        if (width < 1) {
+            throw new IllegalArgumentException("Beam width must be positive: " + width);
+        }
+        this.game = game;
+        this.startNode = startNode;
+        this.scorer = scorer;
+        this.width = width;
+        this.nodesExpanded = new AtomicLong();
+        this.duplicatesEliminated = new AtomicLong();
+        this.layersSearched = new AtomicLong();
+        this.solutions = new CopyOnWriteArrayList<>();
+        this.maxDepth = DEFAULT_MAX_DEPTH;
+        this.cancelled = new AtomicBoolean();
+        this.truncated = false;
+        this.exhausted = false;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public long getNodesExpanded() {
+        return nodesExpanded.get();
+    }
+    
+    /**
+     * Returns the number of boards dropped because the same board was already
+     * in the layer.
+     * 
+     * @return the number of duplicates eliminated
+     */
+    public long getDuplicatesEliminated() {
+        return duplicatesEliminated.get();
+    }
+    
+    public long getLayersSearched() {
+        return layersSearched.get();
+    }
+    
+    @Override
+    public Collection<GameState<SolitaireMove, Board>> getSolutions() {
+        return Collections.unmodifiableCollection(solutions);
+    }
+    
+    @Override
+    public boolean cancel() {
+        return cancelled.compareAndSet(false, true);
+    }
+    
+    /**
+     * Returns whether the search ran out of boards without ever dropping one
+     * to fit the beam. A beam narrower than the tree is never exhausted.
+     * 
+     * @return {@code true} if every board reachable was expanded
+     */
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+    
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    /**
+     * Sets the number of layers to search before giving up. This must be set
+     * before the search starts.
+     * 
+     * @param maxDepth the maximum number of layers
+     */
+    public void setMaxDepth(final int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+    
+    /**
+     * Searches layer by layer until a solution is found, a layer is empty,
+     * the maximum depth is reached, or the search is cancelled.
+     */
+    @Override
+    public void run() {
+        List<GameState<SolitaireMove, Board>> layer = Collections.singletonList(startNode);
+        while ( !layer.isEmpty() && layersSearched.get() < maxDepth && !cancelled.get()) {
+            layersSearched.incrementAndGet();
+            final List<GameState<SolitaireMove, Board>> parents = layer;
+            final Map<Long, Candidate> candidates = IntStream.range(0, parents.size()).parallel().boxed()
+                    .flatMap(index -> expand(parents.get(index), index).stream())
+                    .collect(Collectors.toConcurrentMap(candidate -> candidate.fingerprint, candidate -> candidate,
+                            (candidate, duplicate) -> {
+                                duplicatesEliminated.incrementAndGet();
+                                return KEPT_FIRST.compare(candidate, duplicate) <= 0 ? candidate : duplicate;
+                            }));
+            if ( !solutions.isEmpty()) {
+                return;
+            }
+            
+            final List<Candidate> ranked = new ArrayList<>(candidates.values());
+            if (ranked.size() > width) {
+                truncated = true;
+            }
+            ranked.sort(BEST_FIRST);
+            final int size = Math.min(width, ranked.size());
+            final List<GameState<SolitaireMove, Board>> nextLayer = new ArrayList<>(size);
+            for (int i = 0; i < size; i++ ) {
+                nextLayer.add(ranked.get(i).node);
+            }
+            layer = nextLayer;
+        }
+        exhausted = layer.isEmpty() && !truncated;
+    }
+    
+    /**
+     * Returns the children of a node in the layer, each numbered by the
+     * position of the node in the layer and of the move among its moves.
+     */
+    private List<Candidate> expand(final GameState<SolitaireMove, Board> node, final int index) {
+        nodesExpanded.incrementAndGet();
+        final Board currentBoard = node.getBoards().getFirst();
+        final List<Candidate> candidates = new ArrayList<>();
+        final List<SolitaireMove> moves = game.findAllMoves(currentBoard);
+        for (int i = 0; i < moves.size(); i++ ) {
+            final SolitaireMove move = moves.get(i);
+            final Board board = move.apply(currentBoard);
+            final GameState<SolitaireMove, Board> newNode = game.pruneGameState(new GameState<>(node, move, board));
+            if (newNode == null) {
+                continue;
+            }
+            if (game.isWin(board)) {
+                solutions.add(newNode);
+                continue;
+            }
+            candidates.add(new Candidate(newNode, game.getFingerprint(board), scorer.estimate(board),
+                    (long) index << 32 | i));
+        }
+        return candidates;
+    }
+    
+    /**
+     * A board that may go in the next layer.
+     */
+    private static final class Candidate {
+        
+        private final GameState<SolitaireMove, Board> node;
+        
+        private final long fingerprint;
+        
+        private final int score;
+        
+        /**
+         * The order in which the candidate was generated.
+         */
+        private final long order;
+        
+        public Candidate(final GameState<SolitaireMove, Board> node, final long fingerprint, final int score,
+                final long order) {
+            super();
+            this.node = node;
+            this.fingerprint = fingerprint;
+            this.score = score;
+            this.order = order;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,198 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * A best-first search that stops at the first solution. Nodes are expanded in
+ * order of the number of moves made to reach them plus a weighted
+ * {@link Heuristic heuristic} estimate of the moves still needed. A weight of
+ * one is A*, greater weights trade the length of the solution for search
+ * time, and a weight of {@link #GREEDY} ignores the moves made altogether.
+ * <p>
+ * Priorities are small integers, so the frontier is a {@link BucketQueue}.
+ * Among nodes of equal priority the most recently generated is expanded
+ * first, which makes the search dive when the estimate is flat. Every board
+ * generated is recorded in a {@link TranspositionTable}, which serves as the
+ * closed set: a board reached again, by any path, is not searched again. A
+ * board first reached by a longer path is therefore never improved, so even
+ * with a weight of one the solution is not guaranteed to be the shortest.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class BestFirstSearcher implements CancellableSearch {
+    
+    /**
+     * The weight that orders nodes by the heuristic estimate alone.
+     */
+    public static final double GREEDY = Double.POSITIVE_INFINITY;
+    
+    private final Solitaire game;
+    
+    private final GameState<SolitaireMove, Board> startNode;
+    
+    private final Heuristic heuristic;
+    
+    private final double weight;
+    
+    private final TranspositionTable closedSet;
+    
+    private final AtomicLong nodesExpanded;
+    
+    private final AtomicLong maxFrontierSize;
+    
+    private final Collection<GameState<SolitaireMove, Board>> solutions;
+    
+    private volatile long maxNodes;
+    
+    private final AtomicBoolean cancelled;
+    
+    private volatile boolean exhausted;
+    
+    /**
+     * Constructs a new best-first searcher.
+     * 
+     * @param game the game
+     * @param startNode the starting position
+     * @param heuristic the estimate of the moves to win
+     * @param weight the weight of the estimate relative to the moves made, at
+     *        least one, or {@link #GREEDY}
+     * @param closedSet the boards already generated
+     */
+    public BestFirstSearcher(final Solitaire game, final GameState<SolitaireMove, Board> startNode,
+            final Heuristic heuristic, final double weight, final TranspositionTable closedSet) {
+        super();
+        if ( !(weight >= 1)) {
+            throw new IllegalArgumentException("Weight must be at least one: " + weight);
+        }
+        this.game = game;
+        this.startNode = startNode;
+        this.heuristic = heuristic;
+        this.weight = weight;
+        this.closedSet = closedSet;
+        this.nodesExpanded = new AtomicLong();
+        this.maxFrontierSize = new AtomicLong();
+        this.solutions = new CopyOnWriteArrayList<>();
+        this.maxNodes = Long.MAX_VALUE;
+        this.cancelled = new AtomicBoolean();
+        this.exhausted = false;
+    }
+    
+    public double getWeight() {
+        return weight;
+    }
+    
+    public long getNodesExpanded() {
+        return nodesExpanded.get();
+    }
+    
+    /**
+     * Returns the greatest number of nodes waiting in the frontier at once.
+     * 
+     * @return the peak frontier size
+     */
+    public long getMaxFrontierSize() {
+        return maxFrontierSize.get();
+    }
+    
+    public TranspositionTable getClosedSet() {
+        return closedSet;
+    }
+    
+    /**
+     * Returns the solution found, if any. The search stops at the first
+     * solution, so there is at most one.
+     * 
+     * @return the solutions found
+     */
+    @Override
+    public Collection<GameState<SolitaireMove, Board>> getSolutions() {
+        return Collections.unmodifiableCollection(solutions);
+    }
+    
+    @Override
+    public boolean cancel() {
+        return cancelled.compareAndSet(false, true);
+    }
+    
+    /**
+     * Returns whether the frontier ran out before a solution was found, the
+     * node limit was reached, or the search was cancelled.
+     * 
+     * @return {@code true} if every board reachable was expanded
+     */
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+    
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+    
+    /**
+     * Sets the number of nodes to expand before giving up. Lowering this
+     * while the search runs stops it early.
+     * 
+     * @param maxNodes the maximum number of nodes to expand
+     */
+    public void setMaxNodes(final long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+    
+    private int getPriority(final int depth, final Board board) {
+        final int estimate = heuristic.estimate(board);
+        if (weight == GREEDY) {
+            return estimate;
+        }
+        return (int) Math.round(depth + weight * estimate);
+    }
+    
+    /**
+     * Searches until a solution is found, the frontier is empty, the maximum
+     * number of nodes has been expanded, or the search is cancelled.
+     */
+    @Override
+    public void run() {
+        final int startDepth = game.getLength(startNode);
+        final BucketQueue<GameState<SolitaireMove, Board>> frontier = new BucketQueue<>();
+        final Board startBoard = startNode.getBoards().getFirst();
+        closedSet.add(game.getFingerprint(startBoard));
+        frontier.add(startNode, getPriority(0, startBoard));
+        while ( !frontier.isEmpty() && nodesExpanded.get() < maxNodes && !cancelled.get()) {
+            final GameState<SolitaireMove, Board> node = frontier.poll();
+            nodesExpanded.incrementAndGet();
+            final Board currentBoard = node.getBoards().getFirst();
+            for (final SolitaireMove move : game.findAllMoves(currentBoard)) {
+                final Board board = move.apply(currentBoard);
+                final GameState<SolitaireMove, Board> newNode =
+                        game.pruneGameState(new GameState<>(node, move, board));
+                if (newNode == null) {
+                    continue;
+                }
+                if (game.isWin(board)) {
+                    solutions.add(newNode);
+                    return;
+                }
+                if ( !closedSet.add(game.getFingerprint(board))) {
+                    continue;
+                }
+                frontier.add(newNode, getPriority(game.getLength(newNode) - startDepth, board));
+            }
+            if (frontier.size() > maxFrontierSize.get()) {
+                maxFrontierSize.set(frontier.size());
+            }
+        }
+        exhausted = frontier.isEmpty();
+    }
+    
+}
@@ -0,0 +1,115 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.Arrays;
+
+
+/**
+ * A priority queue for small non-negative integer priorities. There is one
+ * bucket per priority, each a growable array used as a stack, so adding and
+ * removing take constant time apart from the occasional scan past empty
+ * buckets. Among elements of equal priority the most recently added comes
+ * out first. Not thread-safe.
+ * 
+ * @param <E> the type of the elements
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class BucketQueue<E> {
+    
+    private Object[][] buckets;
+    
+    private int[] bucketSizes;
+    
+    /**
+     * No bucket below this one holds any elements.
+     */
+    private int lowestBucket;
+    
+    private long size;
+    
+    /**
+     * Constructs an empty queue.
+     */
+    public BucketQueue() {
+        super();
+        this.buckets = new Object[64][];
+        this.bucketSizes = new int[64];
+        this.lowestBucket = 0;
+        this.size = 0;
+    }
+    
+    public long size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Adds an element with the given priority.
+     * 
+     * @param element the element to add
+     * @param priority the priority, lower coming out first
+     */
+    public void add(final E element, final int priority) {
+        if (priority < 0) {
+            throw new IllegalArgumentException("Negative priority: " + priority);
+        }
+        if (priority >= buckets.length) {
+            final int newLength = Math.max(2 * buckets.length, priority + 1);
+            buckets = Arrays.copyOf(buckets, newLength);
+            bucketSizes = Arrays.copyOf(bucketSizes, newLength);
+        }
+        Object[] bucket = buckets[priority];
+        final int bucketSize = bucketSizes[priority];
+        if (bucket == null) {
+            bucket = new Object[16];
+            buckets[priority] = bucket;
+        } else if (bucketSize == bucket.length) {
+            bucket = Arrays.copyOf(bucket, 2 * bucketSize);
+            buckets[priority] = bucket;
+        }
+        bucket[bucketSize] = element;
+        bucketSizes[priority] = bucketSize + 1;
+        if (priority < lowestBucket) {
+            lowestBucket = priority;
+        }
+        size++ ;
+    }
+    
+    /**
+     * Returns the lowest priority of any element in the queue.
+     * 
+     * @return the lowest priority
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int getLowestPriority() {
+        if (size == 0) {
+            throw new IllegalStateException("Queue is empty.");
+        }
+        while (bucketSizes[lowestBucket] == 0) {
+            lowestBucket++ ;
+        }
+        return lowestBucket;
+    }
+    
+    /**
+     * Removes and returns an element with the lowest priority.
+     * 
+     * @return the element removed, or {@code null} if the queue is empty
+     */
+    public E poll() {
+        if (size == 0) {
+            return null;
+        }
+        final int priority = getLowestPriority();
+        final int bucketSize = bucketSizes[priority] - 1;
+        @SuppressWarnings("unchecked")
+        final E element = (E) buckets[priority][bucketSize];
+        buckets[priority][bucketSize] = null;
+        bucketSizes[priority] = bucketSize;
+        size-- ;
+        return element;
+    }
+    
+}
@@ -0,0 +1,46 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.Collection;
+
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * A search for solutions that can be stopped from another thread. The search
+ * runs in the thread that calls {@link #run()}.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ * @see Portfolio
+ */
+public interface CancellableSearch extends Runnable {
+    
+    /**
+     * Stops the search. The thread running it notices soon after, and
+     * {@link #run()} returns.
+     * 
+     * @return {@code true} if this call cancelled the search, {@code false}
+     *         if it was already cancelled
+     */
+    boolean cancel();
+    
+    /**
+     * Returns the solutions found so far.
+     * 
+     * @return the solutions found
+     */
+    Collection<GameState<SolitaireMove, Board>> getSolutions();
+    
+    /**
+     * Returns whether the search ran out of boards without being cancelled or
+     * cut off. This only proves that the deal cannot be won if every board the
+     * search skipped was searched by some other path, which a search that
+     * skips boards it has seen before cannot promise. This is only meaningful
+     * once {@link #run()} has returned.
+     * 
+     * @return {@code true} if the search was exhausted
+     */
+    boolean isExhausted();
+    
+}
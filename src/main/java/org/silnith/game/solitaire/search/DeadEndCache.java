@@ -0,0 +1,295 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.silnith.game.solitaire.Board;
+
+
+/**
+ * A set of boards proven to be dead ends, shared by every thread of a search.
+ * A board is a dead end once its whole subtree has been searched without
+ * finding a win, so a search that reaches it again by another path does not
+ * need to search it again. A subtree in which any move was pruned because of
+ * the path to it, such as a cycle or a board already in a transposition
+ * table, proves nothing, since another path may not prune the same moves.
+ * <p>
+ * Unlike a {@link TranspositionTable}, which only says that a board has been
+ * reached, this holds a fact that stays true for the rest of the search and
+ * for any later search of the same game. Memory is bounded, so boards are
+ * kept in preference to others by the size of the subtree that proved them,
+ * since those cost the most to prove again.
+ * <p>
+ * The cache is a lock-free hash table of buckets of eight slots, one cache
+ * line each. Each slot packs the high bits of a fingerprint with the size of
+ * the proving subtree, saturated to sixteen bits. The low bits of the
+ * fingerprint choose the bucket. When a bucket is full, a new board replaces
+ * the smallest subtree in it, provided the new subtree is at least as large.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ * @see Board#getFingerprint()
+ */
+public class DeadEndCache {
+    
+    /**
+     * The value of an empty slot. Subtrees have at least one node, so no
+     * entry is zero.
+     */
+    private static final long EMPTY = 0;
+    
+    private static final int BUCKET_SIZE = 8;
+    
+    private static final long WEIGHT_MASK = 0xFFFF;
+    
+    private static final long KEY_MASK = ~WEIGHT_MASK;
+    
+    private final AtomicLongArray slots;
+    
+    private final int bucketMask;
+    
+    private final AtomicLong size;
+    
+    private final AtomicLong hits;
+    
+    private final AtomicLong misses;
+    
+    private final AtomicLong nodesSaved;
+    
+    private final AtomicLong evictions;
+    
+    private final AtomicLong rejections;
+    
+    /**
+     * Constructs a new dead end cache that uses at most the given number of
+     * bytes. The number of buckets is the largest power of two that fits.
+     * 
+     * @param maxBytes the memory cap for the cache, in bytes
+     */
+    public DeadEndCache(final long maxBytes) {
+        super();
+        final long maxBuckets = Math.min(maxBytes / (BUCKET_SIZE * Long.BYTES), 1 << 27);
+        if (maxBuckets < 1) {
+            throw new IllegalArgumentException("Memory cap too small: " + maxBytes);
+        }
+        final int buckets = Integer.highestOneBit((int) maxBuckets);
+        this.slots = new AtomicLongArray(buckets * BUCKET_SIZE);
+        this.bucketMask = buckets - 1;
+        this.size = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.nodesSaved = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.rejections = new AtomicLong();
+    }
+    
+    /**
+     * Returns the number of boards the cache can hold.
+     * 
+     * @return the capacity of the cache
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+    
+    /**
+     * Returns the number of bytes used by the cache.
+     * 
+     * @return the memory used by the cache
+     */
+    public long getBytesUsed() {
+        return (long) slots.length() * Long.BYTES;
+    }
+    
+    /**
+     * Returns the number of boards stored in the cache.
+     * 
+     * @return the number of stored boards
+     */
+    public long getSize() {
+        return size.get();
+    }
+    
+    /**
+     * Returns the number of times {@link #isDeadEnd(long)} found the board.
+     * 
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+    
+    /**
+     * Returns the number of times {@link #isDeadEnd(long)} did not find the
+     * board.
+     * 
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    /**
+     * Returns the fraction of lookups that found the board.
+     * 
+     * @return the hit rate, or zero if there have been no lookups
+     */
+    public double getHitRate() {
+        final long hitCount = hits.get();
+        final long lookups = hitCount + misses.get();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+    
+    /**
+     * Returns the sum of the subtree sizes of every board found by
+     * {@link #isDeadEnd(long)}, which is the number of nodes the hits saved
+     * searching again. Sizes are saturated to sixteen bits, so this is a
+     * lower bound.
+     * 
+     * @return the number of nodes saved
+     */
+    public long getNodesSaved() {
+        return nodesSaved.get();
+    }
+    
+    /**
+     * Returns the number of boards that replaced a board with a smaller
+     * subtree.
+     * 
+     * @return the number of boards evicted
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    /**
+     * Returns the number of boards not stored because every board in their
+     * bucket had a larger subtree.
+     * 
+     * @return the number of boards rejected
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+    
+    /**
+     * Records that a board is a dead end.
+     * 
+     * @param board the board
+     * @param subtreeSize the number of nodes searched to prove it
+     * @return {@code true} if the board is now in the cache
+     * @see #add(long, long)
+     */
+    public boolean add(final Board board, final long subtreeSize) {
+        return add(board.getFingerprint(), subtreeSize);
+    }
+    
+    /**
+     * Records that the board with the given fingerprint is a dead end. If the
+     * bucket is full, the board with the smallest subtree in it is replaced,
+     * unless that subtree is larger than this one.
+     * 
+     * @param fingerprint the fingerprint of the board
+     * @param subtreeSize the number of nodes searched to prove it
+     * @return {@code true} if the board is now in the cache
+     */
+    public boolean add(final long fingerprint, final long subtreeSize) {
+        if (subtreeSize < 1) {
+            throw new IllegalArgumentException("Subtree size must be positive: " + subtreeSize);
+        }
+        final long key = fingerprint & KEY_MASK;
+        final long entry = key | Math.min(subtreeSize, WEIGHT_MASK);
+        final int start = bucketOf(fingerprint);
+        int victim = -1;
+        long victimEntry = EMPTY;
+        for (int index = start; index < start + BUCKET_SIZE; index++ ) {
+            long current = slots.get(index);
+            if (current == EMPTY) {
+                if (slots.compareAndSet(index, EMPTY, entry)) {
+                    size.incrementAndGet();
+                    return true;
+                }
+                // Lost the race for this slot, see who won.
+                current = slots.get(index);
+            }
+            if ((current & KEY_MASK) == key) {
+                return true;
+            }
+            if (victim < 0 || (current & WEIGHT_MASK) < (victimEntry & WEIGHT_MASK)) {
+                victim = index;
+                victimEntry = current;
+            }
+        }
+        if ((victimEntry & WEIGHT_MASK) <= (entry & WEIGHT_MASK)
+                && slots.compareAndSet(victim, victimEntry, entry)) {
+            evictions.incrementAndGet();
+            return true;
+        }
+        rejections.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     * Returns whether a board has been proven to be a dead end, and counts
+     * the lookup as a hit or a miss.
+     * 
+     * @param board the board
+     * @return {@code true} if the board is a dead end
+     * @see #isDeadEnd(long)
+     */
+    public boolean isDeadEnd(final Board board) {
+        return isDeadEnd(board.getFingerprint());
+    }
+    
+    /**
+     * Returns whether the board with the given fingerprint has been proven to
+     * be a dead end, and counts the lookup as a hit or a miss.
+     * 
+     * @param fingerprint the fingerprint of the board
+     * @return {@code true} if the board is a dead end
+     */
+    public boolean isDeadEnd(final long fingerprint) {
+        final long key = fingerprint & KEY_MASK;
+        final int start = bucketOf(fingerprint);
+        for (int index = start; index < start + BUCKET_SIZE; index++ ) {
+            final long current = slots.get(index);
+            if (current == EMPTY) {
+                // Slots are filled in order and never emptied.
+                break;
+            }
+            if ((current & KEY_MASK) == key) {
+                hits.incrementAndGet();
+                nodesSaved.addAndGet(current & WEIGHT_MASK);
+                return true;
+            }
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     * Returns whether the board with the given fingerprint has been proven to
+     * be a dead end. This does not affect the hit and miss counters.
+     * 
+     * @param fingerprint the fingerprint of the board
+     * @return {@code true} if the board is a dead end
+     */
+    public boolean contains(final long fingerprint) {
+        final long key = fingerprint & KEY_MASK;
+        final int start = bucketOf(fingerprint);
+        for (int index = start; index < start + BUCKET_SIZE; index++ ) {
+            final long current = slots.get(index);
+            if (current == EMPTY) {
+                break;
+            }
+            if ((current & KEY_MASK) == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private int bucketOf(final long fingerprint) {
+        return ((int) fingerprint & bucketMask) * BUCKET_SIZE;
+    }
+    
+}
@@ -0,0 +1,218 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * A single-threaded depth-first search that walks the game tree by making and
+ * taking back moves on one {@link MutableBoard}. No {@link Board} or
+ * {@link GameState} is created while searching. When a solution is found the
+ * moves on the current path are replayed on immutable boards to report it.
+ * <p>
+ * Children are searched in the order {@link Solitaire#findAllMoves} returns
+ * them, which is the same order the {@link org.silnith.game.solitaire.Searcher}
+ * visits them. Boards that repeat a board on the current path are skipped, as
+ * are boards already in the transposition table, if there is one.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class DepthFirstSearcher implements CancellableSearch {
+    
+    private final Solitaire game;
+    
+    private final GameState<SolitaireMove, Board> startNode;
+    
+    private final TranspositionTable transpositionTable;
+    
+    private final AtomicLong nodesSearched;
+    
+    private final AtomicInteger maxDepthSearched;
+    
+    private final AtomicLong cyclesDetected;
+    
+    private final Collection<GameState<SolitaireMove, Board>> solutions;
+    
+    private final AtomicBoolean cancelled;
+    
+    /**
+     * Constructs a new depth-first searcher.
+     * 
+     * @param game the game
+     * @param startNode the starting position
+     * @param transpositionTable the boards already visited, or {@code null}
+     */
+    public DepthFirstSearcher(final Solitaire game, final GameState<SolitaireMove, Board> startNode,
+            final TranspositionTable transpositionTable) {
+        super();
+        this.game = game;
+        this.startNode = startNode;
+        this.transpositionTable = transpositionTable;
+        this.nodesSearched = new AtomicLong();
+        this.maxDepthSearched = new AtomicInteger();
+        this.cyclesDetected = new AtomicLong();
+        this.solutions = new CopyOnWriteArrayList<>();
+        this.cancelled = new AtomicBoolean();
+        if (transpositionTable != null) {
+            transpositionTable.add(game.getFingerprint(startNode.getBoards().getFirst()));
+        }
+    }
+    
+    public long getNodesSearched() {
+        return nodesSearched.get();
+    }
+    
+    /**
+     * Returns the greatest number of moves made from the start node.
+     * 
+     * @return the maximum depth searched
+     */
+    public int getMaxDepthSearched() {
+        return maxDepthSearched.get();
+    }
+    
+    public long getCyclesDetected() {
+        return cyclesDetected.get();
+    }
+    
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+    
+    @Override
+    public Collection<GameState<SolitaireMove, Board>> getSolutions() {
+        return Collections.unmodifiableCollection(solutions);
+    }
+    
+    @Override
+    public boolean cancel() {
+        return cancelled.compareAndSet(false, true);
+    }
+    
+    /**
+     * Returns whether the whole tree was searched. The search only stops early
+     * when cancelled.
+     * 
+     * @return {@code true} if the search was not cancelled
+     */
+    @Override
+    public boolean isExhausted() {
+        return !cancelled.get();
+    }
+    
+    /**
+     * Searches the whole tree below the start node, unless cancelled.
+     */
+    @Override
+    public void run() {
+        final MutableBoard board = new MutableBoard(startNode.getBoards().getFirst());
+        final SolitaireMove startMove = startNode.getMoves().getFirst();
+        
+        /*
+         * The moves made from the start node, and for each depth the
+         * fingerprint of the board there, the moves found there, and the index
+         * of the next of those moves to try.
+         */
+        SolitaireMove[] path = new SolitaireMove[64];
+        long[] fingerprints = new long[64];
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        List<SolitaireMove>[] moves = new List[64];
+        int[] nextMove = new int[64];
+        
+        int depth = 0;
+        fingerprints[0] = game.getFingerprint(board);
+        moves[0] = game.findAllMoves(board);
+        nextMove[0] = 0;
+        nodesSearched.incrementAndGet();
+        while (depth >= 0 && !cancelled.get()) {
+            if (nextMove[depth] == moves[depth].size()) {
+                // Every child has been searched, so back up.
+                moves[depth] = null;
+                depth-- ;
+                if (depth >= 0) {
+                    board.undo(path[depth]);
+                }
+                continue;
+            }
+            final SolitaireMove move = moves[depth].get(nextMove[depth]++ );
+            final SolitaireMove previousMove = depth == 0 ? startMove : path[depth - 1];
+            if (game.isPrunedAfter(previousMove, move)) {
+                continue;
+            }
+            
+            board.apply(move);
+            path[depth] = move;
+            if (game.isWin(board)) {
+                reportSolution(path, depth + 1);
+                board.undo(move);
+                continue;
+            }
+            final long fingerprint = game.getFingerprint(board);
+            if (isOnPath(fingerprints, depth, fingerprint)) {
+                cyclesDetected.incrementAndGet();
+                board.undo(move);
+                continue;
+            }
+            if (transpositionTable != null && !transpositionTable.add(fingerprint)) {
+                board.undo(move);
+                continue;
+            }
+            
+            depth++ ;
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, 2 * depth);
+                fingerprints = Arrays.copyOf(fingerprints, 2 * depth);
+                moves = Arrays.copyOf(moves, 2 * depth);
+                nextMove = Arrays.copyOf(nextMove, 2 * depth);
+            }
+            fingerprints[depth] = fingerprint;
+            moves[depth] = game.findAllMoves(board);
+            nextMove[depth] = 0;
+            nodesSearched.incrementAndGet();
+            setMaxDepthSearched(depth);
+        }
+    }
+    
+    private static boolean isOnPath(final long[] fingerprints, final int depth, final long fingerprint) {
+        for (int i = 0; i <= depth; i++ ) {
+            if (fingerprints[i] == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void setMaxDepthSearched(final int depth) {
+        if (depth > maxDepthSearched.get()) {
+            maxDepthSearched.set(depth);
+        }
+    }
+    
+    /**
+     * Replays the moves on the path from the start node to build the game
+     * state for a solution.
+     */
+    private void reportSolution(final SolitaireMove[] path, final int length) {
+        GameState<SolitaireMove, Board> node = startNode;
+        Board board = startNode.getBoards().getFirst();
+        for (int i = 0; i < length; i++ ) {
+            board = path[i].apply(board);
+            node = new GameState<>(node, path[i], board);
+        }
+        solutions.add(node);
+        setMaxDepthSearched(length);
+    }
+    
+}
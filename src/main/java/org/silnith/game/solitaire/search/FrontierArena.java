@@ -0,0 +1,556 @@
+package org.silnith.game.solitaire.search;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.CardIds;
+import org.silnith.game.solitaire.move.AdvanceDrawPileMove;
+import org.silnith.game.solitaire.move.AutoPlayMove;
+import org.silnith.game.solitaire.move.DrawToGoalMove;
+import org.silnith.game.solitaire.move.DrawToPileMove;
+import org.silnith.game.solitaire.move.FlipAndDrawMove;
+import org.silnith.game.solitaire.move.GoalToPileMove;
+import org.silnith.game.solitaire.move.PileToGoalMove;
+import org.silnith.game.solitaire.move.ResetDrawPileMove;
+import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.move.StackMove;
+import org.silnith.util.LinkedNode;
+
+
+/**
+ * A double-ended queue of search nodes waiting to be expanded, held outside
+ * of the Java heap. Each node is stored as a fixed-size record holding its
+ * board, packed by {@link Board#writeTo(ByteBuffer, int)}, the move that led
+ * to it, packed into an {@code int}, and a handle for the history it extends.
+ * A node is turned back into a {@link GameState} only when it is taken out of
+ * the queue to be expanded.
+ * <p>
+ * The histories are held outside of the heap as well, one record for each
+ * node above a waiting node, in the same layout. Every child of a node
+ * refers to the record of that node, and each record is kept until the last
+ * node below it has been taken out and released. Taking a node out rebuilds
+ * its whole history from the start node down, so the heap only holds the
+ * histories of the nodes being expanded, at the cost of unpacking a board for
+ * every move made to reach each node.
+ * <p>
+ * Waiting nodes are kept in a ring buffer in a direct {@link ByteBuffer}, and
+ * histories in another, and each doubles in size when full. {@link #pop()}
+ * takes the most recently pushed node and {@link #steal()} the least recently
+ * pushed one. All methods are synchronized.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class FrontierArena {
+    
+    private static final int PARENT_OFFSET = 0;
+    
+    private static final int MOVE_OFFSET = PARENT_OFFSET + Integer.BYTES;
+    
+    private static final int BOARD_OFFSET = MOVE_OFFSET + Integer.BYTES;
+    
+    /**
+     * The handle of the history of the start node, which is not stored.
+     */
+    private static final int START_HISTORY = -1;
+    
+    private static final int INITIAL_HISTORY_CAPACITY = 16;
+    
+    /*
+     * A move is packed as a type in the top byte and up to three small
+     * arguments in the lower bytes. Cards are stored as card identifiers.
+     */
+    private static final int START = 0;
+    
+    private static final int ADVANCE_DRAW_PILE = 1;
+    
+    private static final int RESET_DRAW_PILE = 2;
+    
+    private static final int STACK = 3;
+    
+    private static final int PILE_TO_GOAL = 4;
+    
+    private static final int DRAW_TO_PILE = 5;
+    
+    private static final int DRAW_TO_GOAL = 6;
+    
+    private static final int GOAL_TO_PILE = 7;
+    
+    private static final int FLIP_AND_DRAW_TO_PILE = 8;
+    
+    private static final int FLIP_AND_DRAW_TO_GOAL = 9;
+    
+    /**
+     * Added to the type of a flip and draw move that resets the draw pile.
+     */
+    private static final int RESET = 0x40;
+    
+    /**
+     * Added to the type of a move that is followed by safe moves to the goal.
+     * Those moves are worked out again when the move is unpacked.
+     */
+    private static final int AUTO_PLAY = 0x80;
+    
+    private final GameState<SolitaireMove, Board> startNode;
+    
+    private final Board startBoard;
+    
+    private final int recordSize;
+    
+    private ByteBuffer records;
+    
+    /**
+     * The number of records {@link #records} has room for.
+     */
+    private int capacity;
+    
+    /**
+     * The slot of the least recently pushed record.
+     */
+    private int head;
+    
+    private int size;
+    
+    /**
+     * The most records, of waiting nodes and histories together, ever in use
+     * at once.
+     */
+    private int maxRecordsUsed;
+    
+    /*
+     * The histories that nodes extend, indexed by handle, with the number of
+     * records and nodes taken out that refer to each one. Unused handles are
+     * kept on a stack.
+     */
+    private ByteBuffer histories;
+    
+    private int[] historyReferences;
+    
+    private int[] freeHistories;
+    
+    private int numberOfFreeHistories;
+    
+    private int numberOfHistories;
+    
+    /**
+     * The handle of the history each node taken out extends, by the moves of
+     * that history, until the node is released. The children of the node are
+     * found here when they are pushed, so that the history is not stored
+     * again.
+     */
+    private final Map<LinkedNode<SolitaireMove>, Integer> takenOut;
+    
+    /**
+     * The handles of a history being rebuilt, from the newest.
+     */
+    private int[] chain;
+    
+    /**
+     * Constructs an empty arena for the nodes below a start node.
+     * 
+     * @param startNode the node at the root of the search
+     * @param initialCapacity the number of records to allocate room for
+     *        initially
+     */
+    public FrontierArena(final GameState<SolitaireMove, Board> startNode, final int initialCapacity) {
+        super();
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be positive: " + initialCapacity);
+        }
+        this.startNode = startNode;
+        this.startBoard = startNode.getBoards().getFirst();
+        this.recordSize = BOARD_OFFSET + Board.getPackedSize(startBoard.getNumberOfPiles());
+        this.records = ByteBuffer.allocateDirect(initialCapacity * recordSize);
+        this.capacity = initialCapacity;
+        this.head = 0;
+        this.size = 0;
+        this.maxRecordsUsed = 0;
+        this.histories = ByteBuffer.allocateDirect(INITIAL_HISTORY_CAPACITY * recordSize);
+        this.historyReferences = new int[INITIAL_HISTORY_CAPACITY];
+        this.freeHistories = new int[INITIAL_HISTORY_CAPACITY];
+        this.numberOfFreeHistories = 0;
+        this.numberOfHistories = 0;
+        this.takenOut = new IdentityHashMap<>();
+        this.chain = new int[64];
+    }
+    
+    /**
+     * Returns the number of nodes waiting.
+     * 
+     * @return the number of nodes in the arena
+     */
+    public synchronized int size() {
+        return size;
+    }
+    
+    /**
+     * Returns whether no nodes are waiting.
+     * 
+     * @return {@code true} if the arena is empty
+     */
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Returns the number of bytes used by the records of the waiting nodes
+     * and of the histories still in use.
+     * 
+     * @return the bytes in use
+     */
+    public synchronized long getBytesUsed() {
+        return (long) getRecordsUsed() * recordSize;
+    }
+    
+    /**
+     * Returns the number of bytes used when the most records were in use.
+     * 
+     * @return the peak bytes in use
+     */
+    public synchronized long getMaxBytesUsed() {
+        return (long) maxRecordsUsed * recordSize;
+    }
+    
+    /**
+     * Returns the number of bytes allocated outside of the heap for records.
+     * 
+     * @return the bytes allocated
+     */
+    public synchronized long getBytesAllocated() {
+        return ((long) capacity + historyReferences.length) * recordSize;
+    }
+    
+    /**
+     * Returns the number of bytes in each record, which is enough for any
+     * board of the deal along with its move and history.
+     * 
+     * @return the size of a record, in bytes
+     */
+    public int getRecordSize() {
+        return recordSize;
+    }
+    
+    /**
+     * Adds nodes to the arena, in order, so that the last node in the list is
+     * the first one {@link #pop()} returns. Each node must be the start node
+     * or a node below it.
+     * 
+     * @param nodes the nodes to add
+     */
+    public synchronized void push(final List<GameState<SolitaireMove, Board>> nodes) {
+        if (size + nodes.size() > capacity) {
+            grow(size + nodes.size());
+        }
+        LinkedNode<SolitaireMove> previousHistory = null;
+        int parent = START_HISTORY;
+        for (final GameState<SolitaireMove, Board> node : nodes) {
+            final int offset = getOffset(size);
+            if (node == startNode) {
+                records.putInt(offset + PARENT_OFFSET, START_HISTORY);
+                records.putInt(offset + MOVE_OFFSET, START << 24);
+            } else {
+                /*
+                 * Siblings extend the same history, so consecutive nodes
+                 * usually share a handle.
+                 */
+                final LinkedNode<SolitaireMove> history = node.getMoves().getNext();
+                if (history == null || history != previousHistory) {
+                    parent = findHistory(history, node.getBoards().getNext());
+                    previousHistory = history;
+                }
+                retain(parent);
+                write(records, offset, parent, node.getMoves().getFirst(), node.getBoards().getFirst());
+            }
+            size++ ;
+        }
+        if (getRecordsUsed() > maxRecordsUsed) {
+            maxRecordsUsed = getRecordsUsed();
+        }
+    }
+    
+    /**
+     * Removes and returns the most recently added node. The node must be
+     * {@linkplain #release(GameState) released} once its children have been
+     * pushed.
+     * 
+     * @return the newest node, or {@code null} if the arena is empty
+     */
+    public synchronized GameState<SolitaireMove, Board> pop() {
+        if (size == 0) {
+            return null;
+        }
+        size-- ;
+        return read(getOffset(size));
+    }
+    
+    /**
+     * Removes and returns the least recently added node. In a depth-first
+     * search this is the shallowest node, with the largest subtree. The node
+     * must be {@linkplain #release(GameState) released} once its children have
+     * been pushed.
+     * 
+     * @return the oldest node, or {@code null} if the arena is empty
+     */
+    public synchronized GameState<SolitaireMove, Board> steal() {
+        if (size == 0) {
+            return null;
+        }
+        final GameState<SolitaireMove, Board> node = read(getOffset(0));
+        head = (head + 1) % capacity;
+        size-- ;
+        return node;
+    }
+    
+    /**
+     * Lets go of the history of a node taken out of the arena. Until then the
+     * history is kept, so that the children of the node can refer to it
+     * without storing it again.
+     * 
+     * @param node a node returned by {@link #pop()} or {@link #steal()}
+     */
+    public synchronized void release(final GameState<SolitaireMove, Board> node) {
+        final Integer handle = takenOut.remove(node.getMoves().getNext());
+        if (handle != null) {
+            dropHistory(handle);
+        }
+    }
+    
+    private int getOffset(final int index) {
+        return (head + index) % capacity * recordSize;
+    }
+    
+    private int getRecordsUsed() {
+        return size + numberOfHistories - numberOfFreeHistories;
+    }
+    
+    private void grow(final int minCapacity) {
+        final long newCapacity = Math.max(2L * capacity, minCapacity);
+        if (newCapacity * recordSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Frontier arena full: " + size + " nodes");
+        }
+        final ByteBuffer newRecords = ByteBuffer.allocateDirect((int) newCapacity * recordSize);
+        // Copy the ring buffer in order so the records start at slot zero.
+        final int firstPart = Math.min(size, capacity - head);
+        newRecords.put(0, records, head * recordSize, firstPart * recordSize);
+        newRecords.put(firstPart * recordSize, records, 0, (size - firstPart) * recordSize);
+        records = newRecords;
+        capacity = (int) newCapacity;
+        head = 0;
+    }
+    
+    /**
+     * Returns the handle of a history, first storing whatever part of it is
+     * not in the arena yet.
+     */
+    private int findHistory(final LinkedNode<SolitaireMove> moves, final LinkedNode<Board> boards) {
+        final List<LinkedNode<SolitaireMove>> newMoves = new ArrayList<>();
+        final List<LinkedNode<Board>> newBoards = new ArrayList<>();
+        LinkedNode<SolitaireMove> currentMoves = moves;
+        LinkedNode<Board> currentBoards = boards;
+        int parent;
+        while (true) {
+            if (currentMoves == null) {
+                throw new IllegalArgumentException("Not below the start node: " + moves);
+            }
+            if (currentMoves == startNode.getMoves()) {
+                parent = START_HISTORY;
+                break;
+            }
+            final Integer handle = takenOut.get(currentMoves);
+            if (handle != null) {
+                parent = handle;
+                break;
+            }
+            newMoves.add(currentMoves);
+            newBoards.add(currentBoards);
+            currentMoves = currentMoves.getNext();
+            currentBoards = currentBoards.getNext();
+        }
+        for (int i = newMoves.size() - 1; i >= 0; i-- ) {
+            final int handle = addHistory();
+            retain(parent);
+            write(histories, handle * recordSize, parent, newMoves.get(i).getFirst(), newBoards.get(i).getFirst());
+            parent = handle;
+        }
+        return parent;
+    }
+    
+    private int addHistory() {
+        if (numberOfFreeHistories > 0) {
+            final int handle = freeHistories[ --numberOfFreeHistories];
+            historyReferences[handle] = 0;
+            return handle;
+        }
+        if (numberOfHistories == historyReferences.length) {
+            final long newLength = 2L * numberOfHistories;
+            if (newLength * recordSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Frontier arena full: " + numberOfHistories + " histories");
+            }
+            final ByteBuffer newHistories = ByteBuffer.allocateDirect((int) newLength * recordSize);
+            newHistories.put(0, histories, 0, numberOfHistories * recordSize);
+            histories = newHistories;
+            historyReferences = Arrays.copyOf(historyReferences, (int) newLength);
+            freeHistories = Arrays.copyOf(freeHistories, (int) newLength);
+        }
+        historyReferences[numberOfHistories] = 0;
+        return numberOfHistories++ ;
+    }
+    
+    private void retain(final int handle) {
+        if (handle != START_HISTORY) {
+            historyReferences[handle]++ ;
+        }
+    }
+    
+    /**
+     * Removes a reference to a history, and frees it if that was the last,
+     * along with any history above it that nothing else refers to.
+     */
+    private void dropHistory(final int handle) {
+        int current = handle;
+        while (current != START_HISTORY && --historyReferences[current] == 0) {
+            freeHistories[numberOfFreeHistories++ ] = current;
+            current = histories.getInt(current * recordSize + PARENT_OFFSET);
+        }
+    }
+    
+    private void write(final ByteBuffer buffer, final int offset, final int parent, final SolitaireMove move,
+            final Board board) {
+        buffer.putInt(offset + PARENT_OFFSET, parent);
+        buffer.putInt(offset + MOVE_OFFSET, pack(move));
+        board.writeTo(buffer, offset + BOARD_OFFSET);
+    }
+    
+    /**
+     * Rebuilds the node of a record. The reference the record held to its
+     * history passes to the node, until it is released.
+     */
+    private GameState<SolitaireMove, Board> read(final int offset) {
+        final int packedMove = records.getInt(offset + MOVE_OFFSET);
+        if (packedMove == START << 24) {
+            return startNode;
+        }
+        final int parent = records.getInt(offset + PARENT_OFFSET);
+        final GameState<SolitaireMove, Board> history = readHistory(parent);
+        if (parent != START_HISTORY) {
+            takenOut.put(history.getMoves(), parent);
+        }
+        final Board previousBoard = history.getBoards().getFirst();
+        final SolitaireMove move = unpack(packedMove, previousBoard);
+        final Board board = Board.readFrom(records, offset + BOARD_OFFSET, previousBoard);
+        return new GameState<>(new LinkedNode<>(move, history.getMoves()),
+                new LinkedNode<>(board, history.getBoards()));
+    }
+    
+    /**
+     * Rebuilds a history from the start node down.
+     */
+    private GameState<SolitaireMove, Board> readHistory(final int handle) {
+        int depth = 0;
+        for (int current = handle; current != START_HISTORY;
+                current = histories.getInt(current * recordSize + PARENT_OFFSET)) {
+            if (depth == chain.length) {
+                chain = Arrays.copyOf(chain, 2 * depth);
+            }
+            chain[depth++ ] = current;
+        }
+        LinkedNode<SolitaireMove> moves = startNode.getMoves();
+        LinkedNode<Board> boards = startNode.getBoards();
+        while (depth > 0) {
+            final int offset = chain[ --depth] * recordSize;
+            final Board previousBoard = boards.getFirst();
+            moves = new LinkedNode<>(unpack(histories.getInt(offset + MOVE_OFFSET), previousBoard), moves);
+            boards = new LinkedNode<>(Board.readFrom(histories, offset + BOARD_OFFSET, previousBoard), boards);
+        }
+        return new GameState<>(moves, boards);
+    }
+    
+    private static int pack(final int type, final int first, final int second, final int third) {
+        return type << 24 | first << 16 | second << 8 | third;
+    }
+    
+    private static int pack(final SolitaireMove move) {
+        if (move instanceof AutoPlayMove) {
+            return pack(((AutoPlayMove) move).getMove()) | AUTO_PLAY << 24;
+        } else if (move instanceof FlipAndDrawMove) {
+            final FlipAndDrawMove flipAndDraw = (FlipAndDrawMove) move;
+            final int reset = flipAndDraw.isReset() ? RESET << 24 : 0;
+            final SolitaireMove draw = flipAndDraw.getDraw();
+            if (draw instanceof DrawToPileMove) {
+                return pack(FLIP_AND_DRAW_TO_PILE, flipAndDraw.getDrawIndex(),
+                        ((DrawToPileMove) draw).getDestinationPile(), flipAndDraw.getFlips()) | reset;
+            } else {
+                return pack(FLIP_AND_DRAW_TO_GOAL, flipAndDraw.getDrawIndex(), flipAndDraw.getFlips(), 0) | reset;
+            }
+        } else if (move instanceof AdvanceDrawPileMove) {
+            final AdvanceDrawPileMove advance = (AdvanceDrawPileMove) move;
+            return pack(ADVANCE_DRAW_PILE, advance.getBeginningIndex(), advance.getIncrement(), 0);
+        } else if (move instanceof ResetDrawPileMove) {
+            return pack(RESET_DRAW_PILE, ((ResetDrawPileMove) move).getSourceIndex(), 0, 0);
+        } else if (move instanceof StackMove) {
+            final StackMove stack = (StackMove) move;
+            return pack(STACK, stack.getSourcePile(), stack.getDestinationPile(), stack.getNumberOfCards());
+        } else if (move instanceof PileToGoalMove) {
+            final PileToGoalMove toGoal = (PileToGoalMove) move;
+            return pack(PILE_TO_GOAL, toGoal.getSourcePile(), CardIds.getId(toGoal.getCard()), 0);
+        } else if (move instanceof DrawToPileMove) {
+            final DrawToPileMove draw = (DrawToPileMove) move;
+            return pack(DRAW_TO_PILE, draw.getSourceIndex(), draw.getDestinationPile(),
+                    CardIds.getId(draw.getCard()));
+        } else if (move instanceof DrawToGoalMove) {
+            final DrawToGoalMove draw = (DrawToGoalMove) move;
+            return pack(DRAW_TO_GOAL, draw.getSourceIndex(), CardIds.getId(draw.getCard()), 0);
+        } else if (move instanceof GoalToPileMove) {
+            final GoalToPileMove fromGoal = (GoalToPileMove) move;
+            return pack(GOAL_TO_PILE, fromGoal.getDestinationPile(), CardIds.getId(fromGoal.getCard()), 0);
+        } else {
+            throw new IllegalArgumentException("Cannot pack move: " + move);
+        }
+    }
+    
+    /**
+     * Unpacks a move.
+     * 
+     * @param packed the packed move
+     * @param board the board the move was made on
+     */
+    private static SolitaireMove unpack(final int packed, final Board board) {
+        final int first = packed >>> 16 & 0xFF;
+        final int second = packed >>> 8 & 0xFF;
+        final int third = packed & 0xFF;
+        if ((packed >>> 24 & AUTO_PLAY) != 0) {
+            return AutoPlayMove.after(board, unpack(packed & ~(AUTO_PLAY << 24), board));
+        }
+        final boolean reset = (packed >>> 24 & RESET) != 0;
+        switch (packed >>> 24 & ~RESET) {
+        case ADVANCE_DRAW_PILE:
+            return new AdvanceDrawPileMove(first, second);
+        case RESET_DRAW_PILE:
+            return new ResetDrawPileMove(first);
+        case STACK:
+            return new StackMove(first, second, third, board.getTopCards(first, third));
+        case PILE_TO_GOAL:
+            return new PileToGoalMove(first, CardIds.getCard(second));
+        case DRAW_TO_PILE:
+            return new DrawToPileMove(first, second, CardIds.getCard(third));
+        case DRAW_TO_GOAL:
+            return new DrawToGoalMove(first, CardIds.getCard(second));
+        case GOAL_TO_PILE:
+            return new GoalToPileMove(first, CardIds.getCard(second));
+        case FLIP_AND_DRAW_TO_PILE:
+            return new FlipAndDrawMove(board.getDrawIndex(), board.getDrawPileSize(), reset, third,
+                    new DrawToPileMove(first, second, board.getDrawPileCard(first - 1)));
+        case FLIP_AND_DRAW_TO_GOAL:
+            return new FlipAndDrawMove(board.getDrawIndex(), board.getDrawPileSize(), reset, second,
+                    new DrawToGoalMove(first, board.getDrawPileCard(first - 1)));
+        default:
+            throw new IllegalStateException("Corrupt move: " + packed);
+        }
+    }
+    
+}
@@ -0,0 +1,23 @@
+package org.silnith.game.solitaire.search;
+
+import org.silnith.game.solitaire.ReadableBoard;
+
+
+/**
+ * An estimate of the number of moves still needed to win from a board, used
+ * by the search strategies that look at the most promising boards first.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public interface Heuristic {
+    
+    /**
+     * Returns the estimated number of moves needed to win from a board. The
+     * estimate for a board that has been won is zero.
+     * 
+     * @param board the board
+     * @return the estimated number of moves to win
+     */
+    public int estimate(ReadableBoard board);
+    
+}
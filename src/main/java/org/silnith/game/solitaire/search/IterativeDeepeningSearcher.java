@@ -0,0 +1,232 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * An iterative-deepening A* search for the shortest solutions. Each iteration
+ * is a depth-first search that abandons a node once the moves made to reach it
+ * plus the {@link Heuristic heuristic} estimate of the moves still needed
+ * exceed a threshold, with moves counted by
+ * {@link Solitaire#getLength(GameState)}. The first threshold is the estimate
+ * for the start node, and each later one is the smallest total that exceeded
+ * the one before.
+ * <p>
+ * If the heuristic never overestimates, the solutions found in the first
+ * iteration that finds any are the shortest ones, and the search stops after
+ * that iteration. The search only holds the path it is on, so it needs
+ * memory in proportion to the length of a solution. Boards that repeat along
+ * the path are pruned by {@link Solitaire#pruneGameState(GameState)}. No
+ * transposition table is used, since a board reached again by a shorter path
+ * must be searched again.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class IterativeDeepeningSearcher implements CancellableSearch {
+    
+    private final Solitaire game;
+    
+    private final GameState<SolitaireMove, Board> startNode;
+    
+    private final Heuristic heuristic;
+    
+    private final AtomicLong nodesSearched;
+    
+    private final List<Integer> thresholds;
+    
+    private final List<Long> nodesPerIteration;
+    
+    private final Collection<GameState<SolitaireMove, Board>> solutions;
+    
+    private int maxThreshold;
+    
+    private final AtomicBoolean cancelled;
+    
+    private volatile boolean exhausted;
+    
+    /**
+     * Constructs a new iterative-deepening searcher.
+     * 
+     * @param game the game
+     * @param startNode the starting position
+     * @param heuristic a lower bound on the number of moves to win
+     */
+    public IterativeDeepeningSearcher(final Solitaire game, final GameState<SolitaireMove, Board> startNode,
+            final Heuristic heuristic) {
+        super();
+        this.game = game;
+        this.startNode = startNode;
+        this.heuristic = heuristic;
+        this.nodesSearched = new AtomicLong();
+        this.thresholds = new CopyOnWriteArrayList<>();
+        this.nodesPerIteration = new CopyOnWriteArrayList<>();
+        this.solutions = new CopyOnWriteArrayList<>();
+        this.maxThreshold = Integer.MAX_VALUE;
+        this.cancelled = new AtomicBoolean();
+        this.exhausted = false;
+    }
+    
+    public long getNodesSearched() {
+        return nodesSearched.get();
+    }
+    
+    /**
+     * Returns the threshold used for each iteration, in order.
+     * 
+     * @return the thresholds
+     */
+    public List<Integer> getThresholds() {
+        return Collections.unmodifiableList(thresholds);
+    }
+    
+    /**
+     * Returns the number of nodes searched in each iteration, in order. An
+     * iteration still in progress is not included.
+     * 
+     * @return the nodes searched per iteration
+     */
+    public List<Long> getNodesPerIteration() {
+        return Collections.unmodifiableList(nodesPerIteration);
+    }
+    
+    @Override
+    public Collection<GameState<SolitaireMove, Board>> getSolutions() {
+        return Collections.unmodifiableCollection(solutions);
+    }
+    
+    @Override
+    public boolean cancel() {
+        return cancelled.compareAndSet(false, true);
+    }
+    
+    /**
+     * Returns whether an iteration searched every node without any total
+     * exceeding its threshold.
+     * 
+     * @return {@code true} if the whole tree was searched
+     */
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+    
+    public int getMaxThreshold() {
+        return maxThreshold;
+    }
+    
+    /**
+     * Sets the greatest threshold to search with. The search gives up rather
+     * than start an iteration with a greater threshold. This must be set
+     * before the search starts.
+     * 
+     * @param maxThreshold the maximum threshold
+     */
+    public void setMaxThreshold(final int maxThreshold) {
+        this.maxThreshold = maxThreshold;
+    }
+    
+    /**
+     * Searches with increasing thresholds until a solution is found, the
+     * whole tree has been searched, the next threshold exceeds the maximum,
+     * or the search is cancelled.
+     */
+    @Override
+    public void run() {
+        int threshold = heuristic.estimate(startNode.getBoards().getFirst());
+        while (threshold <= maxThreshold && !cancelled.get()) {
+            thresholds.add(threshold);
+            final long nodesBefore = nodesSearched.get();
+            final int nextThreshold = search(threshold);
+            nodesPerIteration.add(nodesSearched.get() - nodesBefore);
+            if (cancelled.get()) {
+                return;
+            }
+            if (nextThreshold == Integer.MAX_VALUE) {
+                exhausted = true;
+                return;
+            }
+            if ( !solutions.isEmpty()) {
+                return;
+            }
+            threshold = nextThreshold;
+        }
+    }
+    
+    /**
+     * Searches every node whose estimated total does not exceed the threshold.
+     * 
+     * @param threshold the greatest estimated total to search
+     * @return the smallest estimated total that exceeded the threshold, or
+     *         {@link Integer#MAX_VALUE} if none did
+     */
+    private int search(final int threshold) {
+        final int startDepth = game.getLength(startNode);
+        int nextThreshold = Integer.MAX_VALUE;
+        
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        GameState<SolitaireMove, Board>[] path = new GameState[64];
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        List<SolitaireMove>[] moves = new List[64];
+        int[] nextMove = new int[64];
+        
+        int top = 0;
+        path[0] = startNode;
+        moves[0] = game.findAllMoves(startNode.getBoards().getFirst());
+        nextMove[0] = 0;
+        nodesSearched.incrementAndGet();
+        while (top >= 0 && !cancelled.get()) {
+            if (nextMove[top] == moves[top].size()) {
+                path[top] = null;
+                moves[top] = null;
+                top-- ;
+                continue;
+            }
+            final GameState<SolitaireMove, Board> node = path[top];
+            final SolitaireMove move = moves[top].get(nextMove[top]++ );
+            final Board board = move.apply(node.getBoards().getFirst());
+            final GameState<SolitaireMove, Board> newNode = game.pruneGameState(new GameState<>(node, move, board));
+            if (newNode == null) {
+                continue;
+            }
+            
+            /*
+             * Coalesced draw pile advances replace the previous move, and an
+             * auto-play counts a move for each card, so the depth comes from
+             * the history rather than the stack.
+             */
+            final int total = game.getLength(newNode) - startDepth + heuristic.estimate(board);
+            if (total > threshold) {
+                nextThreshold = Math.min(nextThreshold, total);
+                continue;
+            }
+            if (game.isWin(board)) {
+                solutions.add(newNode);
+                continue;
+            }
+            
+            top++ ;
+            if (top == path.length) {
+                path = Arrays.copyOf(path, 2 * top);
+                moves = Arrays.copyOf(moves, 2 * top);
+                nextMove = Arrays.copyOf(nextMove, 2 * top);
+            }
+            path[top] = newNode;
+            moves[top] = game.findAllMoves(board);
+            nextMove[top] = 0;
+            nodesSearched.incrementAndGet();
+        }
+        return nextThreshold;
+    }
+    
+}
@@ -0,0 +1,80 @@
+package org.silnith.game.solitaire.search;
+
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.game.solitaire.CardIds;
+import org.silnith.game.solitaire.ReadableBoard;
+
+
+/**
+ * A lower bound on the number of moves needed to win, as counted by
+ * {@link org.silnith.game.solitaire.Solitaire#getLength(org.silnith.game.GameState)}.
+ * The estimate never exceeds the true number, so a search guided by it finds
+ * the shortest solutions.
+ * <p>
+ * Every card not yet in the goal needs a move of its own to put it there.
+ * An {@link org.silnith.game.solitaire.move.AutoPlayMove} puts several cards
+ * in the goal, but it is counted as one move for each of them. In addition,
+ * a pile that holds a card above a lower card of the same suit needs a move
+ * that takes cards from it to another pile, since the upper card cannot go to
+ * the goal until the lower card has, and the lower card cannot leave the pile
+ * until the upper card has. Such a move puts nothing in the goal, and it
+ * takes cards from only one pile.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class MinimumMovesHeuristic implements Heuristic {
+    
+    private static final Suit[] SUITS = Suit.values();
+    
+    private static final int CARDS_PER_SUIT = CardIds.NUMBER_OF_CARDS / SUITS.length;
+    
+    @Override
+    public int estimate(final ReadableBoard board) {
+        int moves = 0;
+        for (final Suit suit : SUITS) {
+            moves += CARDS_PER_SUIT - board.getGoalHeight(suit);
+        }
+        final int numberOfPiles = board.getNumberOfPiles();
+        for (int pile = 0; pile < numberOfPiles; pile++ ) {
+            if (isBlocked(board, pile)) {
+                moves++ ;
+            }
+        }
+        return moves;
+    }
+    
+    /**
+     * Returns whether a pile holds a card above a lower card of the same
+     * suit.
+     */
+    private static boolean isBlocked(final ReadableBoard board, final int pile) {
+        // Bit n is set for every card with identifier n below the current card.
+        long below = 0;
+        final int faceDown = board.getNumberOfFaceDownCards(pile);
+        for (int i = 0; i < faceDown; i++ ) {
+            final Card card = board.getFaceDownCard(pile, i);
+            if (isAboveLowerCard(below, card)) {
+                return true;
+            }
+            below |= 1L << CardIds.getId(card);
+        }
+        final int faceUp = board.getNumberOfFaceUpCards(pile);
+        for (int i = 0; i < faceUp; i++ ) {
+            final Card card = board.getFaceUpCard(pile, i);
+            if (isAboveLowerCard(below, card)) {
+                return true;
+            }
+            below |= 1L << CardIds.getId(card);
+        }
+        return false;
+    }
+    
+    private static boolean isAboveLowerCard(final long below, final Card card) {
+        final int ace = CardIds.getId(card.getSuit(), 0);
+        final int rank = CardIds.getId(card) - ace;
+        final long lowerCards = ((1L << rank) - 1) << ace;
+        return (below & lowerCards) != 0;
+    }
+    
+}
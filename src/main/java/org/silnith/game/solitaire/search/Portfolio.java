@@ -0,0 +1,378 @@
+package org.silnith.game.solitaire.search;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * Races several search strategies on the same position. Each strategy runs in
+ * a thread of its own, and they share one budget of CPU time. As soon as one
+ * finds a solution, or proves the deal cannot be won, the others are
+ * cancelled. A strategy that gives up without either, such as a narrow beam,
+ * leaves the others running.
+ * <p>
+ * Running out of boards only proves a deal cannot be won if the strategy
+ * reached every board it skipped by some other path. A search that skips a
+ * board because it was reached before, whether by a transposition table, a
+ * dead-end cache or the duplicates of a beam, may have pruned moves there
+ * that depend on the move made before, and so may miss a win. Such a
+ * strategy gives up when exhausted. Only a strategy added as proving the deal
+ * unsolvable decides it by being exhausted.
+ * <p>
+ * The portfolio counts which strategy decided each position it is given, so
+ * that the mix of strategies can be tuned from real deals.
+ * <p>
+ * Only the thread that runs each strategy is charged for it. A strategy that
+ * hands work to other threads, such as the parallel layers of a
+ * {@link BeamSearcher}, uses more CPU time than is counted.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class Portfolio {
+    
+    /**
+     * How a position was decided.
+     */
+    public enum Outcome {
+        
+        /**
+         * A strategy found a solution.
+         */
+        SOLVED,
+        
+        /**
+         * A strategy that proves a deal unsolvable searched every board it
+         * could reach without a solution.
+         */
+        UNSOLVABLE,
+        
+        /**
+         * The budget ran out, or every strategy gave up, before either.
+         */
+        UNDECIDED
+        
+    }
+    
+    /**
+     * The result of racing the strategies on one position.
+     */
+    public static final class Result {
+        
+        private final Outcome outcome;
+        
+        private final String winner;
+        
+        private final GameState<SolitaireMove, Board> solution;
+        
+        private final long cpuNanos;
+        
+        private final long wallNanos;
+        
+        public Result(final Outcome outcome, final String winner, final GameState<SolitaireMove, Board> solution,
+                final long cpuNanos, final long wallNanos) {
+            super();
+            this.outcome = outcome;
+            this.winner = winner;
+            this.solution = solution;
+            this.cpuNanos = cpuNanos;
+            this.wallNanos = wallNanos;
+        }
+        
+        public Outcome getOutcome() {
+            return outcome;
+        }
+        
+        /**
+         * Returns the name of the strategy that decided the position.
+         * 
+         * @return the winning strategy, or {@code null} if undecided
+         */
+        public String getWinner() {
+            return winner;
+        }
+        
+        /**
+         * Returns the solution found by the winner.
+         * 
+         * @return the solution, or {@code null} if not solved
+         */
+        public GameState<SolitaireMove, Board> getSolution() {
+            return solution;
+        }
+        
+        /**
+         * Returns the CPU time used by all the strategies together.
+         * 
+         * @return the CPU time, in nanoseconds
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+        
+        public long getWallNanos() {
+            return wallNanos;
+        }
+        
+        @Override
+        public String toString() {
+            return outcome + (winner == null ? "" : " by " + winner) + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(cpuNanos) + " ms CPU";
+        }
+        
+    }
+    
+    /**
+     * How often the budget is checked while the strategies run.
+     */
+    private static final long POLL_MILLIS = 10;
+    
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    
+    private final Map<String, Function<GameState<SolitaireMove, Board>, CancellableSearch>> strategies;
+    
+    /**
+     * The names of the strategies whose exhaustion proves a deal cannot be
+     * won.
+     */
+    private final Set<String> proving;
+    
+    private final long cpuBudgetNanos;
+    
+    private final Map<String, AtomicLong> wins;
+    
+    private final AtomicLong undecided;
+    
+    /**
+     * Constructs a new portfolio with no strategies.
+     * 
+     * @param cpuBudget the CPU time all the strategies may use together on one
+     *        position
+     * @param unit the unit of {@code cpuBudget}
+     */
+    public Portfolio(final long cpuBudget, final TimeUnit unit) {
+        super();
+        if (cpuBudget <= 0) {
+            throw new IllegalArgumentException("CPU budget must be positive: " + cpuBudget);
+        }
+        this.strategies = new LinkedHashMap<>();
+        this.proving = new HashSet<>();
+        this.cpuBudgetNanos = unit.toNanos(cpuBudget);
+        this.wins = new ConcurrentHashMap<>();
+        this.undecided = new AtomicLong();
+    }
+    
+    /**
+     * Adds a strategy that can only decide a position by solving it. This
+     * must be done before any position is solved.
+     * 
+     * @param name the name to report the strategy by
+     * @param factory makes a search of the strategy from a starting position
+     */
+    public void addStrategy(final String name,
+            final Function<GameState<SolitaireMove, Board>, CancellableSearch> factory) {
+        addStrategy(name, factory, false);
+    }
+    
+    /**
+     * Adds a strategy. This must be done before any position is solved.
+     * 
+     * @param name the name to report the strategy by
+     * @param factory makes a search of the strategy from a starting position
+     * @param provesUnsolvable whether the search being exhausted without a
+     *        solution proves the position cannot be won
+     */
+    public void addStrategy(final String name,
+            final Function<GameState<SolitaireMove, Board>, CancellableSearch> factory,
+            final boolean provesUnsolvable) {
+        if (strategies.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate strategy: " + name);
+        }
+        strategies.put(name, factory);
+        if (provesUnsolvable) {
+            proving.add(name);
+        }
+        wins.put(name, new AtomicLong());
+    }
+    
+    /**
+     * Returns whether a strategy decides a position by being exhausted.
+     * 
+     * @param name the name of the strategy
+     * @return {@code true} if the exhaustion of the strategy proves a
+     *         position cannot be won
+     */
+    public boolean provesUnsolvable(final String name) {
+        return proving.contains(name);
+    }
+    
+    public List<String> getStrategies() {
+        return Collections.unmodifiableList(new ArrayList<>(strategies.keySet()));
+    }
+    
+    public long getCpuBudget(final TimeUnit unit) {
+        return unit.convert(cpuBudgetNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Returns the number of positions each strategy has decided, in the order
+     * the strategies were added.
+     * 
+     * @return the wins of each strategy
+     */
+    public Map<String, Long> getWins() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (final String name : strategies.keySet()) {
+            result.put(name, wins.get(name).get());
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of positions no strategy decided within the budget.
+     * 
+     * @return the number of undecided positions
+     */
+    public long getUndecided() {
+        return undecided.get();
+    }
+    
+    /**
+     * Races every strategy on a position until one decides it, all of them
+     * give up, or the CPU budget is spent. Every strategy has stopped by the
+     * time this returns.
+     * 
+     * @param startNode the position to solve
+     * @return how the position was decided
+     * @throws InterruptedException if interrupted while waiting, in which
+     *         case every strategy is cancelled
+     */
+    public Result solve(final GameState<SolitaireMove, Board> startNode) throws InterruptedException {
+        if (strategies.isEmpty()) {
+            throw new IllegalStateException("No strategies");
+        }
+        final List<String> names = new ArrayList<>(strategies.keySet());
+        final int count = names.size();
+        final List<CancellableSearch> searches = new ArrayList<>(count);
+        for (final String name : names) {
+            searches.add(strategies.get(name).apply(startNode));
+        }
+        
+        // The CPU time of each thread is taken by the thread itself as it finishes.
+        final long start = System.nanoTime();
+        final AtomicLongArray finalCpuNanos = new AtomicLongArray(count);
+        final BlockingQueue<Integer> finished = new LinkedBlockingQueue<>();
+        final List<Thread> threads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++ ) {
+            final int index = i;
+            final CancellableSearch search = searches.get(i);
+            final Thread thread = new Thread(() -> {
+                try {
+                    search.run();
+                } finally {
+                    finalCpuNanos.set(index, cpuTimeOfCurrentThread(start));
+                    finished.add(index);
+                }
+            }, "portfolio-" + names.get(i));
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        Outcome outcome = Outcome.UNDECIDED;
+        int winner = -1;
+        int running = count;
+        try {
+            while (running > 0 && winner < 0) {
+                final Integer index = finished.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (index == null) {
+                    if (getCpuNanos(threads, finalCpuNanos, start) >= cpuBudgetNanos) {
+                        break;
+                    }
+                    continue;
+                }
+                running-- ;
+                final CancellableSearch search = searches.get(index);
+                if ( !search.getSolutions().isEmpty()) {
+                    outcome = Outcome.SOLVED;
+                    winner = index;
+                } else if (search.isExhausted() && proving.contains(names.get(index))) {
+                    outcome = Outcome.UNSOLVABLE;
+                    winner = index;
+                }
+            }
+        } finally {
+            for (final CancellableSearch search : searches) {
+                search.cancel();
+            }
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+        }
+        final long wallNanos = System.nanoTime() - start;
+        final long cpuNanos = getCpuNanos(threads, finalCpuNanos, start);
+        
+        if (winner < 0) {
+            undecided.incrementAndGet();
+            return new Result(outcome, null, null, cpuNanos, wallNanos);
+        }
+        final String name = names.get(winner);
+        wins.get(name).incrementAndGet();
+        final GameState<SolitaireMove, Board> solution =
+                outcome == Outcome.SOLVED ? searches.get(winner).getSolutions().iterator().next() : null;
+        return new Result(outcome, name, solution, cpuNanos, wallNanos);
+    }
+    
+    /**
+     * Returns the CPU time used by the strategy threads so far. If the JVM
+     * cannot measure the CPU time of threads, the wall time of each thread is
+     * used instead.
+     */
+    private static long getCpuNanos(final List<Thread> threads, final AtomicLongArray finalCpuNanos,
+            final long start) {
+        long total = 0;
+        for (int i = 0; i < threads.size(); i++ ) {
+            final long finalNanos = finalCpuNanos.get(i);
+            if (finalNanos > 0) {
+                total += finalNanos;
+            } else if (THREADS.isThreadCpuTimeSupported()) {
+                // A thread that has just died reports -1, and is counted once its final time is set.
+                total += Math.max(0, THREADS.getThreadCpuTime(threads.get(i).getId()));
+            } else {
+                total += System.nanoTime() - start;
+            }
+        }
+        return total;
+    }
+    
+    private static long cpuTimeOfCurrentThread(final long start) {
+        final long nanos;
+        if (THREADS.isCurrentThreadCpuTimeSupported()) {
+            nanos = THREADS.getCurrentThreadCpuTime();
+        } else {
+            nanos = System.nanoTime() - start;
+        }
+        // Never zero, so that it cannot be mistaken for a thread still running.
+        return Math.max(1, nanos);
+    }
+    
+}
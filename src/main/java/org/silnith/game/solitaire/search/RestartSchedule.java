@@ -0,0 +1,104 @@
+package org.silnith.game.solitaire.search;
+
+/**
+ * The number of nodes each attempt of a {@link RestartingSearcher} may search
+ * before it gives up and starts over.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public abstract class RestartSchedule {
+    
+    /**
+     * Returns the Luby schedule, which multiplies the unit by 1, 1, 2, 1, 1,
+     * 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, and so on. Its total work is within a
+     * logarithmic factor of the best fixed budget for any distribution of run
+     * times, without knowing that distribution.
+     * 
+     * @param unit the number of nodes in the shortest attempt
+     * @return the Luby schedule
+     */
+    public static RestartSchedule luby(final long unit) {
+        checkUnit(unit);
+        return new RestartSchedule() {
+            
+            @Override
+            public long getBudget(final int restart) {
+                return saturatedMultiply(unit, lubyTerm(restart + 1));
+            }
+            
+            @Override
+            public String toString() {
+                return "Luby(" + unit + ")";
+            }
+            
+        };
+    }
+    
+    /**
+     * Returns a geometric schedule, which multiplies the budget by a constant
+     * factor after each attempt.
+     * 
+     * @param unit the number of nodes in the first attempt
+     * @param factor the growth of the budget from one attempt to the next,
+     *        greater than one
+     * @return the geometric schedule
+     */
+    public static RestartSchedule geometric(final long unit, final double factor) {
+        checkUnit(unit);
+        if ( !(factor > 1)) {
+            throw new IllegalArgumentException("Factor must be greater than one: " + factor);
+        }
+        return new RestartSchedule() {
+            
+            @Override
+            public long getBudget(final int restart) {
+                final double budget = unit * Math.pow(factor, restart);
+                return budget >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) budget;
+            }
+            
+            @Override
+            public String toString() {
+                return "Geometric(" + unit + ", " + factor + ")";
+            }
+            
+        };
+    }
+    
+    /**
+     * Returns the given term of the Luby sequence, counting from one.
+     */
+    static long lubyTerm(final int i) {
+        int term = i;
+        while (true) {
+            // Find k such that 2^(k-1) <= term < 2^k.
+            final int k = 32 - Integer.numberOfLeadingZeros(term);
+            if (term == (1 << k) - 1) {
+                return 1L << (k - 1);
+            }
+            term = term - (1 << (k - 1)) + 1;
+        }
+    }
+    
+    private static void checkUnit(final long unit) {
+        if (unit < 1) {
+            throw new IllegalArgumentException("Unit must be positive: " + unit);
+        }
+    }
+    
+    private static long saturatedMultiply(final long a, final long b) {
+        final long high = Math.multiplyHigh(a, b);
+        if (high != 0 || a * b < 0) {
+            return Long.MAX_VALUE;
+        }
+        return a * b;
+    }
+    
+    /**
+     * Returns the number of nodes an attempt may search.
+     * 
+     * @param restart the number of attempts made before this one
+     * @return the budget for the attempt, at least one
+     */
+    public abstract long getBudget(int restart);
+    
+}
@@ -0,0 +1,335 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
+import org.silnith.game.solitaire.ReadableBoard;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * A depth-first search that tries the moves from each board in a random
+ * order, and starts over with a new order when an attempt runs out of nodes.
+ * The budget of each attempt comes from a {@link RestartSchedule}.
+ * <p>
+ * The time a depth-first search takes depends heavily on the order of the
+ * first few moves, and a bad order can take hours where a good one takes
+ * milliseconds. Restarting bounds the time lost to a bad order. The random
+ * numbers come from one generator seeded at construction, so a search with
+ * the same seed makes the same attempts.
+ * <p>
+ * An attempt that finishes within its budget has searched the whole tree.
+ * Each attempt has a transposition table of its own. The table cannot be kept
+ * for the next attempt, because a board that an attempt reached and did not
+ * finish would then never be finished. What is kept instead is a
+ * {@link DeadEndCache}, if there is one, and each attempt adds the boards it
+ * proves to be dead ends. A board is only proven if no move below it was
+ * skipped by the transposition table of the attempt, as a cycle, or because
+ * of the move before it, since another path to the board may not skip it.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+public class RestartingSearcher implements CancellableSearch {
+    
+    /**
+     * The memory cap for a transposition table. Each table is sized to the
+     * budget of its attempt, up to this.
+     */
+    public static final long MAX_TABLE_BYTES = 64L * 1024 * 1024;
+    
+    /**
+     * The smallest transposition table made for an attempt.
+     */
+    private static final long MIN_TABLE_BYTES = 1024;
+    
+    private final Solitaire game;
+    
+    private final GameState<SolitaireMove, Board> startNode;
+    
+    private final RestartSchedule schedule;
+    
+    private final Random random;
+    
+    private final AtomicLong nodesSearched;
+    
+    private final AtomicInteger restarts;
+    
+    private final Collection<GameState<SolitaireMove, Board>> solutions;
+    
+    private final AtomicBoolean cancelled;
+    
+    private volatile boolean exhausted;
+    
+    private DeadEndCache deadEndCache;
+    
+    private long maxNodes;
+    
+    /**
+     * Constructs a new restarting searcher.
+     * 
+     * @param game the game
+     * @param startNode the starting position
+     * @param schedule the budget of each attempt
+     * @param seed the seed for the order of the moves
+     */
+    public RestartingSearcher(final Solitaire game, final GameState<SolitaireMove, Board> startNode,
+            final RestartSchedule schedule, final long seed) {
+        super();
+        this.game = game;
+        this.startNode = startNode;
+        this.schedule = schedule;
+        this.random = new Random(seed);
+        this.nodesSearched = new AtomicLong();
+        this.restarts = new AtomicInteger();
+        this.solutions = new CopyOnWriteArrayList<>();
+        this.cancelled = new AtomicBoolean();
+        this.exhausted = false;
+        this.deadEndCache = null;
+        this.maxNodes = Long.MAX_VALUE;
+    }
+    
+    public RestartSchedule getSchedule() {
+        return schedule;
+    }
+    
+    /**
+     * Returns the number of nodes searched by every attempt together.
+     * 
+     * @return the number of nodes searched
+     */
+    public long getNodesSearched() {
+        return nodesSearched.get();
+    }
+    
+    /**
+     * Returns the number of attempts that ran out of nodes and started over.
+     * 
+     * @return the number of restarts
+     */
+    public int getRestarts() {
+        return restarts.get();
+    }
+    
+    public DeadEndCache getDeadEndCache() {
+        return deadEndCache;
+    }
+    
+    /**
+     * Sets a cache of boards proven to be dead ends, kept from one attempt to
+     * the next. The cache may be shared with other searchers of the same game.
+     * This must be set before the search starts.
+     * 
+     * @param deadEndCache the proven dead ends, or {@code null}
+     */
+    public void setDeadEndCache(final DeadEndCache deadEndCache) {
+        this.deadEndCache = deadEndCache;
+    }
+    
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+    
+    /**
+     * Sets the number of nodes to search over every attempt before giving up.
+     * This must be set before the search starts.
+     * 
+     * @param maxNodes the maximum number of nodes to search
+     */
+    public void setMaxNodes(final long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+    
+    @Override
+    public Collection<GameState<SolitaireMove, Board>> getSolutions() {
+        return Collections.unmodifiableCollection(solutions);
+    }
+    
+    @Override
+    public boolean cancel() {
+        return cancelled.compareAndSet(false, true);
+    }
+    
+    /**
+     * Returns whether an attempt searched the whole tree within its budget.
+     * 
+     * @return {@code true} if the whole tree was searched
+     */
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+    
+    /**
+     * Makes attempts until one finds a solution or searches the whole tree,
+     * the maximum number of nodes is reached, or the search is cancelled.
+     */
+    @Override
+    public void run() {
+        for (int restart = 0; !cancelled.get() && nodesSearched.get() < maxNodes; restart++ ) {
+            final long budget = Math.min(schedule.getBudget(restart), maxNodes - nodesSearched.get());
+            final long tableBytes = budget > MAX_TABLE_BYTES / (4 * Long.BYTES) ? MAX_TABLE_BYTES
+                    : Math.max(MIN_TABLE_BYTES, budget * 4 * Long.BYTES);
+            final boolean finished = search(budget, new TranspositionTable(tableBytes));
+            if ( !solutions.isEmpty()) {
+                return;
+            }
+            if (finished) {
+                exhausted = true;
+                return;
+            }
+            if (cancelled.get()) {
+                return;
+            }
+            restarts.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Makes one attempt, stopping at the first solution. Like the
+     * {@link DepthFirstSearcher}, this makes and takes back moves on one
+     * {@link MutableBoard}, since a random order leads to very deep paths.
+     * 
+     * @return {@code true} if the attempt finished within its budget
+     */
+    private boolean search(final long budget, final TranspositionTable table) {
+        final MutableBoard board = new MutableBoard(startNode.getBoards().getFirst());
+        final SolitaireMove startMove = startNode.getMoves().getFirst();
+        
+        /*
+         * The moves made from the start node, and for each depth the
+         * fingerprint of the board there, its moves in random order, the index
+         * of the next move to try, the nodes searched below it, and whether it
+         * is still proven. A board is proven a dead end if every move was
+         * tried without a win, and none was skipped for a reason that depends
+         * on the path to it.
+         */
+        SolitaireMove[] path = new SolitaireMove[64];
+        long[] fingerprints = new long[64];
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        List<SolitaireMove>[] moves = new List[64];
+        int[] nextMove = new int[64];
+        long[] subtreeNodes = new long[64];
+        boolean[] proven = new boolean[64];
+        
+        long nodes = 1;
+        int depth = 0;
+        fingerprints[0] = game.getFingerprint(board);
+        table.add(fingerprints[0]);
+        moves[0] = findMoves(board);
+        nextMove[0] = 0;
+        subtreeNodes[0] = 1;
+        proven[0] = true;
+        while (depth >= 0) {
+            if (nodes >= budget || cancelled.get()) {
+                nodesSearched.addAndGet(nodes);
+                return false;
+            }
+            if (nextMove[depth] == moves[depth].size()) {
+                if (deadEndCache != null && proven[depth]) {
+                    deadEndCache.add(fingerprints[depth], subtreeNodes[depth]);
+                }
+                moves[depth] = null;
+                depth-- ;
+                if (depth >= 0) {
+                    board.undo(path[depth]);
+                    subtreeNodes[depth] += subtreeNodes[depth + 1];
+                    proven[depth] &= proven[depth + 1];
+                }
+                continue;
+            }
+            final SolitaireMove move = moves[depth].get(nextMove[depth]++ );
+            final SolitaireMove previousMove = depth == 0 ? startMove : path[depth - 1];
+            if (game.isPrunedAfter(previousMove, move)) {
+                proven[depth] = false;
+                continue;
+            }
+            
+            board.apply(move);
+            path[depth] = move;
+            if (game.isWin(board)) {
+                reportSolution(path, depth + 1);
+                nodesSearched.addAndGet(nodes);
+                return true;
+            }
+            /*
+             * Every board on the path is in the table, unless the table was
+             * too full to store it, so the path itself is only searched for
+             * cycles after an overflow. Random paths get very deep.
+             */
+            final long fingerprint = game.getFingerprint(board);
+            final long overflows = table.getOverflows();
+            if ( !table.add(fingerprint)
+                    || table.getOverflows() != overflows && isOnPath(fingerprints, depth, fingerprint)) {
+                // Reached before in this attempt, maybe still on the path.
+                if (deadEndCache == null || !deadEndCache.contains(fingerprint)) {
+                    proven[depth] = false;
+                }
+                board.undo(move);
+                continue;
+            }
+            if (deadEndCache != null && deadEndCache.isDeadEnd(fingerprint)) {
+                board.undo(move);
+                continue;
+            }
+            
+            depth++ ;
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, 2 * depth);
+                fingerprints = Arrays.copyOf(fingerprints, 2 * depth);
+                moves = Arrays.copyOf(moves, 2 * depth);
+                nextMove = Arrays.copyOf(nextMove, 2 * depth);
+                subtreeNodes = Arrays.copyOf(subtreeNodes, 2 * depth);
+                proven = Arrays.copyOf(proven, 2 * depth);
+            }
+            fingerprints[depth] = fingerprint;
+            moves[depth] = findMoves(board);
+            nextMove[depth] = 0;
+            subtreeNodes[depth] = 1;
+            proven[depth] = true;
+            nodes++ ;
+        }
+        nodesSearched.addAndGet(nodes);
+        return true;
+    }
+    
+    private static boolean isOnPath(final long[] fingerprints, final int depth, final long fingerprint) {
+        for (int i = 0; i <= depth; i++ ) {
+            if (fingerprints[i] == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Replays the moves on the path from the start node to build the game
+     * state for a solution.
+     */
+    private void reportSolution(final SolitaireMove[] path, final int length) {
+        GameState<SolitaireMove, Board> node = startNode;
+        Board board = startNode.getBoards().getFirst();
+        for (int i = 0; i < length; i++ ) {
+            board = path[i].apply(board);
+            node = new GameState<>(node, path[i], board);
+        }
+        solutions.add(node);
+    }
+    
+    private List<SolitaireMove> findMoves(final ReadableBoard board) {
+        final List<SolitaireMove> moves = game.findAllMoves(board);
+        Collections.shuffle(moves, random);
+        return moves;
+    }
+    
+}
@@ -0,0 +1,192 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.silnith.game.solitaire.Board;
+
+
+/**
+ * A set of board fingerprints shared by every thread of a search. A board
+ * whose fingerprint is already in the table has been reached before by some
+ * other sequence of moves, so its subtree does not need to be searched again.
+ * <p>
+ * The table is a lock-free open-addressed hash set with linear probing,
+ * allocated once at a fixed size derived from the memory cap. Fingerprints are
+ * never removed. When every slot near a fingerprint is taken the fingerprint is
+ * not stored, and the board is treated as not yet visited, so a full table
+ * costs search time but never correctness.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ * @see Board#getFingerprint()
+ */
+public class TranspositionTable {
+    
+    /**
+     * The value of an empty slot. A fingerprint of zero is stored as one.
+     */
+    private static final long EMPTY = 0;
+    
+    /**
+     * The number of consecutive slots examined before giving up on an
+     * insertion. Sixteen slots span two cache lines.
+     */
+    private static final int MAX_PROBES = 16;
+    
+    private final AtomicLongArray slots;
+    
+    private final int mask;
+    
+    private final AtomicLong size;
+    
+    private final AtomicLong hits;
+    
+    private final AtomicLong misses;
+    
+    private final AtomicLong overflows;
+    
+    /**
+     * Constructs a new transposition table that uses at most the given number
+     * of bytes. The number of slots is the largest power of two that fits.
+     * 
+     * @param maxBytes the memory cap for the table, in bytes
+     */
+    public TranspositionTable(final long maxBytes) {
+        super();
+        final long maxSlots = Math.min(maxBytes / Long.BYTES, 1 << 30);
+        if (maxSlots < MAX_PROBES) {
+            throw new IllegalArgumentException("Memory cap too small: " + maxBytes);
+        }
+        final int capacity = Integer.highestOneBit((int) maxSlots);
+        this.slots = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.size = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.overflows = new AtomicLong();
+    }
+    
+    /**
+     * Returns the number of fingerprints the table can hold.
+     * 
+     * @return the capacity of the table
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+    
+    /**
+     * Returns the number of bytes used by the table.
+     * 
+     * @return the memory used by the table
+     */
+    public long getBytesUsed() {
+        return (long) slots.length() * Long.BYTES;
+    }
+    
+    /**
+     * Returns the number of fingerprints stored in the table.
+     * 
+     * @return the number of stored fingerprints
+     */
+    public long getSize() {
+        return size.get();
+    }
+    
+    /**
+     * Returns the number of times {@link #add(long)} found the fingerprint
+     * already present.
+     * 
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+    
+    /**
+     * Returns the number of times {@link #add(long)} did not find the
+     * fingerprint, including the times it could not be stored.
+     * 
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    /**
+     * Returns the number of times {@link #add(long)} could not store a
+     * fingerprint because the table was too full.
+     * 
+     * @return the number of fingerprints dropped
+     */
+    public long getOverflows() {
+        return overflows.get();
+    }
+    
+    /**
+     * Records that the given board has been visited.
+     * 
+     * @param board the board
+     * @return {@code true} if the board had not been visited before
+     * @see #add(long)
+     */
+    public boolean add(final Board board) {
+        return add(board.getFingerprint());
+    }
+    
+    /**
+     * Adds a fingerprint to the table. If two threads add the same fingerprint
+     * concurrently, exactly one of them sees {@code true}.
+     * 
+     * @param fingerprint the fingerprint to add
+     * @return {@code true} if the fingerprint was not already present
+     */
+    public boolean add(final long fingerprint) {
+        final long key = fingerprint == EMPTY ? 1 : fingerprint;
+        int index = (int) (key ^ (key >>> 32)) & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++ ) {
+            long current = slots.get(index);
+            if (current == EMPTY) {
+                if (slots.compareAndSet(index, EMPTY, key)) {
+                    size.incrementAndGet();
+                    misses.incrementAndGet();
+                    return true;
+                }
+                // Lost the race for this slot, see who won.
+                current = slots.get(index);
+            }
+            if (current == key) {
+                hits.incrementAndGet();
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        overflows.incrementAndGet();
+        misses.incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * Returns whether the given fingerprint is in the table. This does not
+     * affect the hit and miss counters.
+     * 
+     * @param fingerprint the fingerprint to look for
+     * @return {@code true} if the fingerprint is present
+     */
+    public boolean contains(final long fingerprint) {
+        final long key = fingerprint == EMPTY ? 1 : fingerprint;
+        int index = (int) (key ^ (key >>> 32)) & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++ ) {
+            final long current = slots.get(index);
+            if (current == key) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+    
+}
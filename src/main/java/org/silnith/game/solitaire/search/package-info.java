@@ -0,0 +1,7 @@
+/**
+ * Shared data structures and alternative strategies for searching the game
+ * tree of Solitaire.
+ * 
+ * @author <a href="mailto:silnith@gmail.com">Kent Rosenkoetter</a>
+ */
+package org.silnith.game.solitaire.search;
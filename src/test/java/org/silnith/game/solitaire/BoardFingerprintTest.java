@@ -0,0 +1,105 @@
+package org.silnith.game.solitaire;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.deck.Value;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * Checks the incrementally maintained board fingerprints against a large
+ * sample of boards reached by random play.
+ */
+public class BoardFingerprintTest {
+    
+    private static final int NUMBER_OF_DEALS = 500;
+    
+    private static final int MOVES_PER_DEAL = 200;
+    
+    private final Solitaire solitaire;
+    
+    public BoardFingerprintTest() {
+        this.solitaire = new Solitaire(7, new BoardValidator(7, 52, new PileValidator(), new GoalValidator()));
+        this.solitaire.setReturnRedundantMoves(true);
+    }
+    
+    private List<Board> sampleBoards() {
+        final Random random = new Random(0x5eed);
+        final List<Card> deck = new ArrayList<>(52);
+        for (final Suit suit : Suit.values()) {
+            for (final Value value : Value.values()) {
+                deck.add(new Card(value, suit));
+            }
+        }
+        final List<Board> boards = new ArrayList<>(NUMBER_OF_DEALS * MOVES_PER_DEAL);
+        for (int i = 0; i < NUMBER_OF_DEALS; i++ ) {
+            Collections.shuffle(deck, random);
+            Board board = solitaire.deal(deck);
+            for (int j = 0; j < MOVES_PER_DEAL; j++ ) {
+                boards.add(board);
+                final List<SolitaireMove> moves = new ArrayList<>(solitaire.findAllMoves(board));
+                if (moves.isEmpty()) {
+                    break;
+                }
+                board = moves.get(random.nextInt(moves.size())).apply(board);
+            }
+        }
+        return boards;
+    }
+    
+    @Test
+    public void testIncrementalFingerprintMatchesRecomputed() {
+        for (final Board board : sampleBoards()) {
+            final Board rebuilt =
+                    new Board(board.getPiles(), board.getDrawPile(), board.getDrawIndex(), board.getGoal());
+                    
+            assertEquals(rebuilt.getFingerprint(), board.getFingerprint(), board.toString());
+        }
+    }
+    
+    @Test
+    public void testNoFingerprintCollisions() {
+        final Map<Long, Board> boardsByFingerprint = new HashMap<>();
+        int distinctBoards = 0;
+        for (final Board board : sampleBoards()) {
+            final Board previous = boardsByFingerprint.putIfAbsent(board.getFingerprint(), board);
+            if (previous == null) {
+                distinctBoards++ ;
+            } else {
+                assertEquals(previous, board);
+            }
+        }
+        
+        assertTrue(distinctBoards > NUMBER_OF_DEALS * MOVES_PER_DEAL / 2);
+    }
+    
+    @Test
+    public void testHashCodeCollisionRate() {
+        final Set<Board> distinctBoards = new HashSet<>(sampleBoards());
+        final Set<Integer> hashCodes = new HashSet<>();
+        for (final Board board : distinctBoards) {
+            hashCodes.add(board.hashCode());
+        }
+        final int collisions = distinctBoards.size() - hashCodes.size();
+        
+        /*
+         * With n boards and 32-bit hash codes about n^2 / 2^33 collisions are
+         * expected, which is about one for this sample.
+         */
+        assertTrue(collisions < 10, "Too many hash code collisions: " + collisions);
+    }
+    
+}
@@ -0,0 +1,119 @@
+package org.silnith.game.solitaire;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.silnith.deck.Suit.CLUB;
+import static org.silnith.deck.Suit.DIAMOND;
+import static org.silnith.deck.Suit.HEART;
+import static org.silnith.deck.Suit.SPADE;
+import static org.silnith.deck.Value.ACE;
+import static org.silnith.deck.Value.EIGHT;
+import static org.silnith.deck.Value.JACK;
+import static org.silnith.deck.Value.KING;
+import static org.silnith.deck.Value.QUEEN;
+import static org.silnith.deck.Value.SEVEN;
+import static org.silnith.deck.Value.SIX;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.deck.Value;
+import org.silnith.game.solitaire.move.DrawToPileMove;
+import org.silnith.game.solitaire.move.FlipAndDrawMove;
+import org.silnith.game.solitaire.move.PileToGoalMove;
+import org.silnith.game.solitaire.move.ResetDrawPileMove;
+import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.move.StackMove;
+
+
+public class HeuristicMoveOrderingTest {
+    
+    private final Solitaire solitaire;
+    
+    private final Board board;
+    
+    public HeuristicMoveOrderingTest() {
+        super();
+        this.solitaire = new Solitaire(7, new BoardValidator(7, 52, new PileValidator(), new GoalValidator()));
+        this.solitaire.setReturnRedundantMoves(false);
+        
+        final List<Card> none = Collections.emptyList();
+        final List<Pile> piles = new ArrayList<>(7);
+        piles.add(new Pile(Arrays.asList(new Card(KING, CLUB)), Arrays.asList(new Card(SEVEN, HEART))));
+        piles.add(new Pile(none, Arrays.asList(new Card(EIGHT, SPADE))));
+        piles.add(new Pile(none, Arrays.asList(new Card(EIGHT, CLUB))));
+        piles.add(new Pile(Arrays.asList(new Card(QUEEN, CLUB), new Card(JACK, CLUB)),
+                Arrays.asList(new Card(ACE, DIAMOND))));
+        for (int i = 4; i < 7; i++ ) {
+            piles.add(new Pile(none, none));
+        }
+        final EnumMap<Suit, List<Card>> goal = new EnumMap<>(Suit.class);
+        for (final Suit suit : Suit.values()) {
+            goal.put(suit, none);
+        }
+        this.board = new Board(piles, Arrays.asList(new Card(SIX, SPADE)), 1, goal);
+    }
+    
+    @Test
+    public void testFoundOrder() {
+        final List<SolitaireMove> expected = Arrays.asList(new DrawToPileMove(1, 0, new Card(SIX, SPADE)),
+                new StackMove(0, 1, 1, Arrays.asList(new Card(SEVEN, HEART))),
+                new StackMove(0, 2, 1, Arrays.asList(new Card(SEVEN, HEART))),
+                new PileToGoalMove(3, new Card(ACE, DIAMOND)), new ResetDrawPileMove(1));
+                
+        assertEquals(expected, solitaire.findAllMoves(board));
+    }
+    
+    @Test
+    public void testHeuristicOrder() {
+        solitaire.setMoveOrdering(new HeuristicMoveOrdering());
+        final List<SolitaireMove> expected = Arrays.asList(new PileToGoalMove(3, new Card(ACE, DIAMOND)),
+                new StackMove(0, 1, 1, Arrays.asList(new Card(SEVEN, HEART))),
+                new StackMove(0, 2, 1, Arrays.asList(new Card(SEVEN, HEART))),
+                new DrawToPileMove(1, 0, new Card(SIX, SPADE)), new ResetDrawPileMove(1));
+                
+        assertEquals(expected, solitaire.findAllMoves(board));
+    }
+    
+    @Test
+    public void testFewerFlipsFirst() {
+        final MoveOrdering ordering = new HeuristicMoveOrdering();
+        final SolitaireMove draw = new DrawToPileMove(1, 0, new Card(SIX, SPADE));
+        
+        final int noFlips = ordering.score(board, draw);
+        final int oneFlip = ordering.score(board, new FlipAndDrawMove(1, 1, true, 1, draw));
+        final int twoFlips = ordering.score(board, new FlipAndDrawMove(1, 1, true, 2, draw));
+        
+        assertTrue(noFlips > oneFlip);
+        assertTrue(oneFlip > twoFlips);
+        assertTrue(twoFlips > ordering.score(board, new ResetDrawPileMove(1)));
+    }
+    
+    @Test
+    public void testOrderingKeepsEveryMove() {
+        final List<Card> deck = new ArrayList<>(52);
+        for (final Suit suit : Suit.values()) {
+            for (final Value value : Value.values()) {
+                deck.add(new Card(value, suit));
+            }
+        }
+        Collections.shuffle(deck, new Random(0));
+        final Board dealt = solitaire.deal(solitaire.dealMove(deck));
+        final List<SolitaireMove> found = solitaire.findAllMoves(dealt);
+        solitaire.setMoveOrdering(new HeuristicMoveOrdering());
+        
+        final List<SolitaireMove> ordered = solitaire.findAllMoves(dealt);
+        
+        assertEquals(found.size(), ordered.size());
+        assertEquals(new HashSet<>(found), new HashSet<>(ordered));
+    }
+    
+}
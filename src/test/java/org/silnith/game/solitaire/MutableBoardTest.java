@@ -0,0 +1,98 @@
+package org.silnith.game.solitaire;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.deck.Value;
+import org.silnith.game.solitaire.benchmark.Deals;
+import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.search.TestBoards;
+
+
+/**
+ * Plays random games on a {@link MutableBoard} alongside the immutable
+ * {@link Board} and checks that making and taking back moves agrees with it.
+ */
+public class MutableBoardTest {
+    
+    private static final int NUMBER_OF_DEALS = 200;
+    
+    private static final int MOVES_PER_DEAL = 200;
+    
+    private final Solitaire solitaire;
+    
+    public MutableBoardTest() {
+        this.solitaire = new Solitaire(7, new BoardValidator(7, 52, new PileValidator(), new GoalValidator()));
+        this.solitaire.setReturnRedundantMoves(true);
+    }
+    
+    @Test
+    public void testApplyAndUndo() {
+        final Random random = new Random(0x5eed);
+        final List<Card> deck = new ArrayList<>(52);
+        for (final Suit suit : Suit.values()) {
+            for (final Value value : Value.values()) {
+                deck.add(new Card(value, suit));
+            }
+        }
+        for (int i = 0; i < NUMBER_OF_DEALS; i++ ) {
+            Collections.shuffle(deck, random);
+            final List<Board> boards = new ArrayList<>();
+            final List<SolitaireMove> moves = new ArrayList<>();
+            Board board = solitaire.deal(deck);
+            final MutableBoard mutableBoard = new MutableBoard(board);
+            boards.add(board);
+            for (int j = 0; j < MOVES_PER_DEAL; j++ ) {
+                final List<SolitaireMove> possibleMoves = solitaire.findAllMoves(mutableBoard);
+                assertEquals(solitaire.findAllMoves(board), possibleMoves);
+                if (possibleMoves.isEmpty()) {
+                    break;
+                }
+                final SolitaireMove move = possibleMoves.get(random.nextInt(possibleMoves.size()));
+                board = move.apply(board);
+                mutableBoard.apply(move);
+                moves.add(move);
+                boards.add(board);
+                
+                assertEquals(board.getFingerprint(), mutableBoard.getFingerprint());
+                assertEquals(board, mutableBoard.toBoard());
+            }
+            for (int j = moves.size() - 1; j >= 0; j-- ) {
+                mutableBoard.undo(moves.get(j));
+                
+                assertEquals(boards.get(j).getFingerprint(), mutableBoard.getFingerprint());
+                assertEquals(boards.get(j), mutableBoard.toBoard());
+            }
+            assertEquals(0, mutableBoard.getUndoDepth());
+        }
+    }
+    
+    @Test
+    public void testDealAndUndo() {
+        final Board before = TestBoards.almostWonBoard();
+        final List<Card> deck = Deals.shuffledDeck(0);
+        final SolitaireMove dealMove = solitaire.dealMove(deck);
+        final MutableBoard mutableBoard = new MutableBoard(before);
+        
+        mutableBoard.apply(dealMove);
+        assertEquals(solitaire.deal(deck), mutableBoard.toBoard());
+        assertEquals(solitaire.deal(deck).getFingerprint(), mutableBoard.getFingerprint());
+        final SolitaireMove move = solitaire.findAllMoves(mutableBoard).get(0);
+        mutableBoard.apply(move);
+        assertEquals(move.apply(solitaire.deal(deck)), mutableBoard.toBoard());
+        mutableBoard.undo(move);
+        mutableBoard.undo(dealMove);
+        
+        assertEquals(before, mutableBoard.toBoard());
+        assertEquals(before.getFingerprint(), mutableBoard.getFingerprint());
+        assertEquals(0, mutableBoard.getUndoDepth());
+    }
+    
+}
@@ -530,4 +530,28 @@ public class PileTest {
         assertFalse(pile1.equals(pile2));
     }
     
+    @Test
+    public void testFingerprintPileMissingTopCards() {
+        final Pile pile = new Pile(
+                Arrays.asList(new Card[] { new Card(FOUR, SPADE), new Card(JACK, HEART), new Card(ACE, HEART) }),
+                Arrays.asList(new Card[] { new Card(KING, CLUB), new Card(QUEEN, DIAMOND), new Card(JACK, CLUB),
+                        new Card(TEN, DIAMOND) }));
+        final Pile expected = new Pile(Arrays.asList(new Card[] { new Card(FOUR, SPADE), new Card(JACK, HEART) }),
+                Arrays.asList(new Card[] { new Card(ACE, HEART) }));
+        
+        assertEquals(expected.getFingerprint(), pile.getPileMissingTopCards(4).getFingerprint());
+    }
+    
+    @Test
+    public void testFingerprintAddNewCards() {
+        final Pile pile = new Pile(Arrays.asList(new Card[] { new Card(FOUR, SPADE), new Card(JACK, HEART) }),
+                Arrays.asList(new Card[] { new Card(KING, CLUB) }));
+        final Pile expected = new Pile(Arrays.asList(new Card[] { new Card(FOUR, SPADE), new Card(JACK, HEART) }),
+                Arrays.asList(new Card[] { new Card(KING, CLUB), new Card(QUEEN, DIAMOND), new Card(JACK, CLUB) }));
+        
+        assertEquals(expected.getFingerprint(),
+                pile.addNewCards(Arrays.asList(new Card[] { new Card(QUEEN, DIAMOND), new Card(JACK, CLUB) }))
+                        .getFingerprint());
+    }
+    
 }
@@ -0,0 +1,382 @@
+package org.silnith.game.solitaire;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.silnith.deck.Suit.CLUB;
+import static org.silnith.deck.Suit.DIAMOND;
+import static org.silnith.deck.Suit.HEART;
+import static org.silnith.deck.Suit.SPADE;
+import static org.silnith.deck.Value.KING;
+import static org.silnith.deck.Value.QUEEN;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.deck.Value;
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.benchmark.Deals;
+import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.search.DeadEndCache;
+import org.silnith.game.solitaire.search.MinimumMovesHeuristic;
+import org.silnith.game.solitaire.search.TestBoards;
+import org.silnith.game.solitaire.search.TranspositionTable;
+
+
+public class SearcherTest {
+    
+    private Searcher newSearcher() {
+        final Solitaire solitaire = Deals.newGame();
+        return new Searcher(solitaire, Deals.initialState(solitaire, Deals.SMALL_DEAL),
+                new TranspositionTable(1024 * 1024));
+    }
+    
+    private Searcher newDeadEndSearcher() {
+        final Solitaire solitaire = Deals.newGame();
+        return new Searcher(solitaire, TestBoards.deadEndState(solitaire), new TranspositionTable(1024 * 1024));
+    }
+    
+    @Test
+    public void testNotDoneBeforeWorkersRun() {
+        final Searcher searcher = newSearcher();
+        
+        assertFalse(searcher.isDone());
+        assertEquals(1, searcher.getPendingNodesCount());
+    }
+    
+    @Test
+    public void testWorkersFinishOnTheirOwn() throws InterruptedException {
+        final Searcher searcher = newSearcher();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++ ) {
+            final Thread thread = new Thread(searcher.getNewWorker());
+            threads.add(thread);
+            thread.start();
+        }
+        
+        assertTrue(searcher.awaitCompletion(30, TimeUnit.SECONDS));
+        for (final Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse(thread.isAlive());
+        }
+        assertTrue(searcher.isDone());
+        assertEquals(0, searcher.getPendingNodesCount());
+        assertTrue(searcher.getNodesSearched() > 1);
+    }
+    
+    @Test
+    public void testRunSearchesWholeTree() {
+        final Searcher searcher = newSearcher();
+        
+        searcher.run();
+        
+        assertTrue(searcher.getNodesSearched() > 1);
+        assertEquals(0, searcher.getDepthCutoffs());
+    }
+    
+    @Test
+    public void testRunWithMaxDepth() {
+        final Searcher unlimited = newSearcher();
+        unlimited.run();
+        final Searcher searcher = newSearcher();
+        searcher.setMaxDepth(10);
+        
+        searcher.run();
+        
+        assertTrue(searcher.getDepthCutoffs() > 0);
+        assertTrue(searcher.getNodesSearched() < unlimited.getNodesSearched());
+    }
+    
+    /**
+     * Returns a board four moves from a win, the queen of clubs, the king of
+     * clubs, the king of hearts under it, and the king of spades, with empty
+     * piles for the kings to wander among first.
+     */
+    private Board fourKingsBoard() {
+        final List<Pile> piles = new ArrayList<>();
+        for (int i = 0; i < 7; i++ ) {
+            piles.add(new Pile(null, null));
+        }
+        piles.set(0, new Pile(null, Collections.singletonList(new Card(QUEEN, CLUB))));
+        piles.set(2, new Pile(Collections.singletonList(new Card(KING, HEART)),
+                Collections.singletonList(new Card(KING, CLUB))));
+        piles.set(3, new Pile(null, Collections.singletonList(new Card(KING, SPADE))));
+        final Map<Suit, List<Card>> goal = new EnumMap<>(Suit.class);
+        for (final Suit suit : Suit.values()) {
+            final List<Card> cards = new ArrayList<>();
+            for (final Value value : Value.values()) {
+                if (value.compareTo(QUEEN) < 0 || suit == DIAMOND || suit != CLUB && value == QUEEN) {
+                    cards.add(new Card(value, suit));
+                }
+            }
+            goal.put(suit, cards);
+        }
+        return new Board(piles, Collections.<Card>emptyList(), 0, goal);
+    }
+    
+    @Test
+    public void testRunWithMaxDepthAndTranspositionTableFindsSolution() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final GameState<SolitaireMove, Board> startNode =
+                new GameState<>(solitaire.dealMove(Deals.shuffledDeck(0)), fourKingsBoard());
+        for (int maxDepth = 4; maxDepth <= 6; maxDepth++ ) {
+            final Searcher searcher = new Searcher(solitaire, startNode, new TranspositionTable(1024 * 1024));
+            searcher.setMaxDepth(maxDepth);
+            
+            searcher.run();
+            
+            assertFalse(searcher.getSolutions().isEmpty());
+            assertEquals(startNode.getMoves().size() + 4, searcher.getBestSolution().getMoves().size());
+        }
+    }
+    
+    @Test
+    public void testRunSearchesHighestScoredMoveFirst() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final HeuristicMoveOrdering moveOrdering = new HeuristicMoveOrdering();
+        solitaire.setMoveOrdering(moveOrdering);
+        final GameState<SolitaireMove, Board> startNode =
+                new GameState<>(solitaire.dealMove(Deals.shuffledDeck(0)), fourKingsBoard());
+        final Board board = startNode.getBoards().getFirst();
+        final List<SolitaireMove> moves = solitaire.findAllMoves(board);
+        final SolitaireMove best = moves.get(0);
+        for (final SolitaireMove move : moves) {
+            assertTrue(moveOrdering.score(board, best) >= moveOrdering.score(board, move));
+        }
+        assertTrue(moveOrdering.score(board, best) > moveOrdering.score(board, moves.get(moves.size() - 1)));
+        final Searcher searcher = new Searcher(solitaire, startNode);
+        searcher.setStopOnFirstSolution(true);
+        
+        searcher.run();
+        
+        final List<SolitaireMove> solution = new ArrayList<>();
+        for (final SolitaireMove move : searcher.getBestSolution().getMoves()) {
+            solution.add(0, move);
+        }
+        assertEquals(best, solution.get(1));
+    }
+    
+    @Test
+    public void testBranchAndBoundFindsShortestSolution() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final GameState<SolitaireMove, Board> startNode = TestBoards.almostWonState(solitaire);
+        final Searcher searcher = new Searcher(solitaire, startNode);
+        searcher.setLowerBound(new MinimumMovesHeuristic());
+        final List<Integer> published = new CopyOnWriteArrayList<>();
+        searcher.setSolutionListener(solution -> published.add(solution.getMoves().size()));
+        
+        searcher.run();
+        
+        assertEquals(startNode.getMoves().size() + 3, searcher.getBestSolution().getMoves().size());
+        assertEquals(searcher.getSolutions().size(), published.size());
+        for (int i = 1; i < published.size(); i++ ) {
+            assertTrue(published.get(i) < published.get(i - 1));
+        }
+    }
+    
+    @Test
+    public void testDrawPilePositionsMergedCountsEachBoardOnce() {
+        final Solitaire solitaire = Deals.newGame();
+        solitaire.setFlipAndDrawMoves(true);
+        final TranspositionTable transpositionTable = new TranspositionTable(1024 * 1024);
+        final Searcher searcher =
+                new Searcher(solitaire, Deals.initialState(solitaire, Deals.SMALL_DEAL), transpositionTable);
+                
+        searcher.run();
+        
+        assertTrue(searcher.getDrawPilePositionsMerged() > 0);
+        assertTrue(searcher.getDrawPilePositionsMerged() <= transpositionTable.getHits()
+                + transpositionTable.getMisses());
+    }
+    
+    @Test
+    public void testBranchAndBoundWithAutoPlayFindsShortestSolution() {
+        final Solitaire solitaire = TestBoards.newGame();
+        solitaire.setAutoPlaySafeMoves(true);
+        final GameState<SolitaireMove, Board> startNode =
+                new GameState<>(solitaire.dealMove(Deals.shuffledDeck(0)), TestBoards.autoPlayDetourBoard());
+        final Searcher searcher = new Searcher(solitaire, startNode);
+        searcher.setLowerBound(new MinimumMovesHeuristic());
+        
+        searcher.run();
+        
+        assertEquals(solitaire.getLength(startNode) + 3, solitaire.getLength(searcher.getBestSolution()));
+    }
+    
+    @Test
+    public void testBranchAndBoundCutsOffNodes() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Searcher unbounded = new Searcher(solitaire, TestBoards.almostWonState(solitaire));
+        unbounded.run();
+        final Searcher searcher = new Searcher(solitaire, TestBoards.almostWonState(solitaire));
+        searcher.setLowerBound(new MinimumMovesHeuristic());
+        
+        searcher.run();
+        
+        assertTrue(searcher.getBoundCutoffs() > 0);
+        assertTrue(searcher.getNodesSearched() < unbounded.getNodesSearched());
+        assertEquals(0, unbounded.getBoundCutoffs());
+    }
+    
+    @Test
+    public void testRunStopsOnFirstSolution() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Searcher searcher = new Searcher(solitaire, TestBoards.almostWonState(solitaire));
+        searcher.setStopOnFirstSolution(true);
+        
+        searcher.run();
+        
+        assertTrue(searcher.isCancelled());
+        assertEquals(1, searcher.getSolutions().size());
+        assertTrue(searcher.getCancelledMoves() > 0);
+    }
+    
+    @Test
+    public void testWorkersStopOnFirstSolution() throws InterruptedException {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Searcher searcher = new Searcher(solitaire, TestBoards.almostWonState(solitaire));
+        searcher.setStopOnFirstSolution(true);
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++ ) {
+            final Thread thread = new Thread(searcher.getNewWorker());
+            threads.add(thread);
+            thread.start();
+        }
+        
+        assertTrue(searcher.awaitCompletion(30, TimeUnit.SECONDS));
+        for (final Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse(thread.isAlive());
+        }
+        assertTrue(searcher.isCancelled());
+        assertEquals(1, searcher.getSolutions().size());
+        assertEquals(0, searcher.getPendingNodesCount());
+    }
+    
+    @Test
+    public void testForkJoinTaskStopsOnFirstSolution() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Searcher searcher = new Searcher(solitaire, TestBoards.almostWonState(solitaire));
+        searcher.setStopOnFirstSolution(true);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pool.invoke(searcher.getNewTask());
+        } finally {
+            pool.shutdown();
+        }
+        
+        assertTrue(searcher.isCancelled());
+        assertEquals(1, searcher.getSolutions().size());
+    }
+    
+    @Test
+    public void testCancelBeforeRun() {
+        final Searcher searcher = newSearcher();
+        final int startMoves = searcher.getGame().findAllMoves(searcher.getStartNode().getBoards().getFirst()).size();
+        
+        assertTrue(searcher.cancel());
+        assertFalse(searcher.cancel());
+        searcher.run();
+        
+        assertEquals(1, searcher.getNodesSearched());
+        assertEquals(startMoves, searcher.getCancelledMoves());
+        assertTrue(searcher.getSolutions().isEmpty());
+    }
+    
+    @Test
+    public void testRunRecordsDeadEnds() {
+        final DeadEndCache deadEndCache = new DeadEndCache(1024 * 1024);
+        final Searcher first = newDeadEndSearcher();
+        first.setDeadEndCache(deadEndCache);
+        first.run();
+        final Searcher second = newDeadEndSearcher();
+        second.setDeadEndCache(deadEndCache);
+        
+        second.run();
+        
+        assertTrue(deadEndCache.getSize() > 0);
+        assertEquals(1, second.getNodesSearched());
+        assertTrue(deadEndCache.getHits() > 0);
+    }
+    
+    @Test
+    public void testForkJoinTaskRecordsDeadEnds() {
+        final Solitaire solitaire = Deals.newGame();
+        final DeadEndCache deadEndCache = new DeadEndCache(1024 * 1024);
+        final Searcher searcher = new Searcher(solitaire, TestBoards.deadEndState(solitaire),
+                new TranspositionTable(1024 * 1024));
+        searcher.setDeadEndCache(deadEndCache);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pool.invoke(searcher.getNewTask());
+        } finally {
+            pool.shutdown();
+        }
+        
+        assertTrue(deadEndCache.contains(solitaire.getFingerprint(TestBoards.deadEndBoard())));
+    }
+    
+    @Test
+    public void testDeadEndsNotRecordedAfterDepthCutoff() {
+        final DeadEndCache deadEndCache = new DeadEndCache(1024 * 1024);
+        final Searcher first = newDeadEndSearcher();
+        first.setDeadEndCache(deadEndCache);
+        first.setMaxDepth(2);
+        first.run();
+        final Searcher second = newDeadEndSearcher();
+        second.setDeadEndCache(deadEndCache);
+        
+        second.run();
+        
+        assertTrue(second.getNodesSearched() > 1);
+    }
+    
+    @Test
+    public void testDeadEndsNotRecordedAfterPrunedMoves() {
+        final DeadEndCache deadEndCache = new DeadEndCache(1024 * 1024);
+        final Searcher first = newSearcher();
+        first.setDeadEndCache(deadEndCache);
+        first.run();
+        final Searcher second = newSearcher();
+        second.setDeadEndCache(deadEndCache);
+        
+        second.run();
+        
+        assertEquals(0, deadEndCache.getSize());
+        assertEquals(first.getNodesSearched(), second.getNodesSearched());
+    }
+    
+    @Test
+    public void testDeadEndCacheKeepsSolutions() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Searcher searcher = new Searcher(solitaire, TestBoards.almostWonState(solitaire));
+        searcher.setDeadEndCache(new DeadEndCache(1024 * 1024));
+        
+        searcher.run();
+        
+        assertFalse(searcher.getSolutions().isEmpty());
+    }
+    
+    @Test
+    public void testForkJoinTaskCompletes() {
+        final Searcher searcher = newSearcher();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pool.invoke(searcher.getNewTask());
+        } finally {
+            pool.shutdown();
+        }
+        
+        assertTrue(searcher.getNodesSearched() > 1);
+    }
+    
+}
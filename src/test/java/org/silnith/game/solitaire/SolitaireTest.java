@@ -2,6 +2,8 @@ package org.silnith.game.solitaire;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.silnith.deck.Suit.CLUB;
@@ -27,8 +29,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -37,9 +41,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.silnith.deck.Card;
 import org.silnith.deck.Suit;
 import org.silnith.deck.Value;
+import org.silnith.game.GameState;
 import org.silnith.game.solitaire.move.AdvanceDrawPileMove;
 import org.silnith.game.solitaire.move.DealMove;
 import org.silnith.game.solitaire.move.DrawToGoalMove;
+import org.silnith.game.solitaire.move.FlipAndDrawMove;
 import org.silnith.game.solitaire.move.ResetDrawPileMove;
 import org.silnith.game.solitaire.move.SolitaireMove;
 
@@ -544,6 +550,251 @@ public class SolitaireTest {
         assertFalse(moves.contains(move));
     }
     
+    /**
+     * With the ace of clubs on top and three cards flipped at a time, the ace
+     * of hearts is one flip away and the ace of spades, the last card, two.
+     * The ace of diamonds takes a reset, then one more flip. The king of
+     * hearts can never be reached.
+     */
+    @Test
+    public void testFindAllMovesFlipAndDraw() {
+        solitaire.setFlipAndDrawMoves(true);
+        
+        final List<Card> drawPile = Arrays.asList(new Card(ACE, CLUB), new Card(KING, HEART), new Card(ACE, DIAMOND),
+                new Card(ACE, HEART), new Card(ACE, SPADE));
+        final Board board = new Board(emptyPiles, drawPile, 1, emptyGoal);
+        
+        final List<SolitaireMove> moves = solitaire.findAllMoves(board);
+        
+        final List<SolitaireMove> expected = Arrays.<SolitaireMove>asList(new DrawToGoalMove(1, new Card(ACE, CLUB)),
+                new FlipAndDrawMove(1, 5, false, 1, new DrawToGoalMove(4, new Card(ACE, HEART))),
+                new FlipAndDrawMove(1, 5, false, 2, new DrawToGoalMove(5, new Card(ACE, SPADE))),
+                new FlipAndDrawMove(1, 5, true, 4, new DrawToGoalMove(3, new Card(ACE, DIAMOND))));
+        assertEquals(expected, moves);
+    }
+    
+    private Board drawPileBoard(final int drawIndex) {
+        final List<Card> drawPile = Arrays.asList(new Card(ACE, CLUB), new Card(KING, HEART), new Card(ACE, DIAMOND),
+                new Card(ACE, HEART), new Card(SEVEN, SPADE), new Card(QUEEN, DIAMOND), new Card(ACE, SPADE));
+        return new Board(emptyPiles, drawPile, drawIndex, emptyGoal);
+    }
+    
+    private Set<Board> boardsAfterEveryMove(final Board board) {
+        final Set<Board> boards = new HashSet<>();
+        for (final SolitaireMove move : solitaire.findAllMoves(board)) {
+            boards.add(move.apply(board));
+        }
+        return boards;
+    }
+    
+    /**
+     * Flipping three at a time from the beginning stops at 3, 6, and the last
+     * card, 7, so with flip and draw moves those are the same as nothing
+     * flipped. The draw index 4 can only be left by taking a card.
+     */
+    @Test
+    public void testGetFingerprintMergesDrawPileCycle() {
+        solitaire.setFlipAndDrawMoves(true);
+        final long beginning = solitaire.getFingerprint(drawPileBoard(0));
+        
+        assertEquals(beginning, solitaire.getFingerprint(drawPileBoard(3)));
+        assertEquals(beginning, solitaire.getFingerprint(drawPileBoard(6)));
+        assertEquals(beginning, solitaire.getFingerprint(drawPileBoard(7)));
+        assertNotEquals(beginning, solitaire.getFingerprint(drawPileBoard(4)));
+    }
+    
+    @Test
+    public void testIsDrawIndexMerged() {
+        solitaire.setFlipAndDrawMoves(true);
+        
+        assertFalse(solitaire.isDrawIndexMerged(drawPileBoard(0)));
+        assertTrue(solitaire.isDrawIndexMerged(drawPileBoard(3)));
+        assertTrue(solitaire.isDrawIndexMerged(drawPileBoard(6)));
+        assertTrue(solitaire.isDrawIndexMerged(drawPileBoard(7)));
+        assertFalse(solitaire.isDrawIndexMerged(drawPileBoard(4)));
+    }
+    
+    @Test
+    public void testGetFingerprintMergedBoardsHaveTheSameMoves() {
+        solitaire.setFlipAndDrawMoves(true);
+        final Set<Board> boards = boardsAfterEveryMove(drawPileBoard(0));
+        
+        assertEquals(boards, boardsAfterEveryMove(drawPileBoard(3)));
+        assertEquals(boards, boardsAfterEveryMove(drawPileBoard(6)));
+        assertEquals(boards, boardsAfterEveryMove(drawPileBoard(7)));
+        assertNotEquals(boards, boardsAfterEveryMove(drawPileBoard(4)));
+    }
+    
+    @Test
+    public void testGetFingerprintWithoutFlipAndDraw() {
+        assertEquals(drawPileBoard(3).getFingerprint(), solitaire.getFingerprint(drawPileBoard(3)));
+        assertNotEquals(solitaire.getFingerprint(drawPileBoard(0)), solitaire.getFingerprint(drawPileBoard(3)));
+        assertFalse(solitaire.isDrawIndexMerged(drawPileBoard(3)));
+    }
+    
+    /**
+     * Returns a board with a king of clubs face down under a seven of hearts
+     * and an eight of spades, each on the given pile.
+     */
+    private Board pilesBoard(final int kingPile, final int eightPile) {
+        final List<Pile> piles = new ArrayList<>(emptyPiles);
+        piles.set(kingPile, new Pile(Arrays.asList(new Card(KING, CLUB)), Arrays.asList(new Card(SEVEN, HEART))));
+        piles.set(eightPile, new Pile(emptyListOfCards, Arrays.asList(new Card(EIGHT, SPADE))));
+        return new Board(piles, emptyListOfCards, 0, emptyGoal);
+    }
+    
+    @Test
+    public void testGetFingerprintMergesPilePermutations() {
+        solitaire.setMergePilePermutations(true);
+        
+        assertEquals(solitaire.getFingerprint(pilesBoard(0, 1)), solitaire.getFingerprint(pilesBoard(4, 2)));
+        assertNotEquals(solitaire.getFingerprint(pilesBoard(0, 1)),
+                solitaire.getFingerprint(pilesBoard(0, 1).moveStack(0, 1, 1)));
+    }
+    
+    @Test
+    public void testGetFingerprintWithoutMergingPilePermutations() {
+        assertNotEquals(solitaire.getFingerprint(pilesBoard(0, 1)), solitaire.getFingerprint(pilesBoard(4, 2)));
+    }
+    
+    @Test
+    public void testPruneGameStatePilePermutationIsCycle() {
+        solitaire.setMergePilePermutations(true);
+        final GameState<SolitaireMove, Board> parent =
+                new GameState<>(solitaire.dealMove(orderedDeck()), pilesBoard(0, 1));
+        final GameState<SolitaireMove, Board> state =
+                new GameState<>(parent, new AdvanceDrawPileMove(0, 3), pilesBoard(4, 2));
+                
+        assertNull(solitaire.pruneGameState(state));
+        assertEquals(1, solitaire.getCyclesDetected());
+    }
+    
+    /**
+     * The fingerprint kept with a board must not be used by a game with other
+     * options.
+     */
+    @Test
+    public void testGetFingerprintAfterOptionsChange() {
+        final Solitaire both = new Solitaire(7, boardValidator);
+        both.setMergePilePermutations(true);
+        both.setMergeSuitSwaps(true);
+        final Board board = pilesBoard(4, 2);
+        solitaire.setMergePilePermutations(true);
+        final long merged = solitaire.getFingerprint(board);
+        
+        assertEquals(merged, solitaire.getFingerprint(board));
+        solitaire.setMergeSuitSwaps(true);
+        assertEquals(both.getFingerprint(pilesBoard(4, 2)), solitaire.getFingerprint(board));
+        solitaire.setMergeSuitSwaps(false);
+        assertEquals(merged, solitaire.getFingerprint(board));
+    }
+    
+    /**
+     * Returns a board with a king of clubs face down under a seven of hearts,
+     * an eight of spades, and an ace of hearts and a two of spades in the draw
+     * pile, with the red suits, the black suits, or both swapped.
+     */
+    private Board suitsBoard(final boolean swapRed, final boolean swapBlack) {
+        final Suit heart = swapRed ? DIAMOND : HEART;
+        final Suit club = swapBlack ? SPADE : CLUB;
+        final Suit spade = swapBlack ? CLUB : SPADE;
+        final List<Pile> piles = new ArrayList<>(emptyPiles);
+        piles.set(0, new Pile(Arrays.asList(new Card(KING, club)), Arrays.asList(new Card(SEVEN, heart))));
+        piles.set(1, new Pile(emptyListOfCards, Arrays.asList(new Card(EIGHT, spade))));
+        final List<Card> drawPile = Arrays.asList(new Card(ACE, heart), new Card(TWO, spade));
+        return new Board(piles, drawPile, 1, emptyGoal);
+    }
+    
+    private List<Board> suitSwappedBoards() {
+        return Arrays.asList(suitsBoard(false, false), suitsBoard(true, false), suitsBoard(false, true),
+                suitsBoard(true, true));
+    }
+    
+    @Test
+    public void testGetFingerprintMergesSuitSwaps() {
+        final Solitaire plain = new Solitaire(7, boardValidator);
+        solitaire.setMergeSuitSwaps(true);
+        
+        long least = Long.MAX_VALUE;
+        for (final Board board : suitSwappedBoards()) {
+            least = Math.min(least, plain.getFingerprint(board));
+        }
+        for (final Board board : suitSwappedBoards()) {
+            assertEquals(least, solitaire.getFingerprint(board));
+        }
+        assertNotEquals(least, solitaire.getFingerprint(suitsBoard(false, false).moveStack(0, 1, 1)));
+    }
+    
+    @Test
+    public void testGetFingerprintMergesSuitSwapsAndPilePermutations() {
+        final Solitaire piles = new Solitaire(7, boardValidator);
+        piles.setMergePilePermutations(true);
+        solitaire.setMergePilePermutations(true);
+        solitaire.setMergeSuitSwaps(true);
+        
+        long least = Long.MAX_VALUE;
+        for (final Board board : suitSwappedBoards()) {
+            least = Math.min(least, piles.getFingerprint(board));
+        }
+        for (final Board board : suitSwappedBoards()) {
+            assertEquals(least, solitaire.getFingerprint(board));
+        }
+    }
+    
+    @Test
+    public void testGetFingerprintMergingSuitSwapsAfterOptionsChange() {
+        final Solitaire both = new Solitaire(7, boardValidator);
+        both.setMergePilePermutations(true);
+        both.setMergeSuitSwaps(true);
+        final Board board = suitsBoard(true, false);
+        solitaire.setMergeSuitSwaps(true);
+        final long merged = solitaire.getFingerprint(board);
+        
+        assertEquals(merged, solitaire.getFingerprint(board));
+        solitaire.setMergePilePermutations(true);
+        assertEquals(both.getFingerprint(suitsBoard(true, false)), solitaire.getFingerprint(board));
+        solitaire.setMergePilePermutations(false);
+        assertEquals(merged, solitaire.getFingerprint(board));
+    }
+    
+    @Test
+    public void testPruneGameStateSuitSwapIsCycle() {
+        solitaire.setMergeSuitSwaps(true);
+        final GameState<SolitaireMove, Board> parent =
+                new GameState<>(solitaire.dealMove(orderedDeck()), suitsBoard(false, false));
+        final GameState<SolitaireMove, Board> state =
+                new GameState<>(parent, new AdvanceDrawPileMove(0, 3), suitsBoard(true, true));
+                
+        assertNull(solitaire.pruneGameState(state));
+        assertEquals(1, solitaire.getCyclesDetected());
+    }
+    
+    @Test
+    public void testGetFingerprintWithoutMergingSuitSwaps() {
+        final Set<Long> fingerprints = new HashSet<>();
+        for (final Board board : suitSwappedBoards()) {
+            fingerprints.add(solitaire.getFingerprint(board));
+        }
+        
+        assertEquals(4, fingerprints.size());
+    }
+    
+    @Test
+    public void testFindAllMovesFlipAndDrawFromBeginning() {
+        solitaire.setFlipAndDrawMoves(true);
+        
+        final List<Card> drawPile = Arrays.asList(new Card(ACE, CLUB), new Card(KING, HEART), new Card(ACE, DIAMOND),
+                new Card(ACE, HEART), new Card(ACE, SPADE));
+        final Board board = new Board(emptyPiles, drawPile, 0, emptyGoal);
+        
+        final List<SolitaireMove> moves = solitaire.findAllMoves(board);
+        
+        final List<SolitaireMove> expected = Arrays.<SolitaireMove>asList(
+                new FlipAndDrawMove(0, 5, false, 1, new DrawToGoalMove(3, new Card(ACE, DIAMOND))),
+                new FlipAndDrawMove(0, 5, false, 2, new DrawToGoalMove(5, new Card(ACE, SPADE))));
+        assertEquals(expected, moves);
+    }
+    
     // @Test
     public void testFindAllMoves1() {
         final List<Card> drawPile = Arrays.asList(new Card(THREE, CLUB), new Card(QUEEN, DIAMOND),
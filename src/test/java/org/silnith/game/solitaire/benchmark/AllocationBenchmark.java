@@ -0,0 +1,104 @@
+package org.silnith.game.solitaire.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.move.DrawToGoalMove;
+import org.silnith.game.solitaire.move.DrawToPileMove;
+import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.move.StackMove;
+
+
+/**
+ * Measures the bytes allocated by single board operations, using the
+ * per-thread allocation counter of the HotSpot JVM. The operations are
+ * sampled from boards reached by random play on seeded deals.
+ */
+public class AllocationBenchmark {
+    
+    private static final int NUMBER_OF_DEALS = 200;
+    
+    private static final int MOVES_PER_DEAL = 100;
+    
+    private static final int ROUNDS = 50;
+    
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            
+    /**
+     * A board together with a move that can be made on it.
+     */
+    private static class Sample {
+        
+        private final Board board;
+        
+        private final SolitaireMove move;
+        
+        public Sample(final Board board, final SolitaireMove move) {
+            super();
+            this.board = board;
+            this.move = move;
+        }
+        
+    }
+    
+    public static void main(final String[] args) {
+        final Solitaire solitaire = Deals.newGame();
+        solitaire.setReturnRedundantMoves(true);
+        final Random random = new Random(0x5eed);
+        final List<Sample> stackMoves = new ArrayList<>();
+        final List<Sample> drawMoves = new ArrayList<>();
+        final List<Sample> drawToGoalMoves = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_DEALS; i++ ) {
+            Board board = solitaire.deal(Deals.shuffledDeck(i));
+            for (int j = 0; j < MOVES_PER_DEAL; j++ ) {
+                final List<SolitaireMove> moves = new ArrayList<>(solitaire.findAllMoves(board));
+                if (moves.isEmpty()) {
+                    break;
+                }
+                for (final SolitaireMove move : moves) {
+                    if (move instanceof StackMove) {
+                        stackMoves.add(new Sample(board, move));
+                    } else if (move instanceof DrawToPileMove) {
+                        drawMoves.add(new Sample(board, move));
+                    } else if (move instanceof DrawToGoalMove) {
+                        drawToGoalMoves.add(new Sample(board, move));
+                    }
+                }
+                board = moves.get(random.nextInt(moves.size())).apply(board);
+            }
+        }
+        
+        for (int i = 0; i < 3; i++ ) {
+            measure(stackMoves);
+            measure(drawMoves);
+            measure(drawToGoalMoves);
+        }
+        System.out.printf("Board.moveStack: %.1f bytes/op over %d moves%n", measure(stackMoves), stackMoves.size());
+        System.out.printf("Board.drawCardToPile: %.1f bytes/op over %d moves%n", measure(drawMoves),
+                drawMoves.size());
+        System.out.printf("Board.drawCardToGoal: %.1f bytes/op over %d moves%n", measure(drawToGoalMoves),
+                drawToGoalMoves.size());
+    }
+    
+    private static double measure(final List<Sample> samples) {
+        final long threadId = Thread.currentThread().getId();
+        long blackhole = 0;
+        final long before = THREADS.getThreadAllocatedBytes(threadId);
+        for (int round = 0; round < ROUNDS; round++ ) {
+            for (final Sample sample : samples) {
+                blackhole += sample.move.apply(sample.board).getDrawIndex();
+            }
+        }
+        final long after = THREADS.getThreadAllocatedBytes(threadId);
+        if (blackhole == Long.MIN_VALUE) {
+            System.out.println(blackhole);
+        }
+        return (double) (after - before) / ((long) ROUNDS * samples.size());
+    }
+    
+}
@@ -0,0 +1,108 @@
+package org.silnith.game.solitaire.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.search.DepthFirstSearcher;
+import org.silnith.game.solitaire.search.TranspositionTable;
+
+
+/**
+ * Measures what playing safe cards to the goal at once does to the search, on
+ * a corpus of deals. For each deal this reports the average number of moves
+ * from each board, over a breadth-first walk of the first boards reached, and
+ * the nodes a depth-first search takes to the first solution, with and
+ * without auto-play. A depth-first search that reaches the node limit is
+ * reported as unsolved.
+ * <p>
+ * The optional arguments are the number of deals, which are seeded from zero
+ * up, the number of boards to walk for the branching factor, and the node
+ * limit per depth-first search.
+ */
+public class AutoPlayBenchmark {
+    
+    public static void main(final String[] args) throws InterruptedException {
+        final int numberOfDeals = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        final int boardsToWalk = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        final long maxNodes = args.length > 2 ? Long.parseLong(args[2]) : 1000000;
+        
+        final boolean[] autoPlay = { false, true };
+        final long[] totalMoves = new long[autoPlay.length];
+        final long[] totalBoards = new long[autoPlay.length];
+        final long[] totalNodes = new long[autoPlay.length];
+        final int[] solved = new int[autoPlay.length];
+        System.out.println("seed\tbranching\tauto-play branching\tnodes\tauto-play nodes");
+        for (int seed = 0; seed < numberOfDeals; seed++ ) {
+            final StringBuilder branching = new StringBuilder();
+            final StringBuilder nodes = new StringBuilder();
+            for (int i = 0; i < autoPlay.length; i++ ) {
+                final Solitaire solitaire = Deals.newGame();
+                solitaire.setAutoPlaySafeMoves(autoPlay[i]);
+                
+                final long[] walk = walk(solitaire, Deals.initialState(solitaire, seed).getBoards().getFirst(),
+                        boardsToWalk);
+                totalMoves[i] += walk[0];
+                totalBoards[i] += walk[1];
+                branching.append(String.format("\t%.2f", (double) walk[0] / walk[1]));
+                
+                final DepthFirstSearcher searcher = new DepthFirstSearcher(solitaire,
+                        Deals.initialState(solitaire, seed), new TranspositionTable(64L * 1024 * 1024));
+                final Thread thread = new Thread(searcher);
+                thread.start();
+                while (thread.isAlive() && searcher.getSolutions().isEmpty()
+                        && searcher.getNodesSearched() < maxNodes) {
+                    thread.join(5);
+                }
+                searcher.cancel();
+                thread.join();
+                final boolean isSolved = !searcher.getSolutions().isEmpty();
+                final long searched = Math.min(searcher.getNodesSearched(), maxNodes);
+                totalNodes[i] += searched;
+                if (isSolved) {
+                    solved[i]++ ;
+                }
+                nodes.append("\t" + (isSolved ? "solved " : "") + searched);
+            }
+            System.out.println(seed + branching.toString() + nodes.toString());
+        }
+        
+        System.out.print("total");
+        for (int i = 0; i < autoPlay.length; i++ ) {
+            System.out.print(String.format("\t%.2f", (double) totalMoves[i] / totalBoards[i]));
+        }
+        for (int i = 0; i < autoPlay.length; i++ ) {
+            System.out.print("\t" + solved[i] + " solved " + totalNodes[i] + " nodes");
+        }
+        System.out.println();
+    }
+    
+    /**
+     * Walks breadth-first from a board, skipping boards already seen, and
+     * returns the number of moves found and the number of boards they were
+     * found from.
+     */
+    private static long[] walk(final Solitaire solitaire, final Board start, final int boardsToWalk) {
+        final TranspositionTable seen = new TranspositionTable(64L * 1024 * 1024);
+        final Deque<Board> queue = new ArrayDeque<>();
+        seen.add(start);
+        queue.add(start);
+        long moves = 0;
+        long boards = 0;
+        while ( !queue.isEmpty() && boards < boardsToWalk) {
+            final Board board = queue.remove();
+            boards++ ;
+            for (final SolitaireMove move : solitaire.findAllMoves(board)) {
+                moves++ ;
+                final Board next = move.apply(board);
+                if (seen.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        return new long[] { moves, boards };
+    }
+    
+}
@@ -0,0 +1,68 @@
+package org.silnith.game.solitaire.benchmark;
+
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.config.SearcherConfiguration;
+import org.silnith.game.solitaire.search.BeamSearcher;
+import org.silnith.game.solitaire.search.Heuristic;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+
+/**
+ * Measures the fraction of a set of seeded deals that the beam search solves
+ * at several beam widths, with the scorer from {@link SearcherConfiguration}.
+ * <p>
+ * The optional first argument is the number of deals, which are seeded from
+ * zero up. The remaining arguments are the widths to try, which default to
+ * powers of ten up to the configured width.
+ */
+public class BeamWidthBenchmark {
+    
+    public static void main(final String[] args) {
+        final int numberOfDeals = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        
+        try (final AnnotationConfigApplicationContext context =
+                new AnnotationConfigApplicationContext(SearcherConfiguration.class)) {
+            final Heuristic scorer = context.getBean("beamScorer", Heuristic.class);
+            final int configuredWidth = context.getBean(SearcherConfiguration.class).getBeamWidth();
+            
+            final int[] widths;
+            if (args.length > 1) {
+                widths = new int[args.length - 1];
+                for (int i = 1; i < args.length; i++ ) {
+                    widths[i - 1] = Integer.parseInt(args[i]);
+                }
+            } else {
+                int count = 1;
+                for (int width = 10; width <= configuredWidth; width *= 10) {
+                    count++ ;
+                }
+                widths = new int[count];
+                widths[0] = 1;
+                for (int i = 1; i < count; i++ ) {
+                    widths[i] = widths[i - 1] * 10;
+                }
+            }
+            
+            System.out.println("width\tsolved\trate\tnodes\tmillis");
+            for (final int width : widths) {
+                int solved = 0;
+                long nodes = 0;
+                final long start = System.nanoTime();
+                for (int seed = 0; seed < numberOfDeals; seed++ ) {
+                    final Solitaire solitaire = Deals.newGame();
+                    final BeamSearcher searcher =
+                            new BeamSearcher(solitaire, Deals.initialState(solitaire, seed), scorer, width);
+                    searcher.run();
+                    if ( !searcher.getSolutions().isEmpty()) {
+                        solved++ ;
+                    }
+                    nodes += searcher.getNodesExpanded();
+                }
+                final long elapsed = System.nanoTime() - start;
+                System.out.printf("%d\t%d/%d\t%.2f\t%d\t%d%n", width, solved, numberOfDeals,
+                        (double) solved / numberOfDeals, nodes, elapsed / 1_000_000);
+            }
+        }
+    }
+    
+}
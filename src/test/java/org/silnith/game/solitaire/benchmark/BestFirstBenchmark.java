@@ -0,0 +1,94 @@
+package org.silnith.game.solitaire.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.silnith.game.solitaire.Searcher;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.search.BestFirstSearcher;
+import org.silnith.game.solitaire.search.MinimumMovesHeuristic;
+import org.silnith.game.solitaire.search.TranspositionTable;
+
+
+/**
+ * Compares the best-first search at several weights with the depth-first
+ * {@link Searcher} on a corpus of deals, by nodes expanded and wall time to
+ * the first solution. Each search of a deal is given the same time limit, and
+ * a search that runs out of time is reported as unsolved.
+ * <p>
+ * The optional arguments are the number of deals, which are seeded from zero
+ * up, and the time limit per search in seconds.
+ */
+public class BestFirstBenchmark {
+    
+    private static final double[] WEIGHTS = { 1, 2, 5, BestFirstSearcher.GREEDY };
+    
+    public static void main(final String[] args) throws InterruptedException {
+        final int numberOfDeals = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        final long timeLimit = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        
+        System.out.print("seed\tsearcher");
+        for (final double weight : WEIGHTS) {
+            System.out.print("\tw=" + weight);
+        }
+        System.out.println();
+        
+        final long[] totalNodes = new long[WEIGHTS.length + 1];
+        final long[] totalMillis = new long[WEIGHTS.length + 1];
+        final int[] solved = new int[WEIGHTS.length + 1];
+        for (int seed = 0; seed < numberOfDeals; seed++ ) {
+            System.out.print(seed);
+            
+            final Solitaire solitaire = Deals.newGame();
+            final Searcher searcher = new Searcher(solitaire, Deals.initialState(solitaire, seed),
+                    new TranspositionTable(64L * 1024 * 1024));
+            final long searcherStart = System.nanoTime();
+            final Thread worker = new Thread(searcher.getNewWorker());
+            worker.start();
+            // The worker searches the whole tree, so stop it at the first solution.
+            final long deadline = searcherStart + TimeUnit.SECONDS.toNanos(timeLimit);
+            while ( !searcher.isDone() && searcher.getSolutions().isEmpty() && System.nanoTime() < deadline) {
+                searcher.awaitCompletion(10, TimeUnit.MILLISECONDS);
+            }
+            worker.interrupt();
+            worker.join();
+            report(0, searcher.getNodesSearched(), System.nanoTime() - searcherStart,
+                    !searcher.getSolutions().isEmpty(), totalNodes, totalMillis, solved);
+                    
+            for (int i = 0; i < WEIGHTS.length; i++ ) {
+                final Solitaire game = Deals.newGame();
+                final BestFirstSearcher bestFirst = new BestFirstSearcher(game, Deals.initialState(game, seed),
+                        new MinimumMovesHeuristic(), WEIGHTS[i], new TranspositionTable(64L * 1024 * 1024));
+                final Thread thread = new Thread(bestFirst);
+                final long start = System.nanoTime();
+                thread.start();
+                thread.join(TimeUnit.SECONDS.toMillis(timeLimit));
+                if (thread.isAlive()) {
+                    // Stop the search at the node count reached so far.
+                    bestFirst.setMaxNodes(0);
+                    thread.join();
+                }
+                report(i + 1, bestFirst.getNodesExpanded(), System.nanoTime() - start,
+                        !bestFirst.getSolutions().isEmpty(), totalNodes, totalMillis, solved);
+            }
+            System.out.println();
+        }
+        
+        System.out.print("total");
+        for (int i = 0; i <= WEIGHTS.length; i++ ) {
+            System.out.print("\t" + solved[i] + " solved " + totalNodes[i] + " nodes " + totalMillis[i] + " ms");
+        }
+        System.out.println();
+    }
+    
+    private static void report(final int column, final long nodes, final long nanos, final boolean isSolved,
+            final long[] totalNodes, final long[] totalMillis, final int[] solved) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        totalNodes[column] += nodes;
+        totalMillis[column] += millis;
+        if (isSolved) {
+            solved[column]++ ;
+        }
+        System.out.print("\t" + (isSolved ? "solved " : "") + nodes + "/" + millis + "ms");
+    }
+    
+}
@@ -0,0 +1,78 @@
+package org.silnith.game.solitaire.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.deck.Value;
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.BoardValidator;
+import org.silnith.game.solitaire.GoalValidator;
+import org.silnith.game.solitaire.PileValidator;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.move.DealMove;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * Reproducible deals for the benchmarks.
+ */
+public final class Deals {
+    
+    /**
+     * The seed of a deal with no solution, whose whole tree is about a
+     * thousand nodes.
+     */
+    public static final long SMALL_DEAL = 35;
+    
+    private Deals() {
+        super();
+    }
+    
+    /**
+     * Returns a standard game that does not return redundant moves.
+     * 
+     * @return a new game
+     */
+    public static Solitaire newGame() {
+        final Solitaire solitaire =
+                new Solitaire(7, new BoardValidator(7, 52, new PileValidator(), new GoalValidator()));
+        solitaire.setReturnRedundantMoves(false);
+        return solitaire;
+    }
+    
+    /**
+     * Returns a deck shuffled by a random number generator with the given
+     * seed.
+     * 
+     * @param seed the seed for the shuffle
+     * @return a shuffled deck
+     */
+    public static List<Card> shuffledDeck(final long seed) {
+        final List<Card> deck = new ArrayList<>(52);
+        for (final Suit suit : Suit.values()) {
+            for (final Value value : Value.values()) {
+                deck.add(new Card(value, suit));
+            }
+        }
+        Collections.shuffle(deck, new Random(seed));
+        return deck;
+    }
+    
+    /**
+     * Returns the initial game state for the deck with the given seed.
+     * 
+     * @param solitaire the game
+     * @param seed the seed for the shuffle
+     * @return the initial game state
+     */
+    public static GameState<SolitaireMove, Board> initialState(final Solitaire solitaire, final long seed) {
+        final DealMove dealMove = solitaire.dealMove(shuffledDeck(seed));
+        return new GameState<>(dealMove, solitaire.deal(dealMove));
+    }
+    
+}
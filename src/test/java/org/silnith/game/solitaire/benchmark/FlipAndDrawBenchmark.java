@@ -0,0 +1,89 @@
+package org.silnith.game.solitaire.benchmark;
+
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.HeuristicMoveOrdering;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.move.SolitaireMove;
+import org.silnith.game.solitaire.search.DepthFirstSearcher;
+import org.silnith.game.solitaire.search.TranspositionTable;
+
+
+/**
+ * Measures what flipping through the draw pile as part of each move from it
+ * does to the search, on a corpus of deals. For each deal this reports the
+ * nodes a depth-first search takes to the first solution, or to search the
+ * whole tree, and the number of moves in the solution found, with and without
+ * flip and draw moves. The games play safe cards automatically and order the
+ * moves by {@link HeuristicMoveOrdering}. A search that reaches the node limit
+ * is reported as undecided.
+ * <p>
+ * The optional arguments are the number of deals, which are seeded from zero
+ * up, and the node limit per search.
+ */
+public class FlipAndDrawBenchmark {
+    
+    public static void main(final String[] args) throws InterruptedException {
+        final int numberOfDeals = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        final long maxNodes = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+        
+        final boolean[] flipAndDraw = { false, true };
+        final long[] totalNodes = new long[flipAndDraw.length];
+        final long[] totalDepth = new long[flipAndDraw.length];
+        final int[] solved = new int[flipAndDraw.length];
+        final int[] exhausted = new int[flipAndDraw.length];
+        System.out.println("seed\tnodes\tflip and draw nodes\tdepth\tflip and draw depth");
+        for (int seed = 0; seed < numberOfDeals; seed++ ) {
+            final StringBuilder nodes = new StringBuilder();
+            final StringBuilder depths = new StringBuilder();
+            for (int i = 0; i < flipAndDraw.length; i++ ) {
+                final Solitaire solitaire = Deals.newGame();
+                solitaire.setAutoPlaySafeMoves(true);
+                solitaire.setMoveOrdering(new HeuristicMoveOrdering());
+                solitaire.setFlipAndDrawMoves(flipAndDraw[i]);
+                
+                final DepthFirstSearcher searcher = new DepthFirstSearcher(solitaire,
+                        Deals.initialState(solitaire, seed), new TranspositionTable(64L * 1024 * 1024));
+                final Thread thread = new Thread(searcher);
+                thread.start();
+                while (thread.isAlive() && searcher.getSolutions().isEmpty()
+                        && searcher.getNodesSearched() < maxNodes) {
+                    thread.join(5);
+                }
+                // A search that stopped by itself has searched the whole tree.
+                final boolean finished = !thread.isAlive();
+                searcher.cancel();
+                thread.join();
+                final long searched = Math.min(searcher.getNodesSearched(), maxNodes);
+                totalNodes[i] += searched;
+                if ( !searcher.getSolutions().isEmpty()) {
+                    final GameState<SolitaireMove, Board> solution = searcher.getSolutions().iterator().next();
+                    // The deal is not a move of the solution.
+                    final int depth = solution.getMoves().size() - 1;
+                    solved[i]++ ;
+                    totalDepth[i] += depth;
+                    nodes.append("\tsolved " + searched);
+                    depths.append("\t" + depth);
+                } else if (finished) {
+                    exhausted[i]++ ;
+                    nodes.append("\tunsolvable " + searched);
+                    depths.append("\t-");
+                } else {
+                    nodes.append("\t" + searched);
+                    depths.append("\t-");
+                }
+            }
+            System.out.println(seed + nodes.toString() + depths.toString());
+        }
+        
+        System.out.print("total");
+        for (int i = 0; i < flipAndDraw.length; i++ ) {
+            System.out.print("\t" + solved[i] + " solved " + exhausted[i] + " unsolvable " + totalNodes[i] + " nodes");
+        }
+        for (int i = 0; i < flipAndDraw.length; i++ ) {
+            System.out.print(String.format("\t%.1f", solved[i] == 0 ? 0.0 : (double) totalDepth[i] / solved[i]));
+        }
+        System.out.println();
+    }
+    
+}
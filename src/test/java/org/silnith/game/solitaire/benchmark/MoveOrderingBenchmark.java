@@ -0,0 +1,67 @@
+package org.silnith.game.solitaire.benchmark;
+
+import org.silnith.game.solitaire.HeuristicMoveOrdering;
+import org.silnith.game.solitaire.MoveOrdering;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.search.DepthFirstSearcher;
+import org.silnith.game.solitaire.search.TranspositionTable;
+
+
+/**
+ * Compares the depth-first search with the moves in the order they are found
+ * against the same search with the {@link HeuristicMoveOrdering}, by nodes
+ * searched to the first solution on a corpus of deals. A search that reaches
+ * the node limit is reported as unsolved. The node counts are checked every
+ * few milliseconds, so they run a little past the first solution.
+ * <p>
+ * The optional arguments are the number of deals, which are seeded from zero
+ * up, the node limit per search, and whether the game returns redundant
+ * moves.
+ */
+public class MoveOrderingBenchmark {
+    
+    public static void main(final String[] args) throws InterruptedException {
+        final int numberOfDeals = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        final long maxNodes = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+        final boolean returnRedundantMoves = args.length > 2 && Boolean.parseBoolean(args[2]);
+        
+        final MoveOrdering[] orderings = { null, new HeuristicMoveOrdering() };
+        final long[] totalNodes = new long[orderings.length];
+        final int[] solved = new int[orderings.length];
+        System.out.println("seed\tfound order\theuristic order");
+        for (int seed = 0; seed < numberOfDeals; seed++ ) {
+            System.out.print(seed);
+            for (int i = 0; i < orderings.length; i++ ) {
+                final Solitaire solitaire = Deals.newGame();
+                solitaire.setReturnRedundantMoves(returnRedundantMoves);
+                solitaire.setMoveOrdering(orderings[i]);
+                final DepthFirstSearcher searcher = new DepthFirstSearcher(solitaire,
+                        Deals.initialState(solitaire, seed), new TranspositionTable(64L * 1024 * 1024));
+                final Thread thread = new Thread(searcher);
+                thread.start();
+                while (thread.isAlive() && searcher.getSolutions().isEmpty()
+                        && searcher.getNodesSearched() < maxNodes) {
+                    thread.join(5);
+                }
+                searcher.cancel();
+                thread.join();
+                
+                final boolean isSolved = !searcher.getSolutions().isEmpty();
+                final long nodes = Math.min(searcher.getNodesSearched(), maxNodes);
+                totalNodes[i] += nodes;
+                if (isSolved) {
+                    solved[i]++ ;
+                }
+                System.out.print("\t" + (isSolved ? "solved " : "") + nodes);
+            }
+            System.out.println();
+        }
+        
+        System.out.print("total");
+        for (int i = 0; i < orderings.length; i++ ) {
+            System.out.print("\t" + solved[i] + " solved " + totalNodes[i] + " nodes");
+        }
+        System.out.println();
+    }
+    
+}
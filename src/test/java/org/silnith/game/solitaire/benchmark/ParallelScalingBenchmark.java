@@ -0,0 +1,78 @@
+package org.silnith.game.solitaire.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.silnith.game.solitaire.Searcher;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.search.TranspositionTable;
+
+
+/**
+ * Measures how the fork/join search scales with the number of threads. Each
+ * deal is searched exhaustively with a fresh transposition table, once per
+ * thread count from one up to the number of available processors.
+ * <p>
+ * The arguments are the deal seeds to search. The defaults are deals whose
+ * trees are small enough to exhaust in a few seconds.
+ */
+public class ParallelScalingBenchmark {
+    
+    private static final long[] DEFAULT_SEEDS = { 16, 27, 31, 34 };
+    
+    private static final int WARMUP_ROUNDS = 2;
+    
+    public static void main(final String[] args) {
+        final long[] seeds;
+        if (args.length > 0) {
+            seeds = new long[args.length];
+            for (int i = 0; i < args.length; i++ ) {
+                seeds[i] = Long.parseLong(args[i]);
+            }
+        } else {
+            seeds = DEFAULT_SEEDS;
+        }
+        final int maxThreads = Runtime.getRuntime().availableProcessors();
+        
+        for (int i = 0; i < WARMUP_ROUNDS; i++ ) {
+            searchAll(seeds, maxThreads);
+        }
+        
+        System.out.println("threads\tnodes\tmillis\tnodes/s\tspeedup");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            final long start = System.nanoTime();
+            final long nodes = searchAll(seeds, threads);
+            final long elapsed = System.nanoTime() - start;
+            final double rate = nodes * 1e9 / elapsed;
+            if (threads == 1) {
+                baseline = rate;
+            }
+            System.out.printf("%d\t%d\t%d\t%.0f\t%.2f%n", threads, nodes, elapsed / 1_000_000, rate, rate / baseline);
+        }
+    }
+    
+    private static int nextThreadCount(final int threads, final int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+    
+    private static long searchAll(final long[] seeds, final int threads) {
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        long nodes = 0;
+        try {
+            for (final long seed : seeds) {
+                final Solitaire solitaire = Deals.newGame();
+                final Searcher searcher = new Searcher(solitaire, Deals.initialState(solitaire, seed),
+                        new TranspositionTable(64L * 1024 * 1024));
+                pool.invoke(searcher.getNewTask());
+                nodes += searcher.getNodesSearched();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return nodes;
+    }
+    
+}
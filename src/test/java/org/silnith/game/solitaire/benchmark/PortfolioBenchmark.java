@@ -0,0 +1,46 @@
+package org.silnith.game.solitaire.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.config.SearcherConfiguration;
+import org.silnith.game.solitaire.search.Portfolio;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+
+/**
+ * Races the portfolio from {@link SearcherConfiguration} on a set of seeded
+ * deals, and reports which strategy decided each deal and how often each
+ * strategy won.
+ * <p>
+ * The optional argument is the number of deals, which are seeded from zero
+ * up.
+ */
+public class PortfolioBenchmark {
+    
+    public static void main(final String[] args) throws InterruptedException {
+        final int numberOfDeals = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        
+        try (final AnnotationConfigApplicationContext context =
+                new AnnotationConfigApplicationContext(SearcherConfiguration.class)) {
+            final Solitaire solitaire = context.getBean(Solitaire.class);
+            final Portfolio portfolio = context.getBean(Portfolio.class);
+            
+            System.out.println("seed\toutcome\twinner\tcpu ms\twall ms");
+            for (int seed = 0; seed < numberOfDeals; seed++ ) {
+                final Portfolio.Result result = portfolio.solve(Deals.initialState(solitaire, seed));
+                System.out.println(seed + "\t" + result.getOutcome() + "\t" + result.getWinner() + "\t"
+                        + TimeUnit.NANOSECONDS.toMillis(result.getCpuNanos()) + "\t"
+                        + TimeUnit.NANOSECONDS.toMillis(result.getWallNanos()));
+            }
+            
+            System.out.println();
+            for (final Map.Entry<String, Long> entry : portfolio.getWins().entrySet()) {
+                System.out.println(entry.getKey() + "\t" + entry.getValue());
+            }
+            System.out.println("undecided\t" + portfolio.getUndecided());
+        }
+    }
+    
+}
@@ -0,0 +1,134 @@
+package org.silnith.game.solitaire.move;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.deck.Value;
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
+import org.silnith.game.solitaire.Searcher;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.benchmark.Deals;
+import org.silnith.game.solitaire.search.TestBoards;
+
+
+public class AutoPlayMoveTest {
+    
+    private static final Card KING_OF_SPADES = new Card(Value.KING, Suit.SPADE);
+    
+    private static final Card QUEEN_OF_SPADES = new Card(Value.QUEEN, Suit.SPADE);
+    
+    /**
+     * Moving the king off the queen turns the queen over, and then both are
+     * safe to play.
+     */
+    private final SolitaireMove kingMove =
+            new StackMove(0, 1, 1, Collections.singletonList(KING_OF_SPADES));
+            
+    @Test
+    public void testAfter() {
+        final Board board = TestBoards.almostWonBoard();
+        
+        final SolitaireMove move = AutoPlayMove.after(board, kingMove);
+        
+        final List<SolitaireMove> expected =
+                Arrays.asList(new PileToGoalMove(0, QUEEN_OF_SPADES), new PileToGoalMove(1, KING_OF_SPADES));
+        assertEquals(new AutoPlayMove(kingMove, expected), move);
+        assertTrue(move.apply(board).isGoalComplete());
+    }
+    
+    @Test
+    public void testAfterNothingSafe() {
+        final Board board = TestBoards.almostWonBoard();
+        final SolitaireMove move = new AdvanceDrawPileMove(0, 3);
+        
+        assertSame(move, AutoPlayMove.after(board, move));
+    }
+    
+    @Test
+    public void testGetSteps() {
+        final AutoPlayMove move = (AutoPlayMove) AutoPlayMove.after(TestBoards.almostWonBoard(), kingMove);
+        
+        assertEquals(Arrays.asList(kingMove, new PileToGoalMove(0, QUEEN_OF_SPADES),
+                new PileToGoalMove(1, KING_OF_SPADES)), move.getSteps());
+    }
+    
+    @Test
+    public void testHasCards() {
+        final SolitaireMove move = AutoPlayMove.after(TestBoards.almostWonBoard(), kingMove);
+        
+        assertTrue(move.hasCards());
+        assertEquals(kingMove.getCards(), move.getCards());
+    }
+    
+    @Test
+    public void testMakeAndUnmake() {
+        final Board board = TestBoards.almostWonBoard();
+        final SolitaireMove move = AutoPlayMove.after(board, kingMove);
+        final MutableBoard mutableBoard = new MutableBoard(board);
+        
+        move.make(mutableBoard);
+        assertEquals(move.apply(board), mutableBoard.toBoard());
+        move.unmake(mutableBoard);
+        assertEquals(board, mutableBoard.toBoard());
+    }
+    
+    @Test
+    public void testIsSafe() {
+        final Board board = TestBoards.almostWonBoard();
+        
+        assertTrue(AutoPlayMove.isSafe(new Card(Value.QUEEN, Suit.HEART), board));
+        assertFalse(AutoPlayMove.isSafe(new Card(Value.KING, Suit.HEART), board));
+        assertTrue(AutoPlayMove.isSafe(new Card(Value.KING, Suit.SPADE), board));
+    }
+    
+    @Test
+    public void testFindAllMovesWinsInOneMove() {
+        final Solitaire solitaire = TestBoards.newGame();
+        solitaire.setAutoPlaySafeMoves(true);
+        final Board board = TestBoards.almostWonBoard();
+        
+        boolean won = false;
+        for (final SolitaireMove move : solitaire.findAllMoves(board)) {
+            won |= solitaire.isWin(move.apply(board));
+        }
+        
+        assertTrue(won);
+    }
+    
+    @Test
+    public void testFindAllMovesTakesBackNeededCard() {
+        final Solitaire solitaire = TestBoards.newGame();
+        solitaire.setAutoPlaySafeMoves(true);
+        final Board board = TestBoards.takeBackBoard();
+        
+        final List<SolitaireMove> moves = solitaire.findAllMoves(board);
+        
+        assertTrue(moves.contains(new GoalToPileMove(1, new Card(Value.FIVE, Suit.HEART))));
+    }
+    
+    @Test
+    public void testSearchTakesBackNeededCard() {
+        final Solitaire solitaire = TestBoards.newGame();
+        solitaire.setAutoPlaySafeMoves(true);
+        final GameState<SolitaireMove, Board> startNode =
+                new GameState<>(solitaire.dealMove(Deals.shuffledDeck(0)), TestBoards.takeBackBoard());
+        final Searcher searcher = new Searcher(solitaire, startNode);
+        searcher.setStopOnFirstSolution(true);
+        
+        searcher.run();
+        
+        assertEquals(1, searcher.getSolutions().size());
+    }
+    
+}
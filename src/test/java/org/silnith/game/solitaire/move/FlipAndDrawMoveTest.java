@@ -0,0 +1,102 @@
+package org.silnith.game.solitaire.move;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.deck.Value;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.MutableBoard;
+import org.silnith.game.solitaire.Pile;
+
+
+public class FlipAndDrawMoveTest {
+    
+    private static final Card ACE_OF_DIAMONDS = new Card(Value.ACE, Suit.DIAMOND);
+    
+    private static final Card ACE_OF_HEARTS = new Card(Value.ACE, Suit.HEART);
+    
+    /**
+     * The ace of clubs is on top of the draw pile, with four cards left to
+     * flip.
+     */
+    private static Board board() {
+        final List<Pile> piles = new ArrayList<>();
+        for (int i = 0; i < 7; i++ ) {
+            piles.add(new Pile(null, null));
+        }
+        final List<Card> drawPile = Arrays.asList(new Card(Value.ACE, Suit.CLUB), new Card(Value.KING, Suit.HEART),
+                ACE_OF_DIAMONDS, ACE_OF_HEARTS, new Card(Value.ACE, Suit.SPADE));
+        final Map<Suit, List<Card>> goal = new EnumMap<>(Suit.class);
+        for (final Suit suit : Suit.values()) {
+            goal.put(suit, Collections.<Card>emptyList());
+        }
+        return new Board(piles, drawPile, 1, goal) {};
+    }
+    
+    private static Board replay(final List<SolitaireMove> steps, final Board board) {
+        Board result = board;
+        for (final SolitaireMove step : steps) {
+            result = step.apply(result);
+        }
+        return result;
+    }
+    
+    @Test
+    public void testNotADraw() {
+        assertThrows(IllegalArgumentException.class, () -> new FlipAndDrawMove(0, 5, false, 1,
+                new AdvanceDrawPileMove(0, 3)));
+    }
+    
+    @Test
+    public void testGetSteps() {
+        final DrawToGoalMove draw = new DrawToGoalMove(4, ACE_OF_HEARTS);
+        final FlipAndDrawMove move = new FlipAndDrawMove(1, 5, false, 1, draw);
+        
+        assertEquals(Arrays.asList(new AdvanceDrawPileMove(1, 3), draw), move.getSteps());
+        assertEquals(replay(move.getSteps(), board()), move.apply(board()));
+    }
+    
+    @Test
+    public void testGetStepsWithReset() {
+        final DrawToPileMove draw = new DrawToPileMove(3, 0, ACE_OF_DIAMONDS);
+        final FlipAndDrawMove move = new FlipAndDrawMove(1, 5, true, 4, draw);
+        
+        assertEquals(Arrays.asList(new AdvanceDrawPileMove(1, 4), new ResetDrawPileMove(5),
+                new AdvanceDrawPileMove(0, 3), draw), move.getSteps());
+        assertEquals(replay(move.getSteps(), board()), move.apply(board()));
+    }
+    
+    @Test
+    public void testApply() {
+        final FlipAndDrawMove move = new FlipAndDrawMove(1, 5, true, 4, new DrawToGoalMove(3, ACE_OF_DIAMONDS));
+        
+        final Board result = move.apply(board());
+        
+        assertEquals(2, result.getDrawIndex());
+        assertEquals(4, result.getDrawPileSize());
+        assertEquals(1, result.getGoalHeight(Suit.DIAMOND));
+    }
+    
+    @Test
+    public void testMakeAndUnmake() {
+        final Board board = board();
+        final FlipAndDrawMove move = new FlipAndDrawMove(1, 5, true, 4, new DrawToGoalMove(3, ACE_OF_DIAMONDS));
+        final MutableBoard mutableBoard = new MutableBoard(board);
+        
+        move.make(mutableBoard);
+        assertEquals(move.apply(board), mutableBoard.toBoard());
+        move.unmake(mutableBoard);
+        assertEquals(board, mutableBoard.toBoard());
+    }
+    
+}
@@ -0,0 +1,91 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.benchmark.Deals;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+public class BeamSearcherTest {
+    
+    private static Set<List<SolitaireMove>> getSolutionMoves(final BeamSearcher searcher) {
+        final Set<List<SolitaireMove>> solutions = new HashSet<>();
+        for (final GameState<SolitaireMove, Board> solution : searcher.getSolutions()) {
+            final List<SolitaireMove> moves = new ArrayList<>();
+            for (final SolitaireMove move : solution.getMoves()) {
+                moves.add(move);
+            }
+            solutions.add(moves);
+        }
+        return solutions;
+    }
+    
+    @Test
+    public void testWidthTooSmall() {
+        final Solitaire solitaire = Deals.newGame();
+        
+        assertThrows(IllegalArgumentException.class,
+                () -> new BeamSearcher(solitaire, Deals.initialState(solitaire, 27), new MinimumMovesHeuristic(), 0));
+    }
+    
+    @Test
+    public void testFindsSolution() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final BeamSearcher searcher =
+                new BeamSearcher(solitaire, TestBoards.almostWonState(solitaire), new MinimumMovesHeuristic(), 2);
+                
+        searcher.run();
+        
+        assertTrue(searcher.getSolutions().size() > 0);
+        assertEquals(3, searcher.getLayersSearched());
+    }
+    
+    @Test
+    public void testMaxDepth() {
+        final Solitaire solitaire = Deals.newGame();
+        final BeamSearcher searcher =
+                new BeamSearcher(solitaire, Deals.initialState(solitaire, 27), new MinimumMovesHeuristic(), 10);
+        searcher.setMaxDepth(5);
+        
+        searcher.run();
+        
+        assertEquals(5, searcher.getLayersSearched());
+        assertTrue(searcher.getNodesExpanded() <= 1 + 4 * 10);
+    }
+    
+    @Test
+    public void testSameLayersEveryRun() {
+        final Solitaire solitaire = Deals.newGame();
+        solitaire.setAutoPlaySafeMoves(true);
+        solitaire.setFlipAndDrawMoves(true);
+        solitaire.setMergePilePermutations(true);
+        final BeamSearcher first =
+                new BeamSearcher(solitaire, Deals.initialState(solitaire, 7), new MinimumMovesHeuristic(), 64);
+        first.setMaxDepth(40);
+        first.run();
+        
+        for (int i = 0; i < 4; i++ ) {
+            final BeamSearcher searcher =
+                    new BeamSearcher(solitaire, Deals.initialState(solitaire, 7), new MinimumMovesHeuristic(), 64);
+            searcher.setMaxDepth(40);
+            
+            searcher.run();
+            
+            assertEquals(first.getNodesExpanded(), searcher.getNodesExpanded());
+            assertEquals(first.getDuplicatesEliminated(), searcher.getDuplicatesEliminated());
+            assertEquals(getSolutionMoves(first), getSolutionMoves(searcher));
+        }
+    }
+    
+}
@@ -0,0 +1,52 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.benchmark.Deals;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+public class BestFirstSearcherTest {
+    
+    @Test
+    public void testWeightTooSmall() {
+        final Solitaire solitaire = Deals.newGame();
+        
+        assertThrows(IllegalArgumentException.class, () -> new BestFirstSearcher(solitaire,
+                Deals.initialState(solitaire, 27), new MinimumMovesHeuristic(), 0.5, new TranspositionTable(1024)));
+    }
+    
+    @Test
+    public void testFindsSolution() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final BestFirstSearcher searcher = new BestFirstSearcher(solitaire, TestBoards.almostWonState(solitaire),
+                new MinimumMovesHeuristic(), 1, new TranspositionTable(1024 * 1024));
+                
+        searcher.run();
+        
+        assertEquals(1, searcher.getSolutions().size());
+        final GameState<SolitaireMove, Board> solution = searcher.getSolutions().iterator().next();
+        assertEquals(4, solution.getMoves().size());
+        assertTrue(solitaire.isWin(solution.getBoards().getFirst()));
+    }
+    
+    @Test
+    public void testMaxNodes() {
+        final Solitaire solitaire = Deals.newGame();
+        final BestFirstSearcher searcher = new BestFirstSearcher(solitaire, Deals.initialState(solitaire, 27),
+                new MinimumMovesHeuristic(), BestFirstSearcher.GREEDY, new TranspositionTable(1024 * 1024));
+        searcher.setMaxNodes(100);
+        
+        searcher.run();
+        
+        assertEquals(100, searcher.getNodesExpanded());
+        assertTrue(searcher.getMaxFrontierSize() > 0);
+    }
+    
+}
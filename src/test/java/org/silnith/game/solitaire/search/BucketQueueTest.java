@@ -0,0 +1,57 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+
+public class BucketQueueTest {
+    
+    @Test
+    public void testEmpty() {
+        final BucketQueue<String> queue = new BucketQueue<>();
+        
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+    
+    @Test
+    public void testNegativePriority() {
+        final BucketQueue<String> queue = new BucketQueue<>();
+        
+        assertThrows(IllegalArgumentException.class, () -> queue.add("a", -1));
+    }
+    
+    @Test
+    public void testLowestPriorityFirst() {
+        final BucketQueue<String> queue = new BucketQueue<>();
+        queue.add("c", 300);
+        queue.add("a", 2);
+        queue.add("b", 70);
+        
+        assertEquals(2, queue.getLowestPriority());
+        assertEquals("a", queue.poll());
+        assertEquals("b", queue.poll());
+        queue.add("d", 5);
+        assertEquals("d", queue.poll());
+        assertEquals("c", queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+    
+    @Test
+    public void testEqualPriorityLastInFirstOut() {
+        final BucketQueue<Integer> queue = new BucketQueue<>();
+        for (int i = 0; i < 100; i++ ) {
+            queue.add(i, 7);
+        }
+        
+        assertEquals(100, queue.size());
+        for (int i = 99; i >= 0; i-- ) {
+            assertEquals(i, queue.poll());
+        }
+    }
+    
+}
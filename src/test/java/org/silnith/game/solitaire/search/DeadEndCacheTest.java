@@ -0,0 +1,111 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+
+public class DeadEndCacheTest {
+    
+    /**
+     * Returns a distinct fingerprint that lands in the first bucket.
+     */
+    private static long fingerprint(final int i) {
+        return (long) i << 32;
+    }
+    
+    @Test
+    public void testCapacity() {
+        final DeadEndCache cache = new DeadEndCache(1000);
+        
+        assertEquals(64, cache.getCapacity());
+    }
+    
+    @Test
+    public void testCapacityTooSmall() {
+        assertThrows(IllegalArgumentException.class, () -> new DeadEndCache(32));
+    }
+    
+    @Test
+    public void testSubtreeSizeMustBePositive() {
+        final DeadEndCache cache = new DeadEndCache(1024);
+        
+        assertThrows(IllegalArgumentException.class, () -> cache.add(42, 0));
+    }
+    
+    @Test
+    public void testAdd() {
+        final DeadEndCache cache = new DeadEndCache(1024);
+        
+        assertTrue(cache.add(0x1234567890abcdefL, 10));
+        assertTrue(cache.isDeadEnd(0x1234567890abcdefL));
+        assertFalse(cache.isDeadEnd(0x1234567890bbcdefL));
+    }
+    
+    @Test
+    public void testAddZero() {
+        final DeadEndCache cache = new DeadEndCache(1024);
+        
+        assertTrue(cache.add(0, 1));
+        assertTrue(cache.isDeadEnd(0));
+        assertEquals(1, cache.getSize());
+    }
+    
+    @Test
+    public void testCounters() {
+        final DeadEndCache cache = new DeadEndCache(1024);
+        cache.add(fingerprint(1), 10);
+        cache.add(fingerprint(2), 20);
+        cache.add(fingerprint(1), 10);
+        cache.isDeadEnd(fingerprint(1));
+        cache.isDeadEnd(fingerprint(2));
+        cache.isDeadEnd(fingerprint(3));
+        cache.isDeadEnd(fingerprint(4));
+        
+        assertEquals(2, cache.getSize());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+        assertEquals(30, cache.getNodesSaved());
+    }
+    
+    @Test
+    public void testNodesSavedSaturates() {
+        final DeadEndCache cache = new DeadEndCache(1024);
+        cache.add(fingerprint(1), 1_000_000);
+        cache.isDeadEnd(fingerprint(1));
+        
+        assertEquals(0xFFFF, cache.getNodesSaved());
+    }
+    
+    @Test
+    public void testFullBucketEvictsSmallestSubtree() {
+        final DeadEndCache cache = new DeadEndCache(64);
+        for (int i = 1; i <= 8; i++ ) {
+            cache.add(fingerprint(i), 100 * i);
+        }
+        
+        assertTrue(cache.add(fingerprint(9), 150));
+        assertFalse(cache.isDeadEnd(fingerprint(1)));
+        assertTrue(cache.isDeadEnd(fingerprint(2)));
+        assertTrue(cache.isDeadEnd(fingerprint(9)));
+        assertEquals(1, cache.getEvictions());
+    }
+    
+    @Test
+    public void testFullBucketRejectsSmallerSubtree() {
+        final DeadEndCache cache = new DeadEndCache(64);
+        for (int i = 1; i <= 8; i++ ) {
+            cache.add(fingerprint(i), 100 * i);
+        }
+        
+        assertFalse(cache.add(fingerprint(9), 50));
+        assertFalse(cache.isDeadEnd(fingerprint(9)));
+        assertTrue(cache.isDeadEnd(fingerprint(1)));
+        assertEquals(1, cache.getRejections());
+    }
+    
+}
@@ -0,0 +1,35 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.game.solitaire.Searcher;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.benchmark.Deals;
+
+
+public class DepthFirstSearcherTest {
+    
+    @Test
+    public void testSearchesSameTreeAsSearcher() {
+        final Solitaire solitaire = Deals.newGame();
+        final Searcher searcher = new Searcher(solitaire, Deals.initialState(solitaire, Deals.SMALL_DEAL),
+                new TranspositionTable(1024 * 1024));
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            pool.invoke(searcher.getNewTask());
+        } finally {
+            pool.shutdown();
+        }
+        final DepthFirstSearcher depthFirstSearcher = new DepthFirstSearcher(solitaire,
+                Deals.initialState(solitaire, Deals.SMALL_DEAL), new TranspositionTable(1024 * 1024));
+                
+        depthFirstSearcher.run();
+        
+        assertEquals(searcher.getNodesSearched(), depthFirstSearcher.getNodesSearched());
+        assertEquals(searcher.getSolutions().size(), depthFirstSearcher.getSolutions().size());
+    }
+    
+}
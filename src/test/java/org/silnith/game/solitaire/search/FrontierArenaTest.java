@@ -0,0 +1,152 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Searcher;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.benchmark.Deals;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+public class FrontierArenaTest {
+    
+    private final Solitaire solitaire;
+    
+    private final GameState<SolitaireMove, Board> startNode;
+    
+    private final Searcher searcher;
+    
+    public FrontierArenaTest() {
+        this.solitaire = Deals.newGame();
+        this.startNode = Deals.initialState(solitaire, 27);
+        this.searcher = new Searcher(solitaire, startNode);
+    }
+    
+    private static void assertSameNode(final GameState<SolitaireMove, Board> expected,
+            final GameState<SolitaireMove, Board> actual) {
+        assertEquals(new ArrayList<>(expected.getMoves()), new ArrayList<>(actual.getMoves()));
+        assertEquals(new ArrayList<>(expected.getBoards()), new ArrayList<>(actual.getBoards()));
+    }
+    
+    @Test
+    public void testEmpty() {
+        final FrontierArena arena = new FrontierArena(startNode, 4);
+        
+        assertTrue(arena.isEmpty());
+        assertNull(arena.pop());
+        assertNull(arena.steal());
+        assertEquals(0, arena.getBytesUsed());
+    }
+    
+    @Test
+    public void testStartNode() {
+        final FrontierArena arena = new FrontierArena(startNode, 4);
+        arena.push(Collections.singletonList(startNode));
+        
+        assertSame(startNode, arena.pop());
+    }
+    
+    @Test
+    public void testPopAndSteal() {
+        final FrontierArena arena = new FrontierArena(startNode, 1);
+        final List<GameState<SolitaireMove, Board>> children = searcher.search(startNode);
+        arena.push(children);
+        
+        assertEquals(children.size(), arena.size());
+        assertEquals((long) children.size() * arena.getRecordSize(), arena.getBytesUsed());
+        assertSameNode(children.get(children.size() - 1), arena.pop());
+        assertSameNode(children.get(0), arena.steal());
+        assertEquals(children.size() - 2, arena.size());
+    }
+    
+    @Test
+    public void testHistoryKeptUntilReleased() {
+        final FrontierArena arena = new FrontierArena(startNode, 4);
+        final List<GameState<SolitaireMove, Board>> children = searcher.search(startNode);
+        arena.push(children);
+        final GameState<SolitaireMove, Board> child = arena.pop();
+        final List<GameState<SolitaireMove, Board>> grandchildren = searcher.search(child);
+        arena.push(grandchildren);
+        final long childrenBytes = (long) (children.size() - 1 + grandchildren.size()) * arena.getRecordSize();
+        
+        assertEquals(childrenBytes + arena.getRecordSize(), arena.getBytesUsed());
+        arena.release(child);
+        assertEquals(childrenBytes + arena.getRecordSize(), arena.getBytesUsed());
+        for (int i = 0; i < grandchildren.size(); i++ ) {
+            final GameState<SolitaireMove, Board> grandchild = arena.pop();
+            assertSameNode(grandchildren.get(grandchildren.size() - 1 - i), grandchild);
+            arena.release(grandchild);
+        }
+        assertEquals((long) (children.size() - 1) * arena.getRecordSize(), arena.getBytesUsed());
+    }
+    
+    /**
+     * Searches depth-first through the arena alongside a search on the heap,
+     * and checks that every node comes back out unchanged.
+     */
+    @Test
+    public void testSearch() {
+        assertSearch(searcher, startNode);
+    }
+    
+    /**
+     * Searches a deal where cards are played to the goal by
+     * {@link org.silnith.game.solitaire.move.AutoPlayMove}s early on.
+     */
+    @Test
+    public void testSearchWithAutoPlay() {
+        final Solitaire game = Deals.newGame();
+        game.setAutoPlaySafeMoves(true);
+        final GameState<SolitaireMove, Board> autoPlayStart = Deals.initialState(game, 7);
+        
+        assertSearch(new Searcher(game, autoPlayStart), autoPlayStart);
+    }
+    
+    /**
+     * Searches with the draw pile flipped as part of each move from it, both
+     * with and without a reset.
+     */
+    @Test
+    public void testSearchWithFlipAndDraw() {
+        final Solitaire game = Deals.newGame();
+        game.setFlipAndDrawMoves(true);
+        game.setAutoPlaySafeMoves(true);
+        final GameState<SolitaireMove, Board> flipStart = Deals.initialState(game, 27);
+        
+        assertSearch(new Searcher(game, flipStart), flipStart);
+    }
+    
+    private static void assertSearch(final Searcher searcher, final GameState<SolitaireMove, Board> startNode) {
+        final FrontierArena arena = new FrontierArena(startNode, 1);
+        final List<GameState<SolitaireMove, Board>> expected = new ArrayList<>();
+        arena.push(Collections.singletonList(startNode));
+        expected.add(startNode);
+        for (int i = 0; i < 2000 && !arena.isEmpty(); i++ ) {
+            final GameState<SolitaireMove, Board> node = arena.pop();
+            assertSameNode(expected.remove(expected.size() - 1), node);
+            final List<GameState<SolitaireMove, Board>> children = searcher.search(node);
+            arena.push(children);
+            arena.release(node);
+            expected.addAll(children);
+        }
+        while ( !arena.isEmpty()) {
+            final GameState<SolitaireMove, Board> node = arena.steal();
+            assertSameNode(expected.remove(0), node);
+            arena.release(node);
+        }
+        assertTrue(expected.isEmpty());
+        assertTrue(arena.getMaxBytesUsed() > 0);
+        assertEquals(0, arena.getBytesUsed());
+    }
+    
+}
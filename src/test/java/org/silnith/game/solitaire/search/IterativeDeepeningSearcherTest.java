@@ -0,0 +1,65 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.benchmark.Deals;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+public class IterativeDeepeningSearcherTest {
+    
+    @Test
+    public void testEstimateIsExact() {
+        assertEquals(3, new MinimumMovesHeuristic().estimate(TestBoards.almostWonBoard()));
+    }
+    
+    @Test
+    public void testEstimateOfDeal() {
+        final Board board = Deals.initialState(Deals.newGame(), 27).getBoards().getFirst();
+        
+        assertTrue(new MinimumMovesHeuristic().estimate(board) >= 52);
+    }
+    
+    @Test
+    public void testFindsShortestSolution() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final IterativeDeepeningSearcher searcher = new IterativeDeepeningSearcher(solitaire,
+                TestBoards.almostWonState(solitaire), new MinimumMovesHeuristic());
+                
+        searcher.run();
+        
+        assertEquals(Arrays.asList(3), searcher.getThresholds());
+        assertEquals(1, searcher.getNodesPerIteration().size());
+        assertTrue(searcher.getSolutions().size() > 0);
+        for (final GameState<SolitaireMove, Board> solution : searcher.getSolutions()) {
+            assertEquals(4, solution.getMoves().size());
+            assertTrue(solitaire.isWin(solution.getBoards().getFirst()));
+        }
+    }
+    
+    @Test
+    public void testFindsShortestSolutionWithAutoPlay() {
+        final Solitaire solitaire = TestBoards.newGame();
+        solitaire.setAutoPlaySafeMoves(true);
+        final GameState<SolitaireMove, Board> startNode =
+                new GameState<>(solitaire.dealMove(Deals.shuffledDeck(0)), TestBoards.autoPlayDetourBoard());
+        final IterativeDeepeningSearcher searcher =
+                new IterativeDeepeningSearcher(solitaire, startNode, new MinimumMovesHeuristic());
+                
+        searcher.run();
+        
+        assertEquals(Arrays.asList(3), searcher.getThresholds());
+        assertTrue(searcher.getSolutions().size() > 0);
+        for (final GameState<SolitaireMove, Board> solution : searcher.getSolutions()) {
+            assertEquals(solitaire.getLength(startNode) + 3, solitaire.getLength(solution));
+        }
+    }
+    
+}
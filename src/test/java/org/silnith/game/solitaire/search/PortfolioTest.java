@@ -0,0 +1,198 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.benchmark.Deals;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+public class PortfolioTest {
+    
+    /**
+     * A search that uses CPU time until it is cancelled, and never decides
+     * anything.
+     */
+    private static final class Spinner implements CancellableSearch {
+        
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        
+        @Override
+        public void run() {
+            while ( !cancelled.get()) {
+                Thread.onSpinWait();
+            }
+        }
+        
+        @Override
+        public boolean cancel() {
+            return cancelled.compareAndSet(false, true);
+        }
+        
+        @Override
+        public Collection<GameState<SolitaireMove, Board>> getSolutions() {
+            return Collections.emptyList();
+        }
+        
+        @Override
+        public boolean isExhausted() {
+            return false;
+        }
+        
+    }
+    
+    /**
+     * A search that finds nothing and is exhausted at once.
+     */
+    private static final class DeadEnd implements CancellableSearch {
+        
+        @Override
+        public void run() {
+        }
+        
+        @Override
+        public boolean cancel() {
+            return false;
+        }
+        
+        @Override
+        public Collection<GameState<SolitaireMove, Board>> getSolutions() {
+            return Collections.emptyList();
+        }
+        
+        @Override
+        public boolean isExhausted() {
+            return true;
+        }
+        
+    }
+    
+    @Test
+    public void testBudgetMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new Portfolio(0, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testDuplicateStrategy() {
+        final Portfolio portfolio = new Portfolio(1, TimeUnit.SECONDS);
+        portfolio.addStrategy("spin", startNode -> new Spinner());
+        
+        assertThrows(IllegalArgumentException.class, () -> portfolio.addStrategy("spin", startNode -> new Spinner()));
+    }
+    
+    @Test
+    public void testNoStrategies() {
+        final Portfolio portfolio = new Portfolio(1, TimeUnit.SECONDS);
+        final Solitaire solitaire = TestBoards.newGame();
+        
+        assertThrows(IllegalStateException.class, () -> portfolio.solve(TestBoards.almostWonState(solitaire)));
+    }
+    
+    @Test
+    public void testSolvedCancelsTheRest() throws InterruptedException {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Spinner spinner = new Spinner();
+        final Portfolio portfolio = new Portfolio(1, TimeUnit.HOURS);
+        portfolio.addStrategy("spin", startNode -> spinner);
+        portfolio.addStrategy("depth-first", startNode -> new DepthFirstSearcher(solitaire, startNode, null));
+        
+        final Portfolio.Result result = portfolio.solve(TestBoards.almostWonState(solitaire));
+        
+        assertEquals(Portfolio.Outcome.SOLVED, result.getOutcome());
+        assertEquals("depth-first", result.getWinner());
+        assertNotNull(result.getSolution());
+        assertTrue(spinner.cancelled.get());
+        assertEquals(Long.valueOf(1), portfolio.getWins().get("depth-first"));
+        assertEquals(Long.valueOf(0), portfolio.getWins().get("spin"));
+    }
+    
+    @Test
+    public void testUnsolvable() throws InterruptedException {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Spinner spinner = new Spinner();
+        final Portfolio portfolio = new Portfolio(1, TimeUnit.HOURS);
+        portfolio.addStrategy("spin", startNode -> spinner);
+        portfolio.addStrategy("dead end", startNode -> new DeadEnd(), true);
+        
+        final Portfolio.Result result = portfolio.solve(TestBoards.almostWonState(solitaire));
+        
+        assertEquals(Portfolio.Outcome.UNSOLVABLE, result.getOutcome());
+        assertEquals("dead end", result.getWinner());
+        assertNull(result.getSolution());
+        assertTrue(spinner.cancelled.get());
+    }
+    
+    @Test
+    public void testExhaustedWithoutProofGivesUp() throws InterruptedException {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Portfolio portfolio = new Portfolio(1, TimeUnit.HOURS);
+        portfolio.addStrategy("dead end", startNode -> new DeadEnd());
+        portfolio.addStrategy("depth-first", startNode -> new DepthFirstSearcher(solitaire, startNode, null));
+        
+        final Portfolio.Result result = portfolio.solve(TestBoards.almostWonState(solitaire));
+        
+        assertEquals(Portfolio.Outcome.SOLVED, result.getOutcome());
+        assertEquals("depth-first", result.getWinner());
+    }
+    
+    @Test
+    public void testExhaustedWithoutProofDoesNotDecide() throws InterruptedException {
+        final Solitaire solitaire = Deals.newGame();
+        final Portfolio portfolio = new Portfolio(1, TimeUnit.HOURS);
+        portfolio.addStrategy("depth-first", startNode -> new DepthFirstSearcher(solitaire, startNode,
+                new TranspositionTable(1024 * 1024)));
+                
+        final Portfolio.Result result = portfolio.solve(Deals.initialState(solitaire, Deals.SMALL_DEAL));
+        
+        assertEquals(Portfolio.Outcome.UNDECIDED, result.getOutcome());
+        assertNull(result.getWinner());
+        assertFalse(portfolio.provesUnsolvable("depth-first"));
+        assertEquals(1, portfolio.getUndecided());
+    }
+    
+    @Test
+    public void testGivingUpDoesNotDecide() throws InterruptedException {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Portfolio portfolio = new Portfolio(1, TimeUnit.HOURS);
+        portfolio.addStrategy("no-nodes", startNode -> {
+            final BestFirstSearcher searcher = new BestFirstSearcher(solitaire, startNode,
+                    new MinimumMovesHeuristic(), 1, new TranspositionTable(1024));
+            searcher.setMaxNodes(0);
+            return searcher;
+        });
+        portfolio.addStrategy("depth-first", startNode -> new DepthFirstSearcher(solitaire, startNode, null));
+        
+        final Portfolio.Result result = portfolio.solve(TestBoards.almostWonState(solitaire));
+        
+        assertEquals("depth-first", result.getWinner());
+    }
+    
+    @Test
+    public void testBudgetRunsOut() throws InterruptedException {
+        final Solitaire solitaire = TestBoards.newGame();
+        final Portfolio portfolio = new Portfolio(50, TimeUnit.MILLISECONDS);
+        portfolio.addStrategy("spin", startNode -> new Spinner());
+        portfolio.addStrategy("spin again", startNode -> new Spinner());
+        
+        final Portfolio.Result result = portfolio.solve(TestBoards.almostWonState(solitaire));
+        
+        assertEquals(Portfolio.Outcome.UNDECIDED, result.getOutcome());
+        assertNull(result.getWinner());
+        assertTrue(result.getCpuNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, portfolio.getUndecided());
+    }
+    
+}
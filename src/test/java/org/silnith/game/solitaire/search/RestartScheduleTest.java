@@ -0,0 +1,69 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+
+public class RestartScheduleTest {
+    
+    @Test
+    public void testLubySequence() {
+        final long[] expected = {
+            1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1,
+        };
+        final long[] actual = new long[expected.length];
+        for (int i = 0; i < actual.length; i++ ) {
+            actual[i] = RestartSchedule.lubyTerm(i + 1);
+        }
+        
+        assertArrayEquals(expected, actual);
+    }
+    
+    @Test
+    public void testLuby() {
+        final RestartSchedule schedule = RestartSchedule.luby(100);
+        
+        assertEquals(100, schedule.getBudget(0));
+        assertEquals(200, schedule.getBudget(2));
+        assertEquals(800, schedule.getBudget(14));
+    }
+    
+    @Test
+    public void testLubySaturates() {
+        final RestartSchedule schedule = RestartSchedule.luby(Long.MAX_VALUE / 2);
+        
+        assertEquals(Long.MAX_VALUE, schedule.getBudget(6));
+    }
+    
+    @Test
+    public void testGeometric() {
+        final RestartSchedule schedule = RestartSchedule.geometric(100, 1.5);
+        
+        assertEquals(100, schedule.getBudget(0));
+        assertEquals(150, schedule.getBudget(1));
+        assertEquals(225, schedule.getBudget(2));
+    }
+    
+    @Test
+    public void testGeometricSaturates() {
+        final RestartSchedule schedule = RestartSchedule.geometric(100, 2);
+        
+        assertEquals(Long.MAX_VALUE, schedule.getBudget(100));
+    }
+    
+    @Test
+    public void testUnitMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> RestartSchedule.luby(0));
+        assertThrows(IllegalArgumentException.class, () -> RestartSchedule.geometric(0, 2));
+    }
+    
+    @Test
+    public void testFactorMustBeGreaterThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> RestartSchedule.geometric(100, 1));
+        assertThrows(IllegalArgumentException.class, () -> RestartSchedule.geometric(100, Double.NaN));
+    }
+    
+}
@@ -0,0 +1,114 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.benchmark.Deals;
+
+
+public class RestartingSearcherTest {
+    
+    @Test
+    public void testSolves() {
+        final Solitaire solitaire = TestBoards.newGame();
+        final RestartingSearcher searcher = new RestartingSearcher(solitaire, TestBoards.almostWonState(solitaire),
+                RestartSchedule.luby(10), 42);
+                
+        searcher.run();
+        
+        assertEquals(1, searcher.getSolutions().size());
+        assertTrue(solitaire.isWin(searcher.getSolutions().iterator().next().getBoards().getFirst()));
+    }
+    
+    @Test
+    public void testRestartsUntilExhausted() {
+        final Solitaire solitaire = Deals.newGame();
+        final RestartingSearcher searcher = new RestartingSearcher(solitaire,
+                Deals.initialState(solitaire, Deals.SMALL_DEAL), RestartSchedule.luby(10), 42);
+                
+        searcher.run();
+        
+        assertTrue(searcher.isExhausted());
+        assertTrue(searcher.getSolutions().isEmpty());
+        assertTrue(searcher.getRestarts() > 0);
+    }
+    
+    @Test
+    public void testSameSeedSameSearch() {
+        final Solitaire solitaire = Deals.newGame();
+        final RestartingSearcher first = new RestartingSearcher(solitaire,
+                Deals.initialState(solitaire, Deals.SMALL_DEAL), RestartSchedule.luby(10), 42);
+        final RestartingSearcher second = new RestartingSearcher(solitaire,
+                Deals.initialState(solitaire, Deals.SMALL_DEAL), RestartSchedule.luby(10), 42);
+                
+        first.run();
+        second.run();
+        
+        assertEquals(first.getNodesSearched(), second.getNodesSearched());
+        assertEquals(first.getRestarts(), second.getRestarts());
+    }
+    
+    @Test
+    public void testMaxNodes() {
+        final Solitaire solitaire = Deals.newGame();
+        final RestartingSearcher searcher = new RestartingSearcher(solitaire, Deals.initialState(solitaire, 0),
+                RestartSchedule.luby(10), 42);
+        searcher.setMaxNodes(100);
+        
+        searcher.run();
+        
+        assertEquals(100, searcher.getNodesSearched());
+        assertFalse(searcher.isExhausted());
+    }
+    
+    @Test
+    public void testDeadEndsKept() {
+        final Solitaire solitaire = Deals.newGame();
+        final DeadEndCache cache = new DeadEndCache(1024 * 1024);
+        final RestartingSearcher first = new RestartingSearcher(solitaire, TestBoards.deadEndState(solitaire),
+                RestartSchedule.luby(10), 42);
+        first.setDeadEndCache(cache);
+        final RestartingSearcher second = new RestartingSearcher(solitaire, TestBoards.deadEndState(solitaire),
+                RestartSchedule.luby(10), 42);
+        second.setDeadEndCache(cache);
+        
+        first.run();
+        second.run();
+        
+        assertTrue(second.isExhausted());
+        assertTrue(cache.getHits() > 0);
+        assertTrue(second.getNodesSearched() < first.getNodesSearched());
+    }
+    
+    @Test
+    public void testDeadEndsNotRecordedAfterPrunedMoves() {
+        final Solitaire solitaire = Deals.newGame();
+        final RestartingSearcher searcher = new RestartingSearcher(solitaire,
+                Deals.initialState(solitaire, Deals.SMALL_DEAL), RestartSchedule.luby(10), 42);
+        final DeadEndCache cache = new DeadEndCache(1024 * 1024);
+        searcher.setDeadEndCache(cache);
+        
+        searcher.run();
+        
+        assertTrue(searcher.isExhausted());
+        assertEquals(0, cache.getSize());
+    }
+    
+    @Test
+    public void testCancelBeforeRun() {
+        final Solitaire solitaire = Deals.newGame();
+        final RestartingSearcher searcher = new RestartingSearcher(solitaire, Deals.initialState(solitaire, 0),
+                RestartSchedule.luby(10), 42);
+                
+        assertTrue(searcher.cancel());
+        assertFalse(searcher.cancel());
+        searcher.run();
+        
+        assertEquals(0, searcher.getNodesSearched());
+        assertFalse(searcher.isExhausted());
+    }
+    
+}
@@ -0,0 +1,194 @@
+package org.silnith.game.solitaire.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.silnith.deck.Card;
+import org.silnith.deck.Suit;
+import org.silnith.deck.Value;
+import org.silnith.game.GameState;
+import org.silnith.game.solitaire.Board;
+import org.silnith.game.solitaire.Pile;
+import org.silnith.game.solitaire.Solitaire;
+import org.silnith.game.solitaire.benchmark.Deals;
+import org.silnith.game.solitaire.move.SolitaireMove;
+
+
+/**
+ * Boards with known solutions for testing the search strategies.
+ */
+public final class TestBoards {
+    
+    private TestBoards() {
+        super();
+    }
+    
+    /**
+     * Returns a board where every card is in the goal except the queen and
+     * king of spades, and the king is on the queen. The king has to move to
+     * another pile before the queen can go to the goal, so it takes three
+     * moves to win.
+     * 
+     * @return a board three moves from a win
+     */
+    public static Board almostWonBoard() {
+        final List<Pile> piles = new ArrayList<>();
+        piles.add(new Pile(Collections.singletonList(new Card(Value.QUEEN, Suit.SPADE)),
+                Collections.singletonList(new Card(Value.KING, Suit.SPADE))));
+        for (int i = 1; i < 7; i++ ) {
+            piles.add(new Pile(null, null));
+        }
+        final Map<Suit, List<Card>> goal = new EnumMap<>(Suit.class);
+        for (final Suit suit : Suit.values()) {
+            final List<Card> cards = new ArrayList<>();
+            for (final Value value : Value.values()) {
+                if (suit != Suit.SPADE || value.compareTo(Value.QUEEN) < 0) {
+                    cards.add(new Card(value, suit));
+                }
+            }
+            goal.put(suit, cards);
+        }
+        return new Board(piles, Collections.<Card>emptyList(), 0, goal) {};
+    }
+    
+    /**
+     * Returns a board that can only be won by taking cards back from the
+     * goal. The goal holds the hearts to five, the clubs and spades to four,
+     * and the ace of diamonds. The three of diamonds sits on the two, the
+     * only face-down pile, and a six of spades is on another pile. The five
+     * of hearts has to come back onto the six, then the four of spades onto
+     * the five, so that the three can move and free the two. After that,
+     * every card turned over can go to the goal.
+     * 
+     * @return a board that needs two cards taken back from the goal
+     */
+    public static Board takeBackBoard() {
+        final List<Card> turnOrder = new ArrayList<>();
+        turnOrder.add(new Card(Value.TWO, Suit.DIAMOND));
+        addCards(turnOrder, Suit.DIAMOND, Value.FOUR, Value.KING);
+        addCards(turnOrder, Suit.CLUB, Value.FIVE, Value.KING);
+        turnOrder.add(new Card(Value.FIVE, Suit.SPADE));
+        addCards(turnOrder, Suit.SPADE, Value.SEVEN, Value.KING);
+        addCards(turnOrder, Suit.HEART, Value.SIX, Value.KING);
+        Collections.reverse(turnOrder);
+        final List<Pile> piles = new ArrayList<>();
+        piles.add(new Pile(turnOrder, Collections.singletonList(new Card(Value.THREE, Suit.DIAMOND))));
+        piles.add(new Pile(null, Collections.singletonList(new Card(Value.SIX, Suit.SPADE))));
+        for (int i = 2; i < 7; i++ ) {
+            piles.add(new Pile(null, null));
+        }
+        final Map<Suit, List<Card>> goal = new EnumMap<>(Suit.class);
+        goal.put(Suit.HEART, new ArrayList<Card>());
+        addCards(goal.get(Suit.HEART), Suit.HEART, Value.ACE, Value.FIVE);
+        goal.put(Suit.CLUB, new ArrayList<Card>());
+        addCards(goal.get(Suit.CLUB), Suit.CLUB, Value.ACE, Value.FOUR);
+        goal.put(Suit.SPADE, new ArrayList<Card>());
+        addCards(goal.get(Suit.SPADE), Suit.SPADE, Value.ACE, Value.FOUR);
+        goal.put(Suit.DIAMOND, new ArrayList<Card>());
+        addCards(goal.get(Suit.DIAMOND), Suit.DIAMOND, Value.ACE, Value.ACE);
+        return new Board(piles, Collections.<Card>emptyList(), 0, goal) {};
+    }
+    
+    /**
+     * Returns a board where every card is in the goal except the queen and
+     * king of spades and the king of hearts. The king of hearts is on the
+     * queen of spades, and the king of spades is on a pile of its own. Playing
+     * the king of hearts to the goal wins in three moves. Moving it to an
+     * empty pile instead frees all three cards at once, but takes four.
+     * 
+     * @return a board three moves from a win
+     */
+    public static Board autoPlayDetourBoard() {
+        final List<Pile> piles = new ArrayList<>();
+        piles.add(new Pile(Collections.singletonList(new Card(Value.QUEEN, Suit.SPADE)),
+                Collections.singletonList(new Card(Value.KING, Suit.HEART))));
+        piles.add(new Pile(null, Collections.singletonList(new Card(Value.KING, Suit.SPADE))));
+        for (int i = 2; i < 7; i++ ) {
+            piles.add(new Pile(null, null));
+        }
+        final Map<Suit, List<Card>> goal = new EnumMap<>(Suit.class);
+        for (final Suit suit : Suit.values()) {
+            goal.put(suit, new ArrayList<Card>());
+        }
+        addCards(goal.get(Suit.HEART), Suit.HEART, Value.ACE, Value.QUEEN);
+        addCards(goal.get(Suit.CLUB), Suit.CLUB, Value.ACE, Value.KING);
+        addCards(goal.get(Suit.SPADE), Suit.SPADE, Value.ACE, Value.JACK);
+        addCards(goal.get(Suit.DIAMOND), Suit.DIAMOND, Value.ACE, Value.KING);
+        return new Board(piles, Collections.<Card>emptyList(), 0, goal) {};
+    }
+    
+    /**
+     * Returns a board two moves before {@link #almostWonBoard()}, with the ten
+     * and the jack of spades each on a pile of their own instead of in the
+     * goal. Under the default pruning of {@link Deals#newGame()} the only
+     * moves play the ten and then the jack to the goal, after which the king
+     * cannot move, so the board is a dead end.
+     * 
+     * @return a board that cannot be won
+     */
+    public static Board deadEndBoard() {
+        final List<Pile> piles = new ArrayList<>();
+        piles.add(new Pile(Collections.singletonList(new Card(Value.QUEEN, Suit.SPADE)),
+                Collections.singletonList(new Card(Value.KING, Suit.SPADE))));
+        piles.add(new Pile(null, Collections.singletonList(new Card(Value.JACK, Suit.SPADE))));
+        piles.add(new Pile(null, Collections.singletonList(new Card(Value.TEN, Suit.SPADE))));
+        for (int i = 3; i < 7; i++ ) {
+            piles.add(new Pile(null, null));
+        }
+        final Map<Suit, List<Card>> goal = new EnumMap<>(Suit.class);
+        for (final Suit suit : Suit.values()) {
+            goal.put(suit, new ArrayList<Card>());
+        }
+        addCards(goal.get(Suit.HEART), Suit.HEART, Value.ACE, Value.KING);
+        addCards(goal.get(Suit.CLUB), Suit.CLUB, Value.ACE, Value.KING);
+        addCards(goal.get(Suit.SPADE), Suit.SPADE, Value.ACE, Value.NINE);
+        addCards(goal.get(Suit.DIAMOND), Suit.DIAMOND, Value.ACE, Value.KING);
+        return new Board(piles, Collections.<Card>emptyList(), 0, goal) {};
+    }
+    
+    private static void addCards(final List<Card> cards, final Suit suit, final Value from, final Value to) {
+        for (final Value value : Value.values()) {
+            if (value.compareTo(from) >= 0 && value.compareTo(to) <= 0) {
+                cards.add(new Card(value, suit));
+            }
+        }
+    }
+    
+    /**
+     * Returns a game that can solve {@link #almostWonBoard()}. The default
+     * pruning of moves once the goal is high keeps the king from moving.
+     * 
+     * @return a new game
+     */
+    public static Solitaire newGame() {
+        final Solitaire solitaire = Deals.newGame();
+        solitaire.setReturnRedundantMoves(true);
+        return solitaire;
+    }
+    
+    /**
+     * Returns a start node for {@link #almostWonBoard()}.
+     * 
+     * @param solitaire the game
+     * @return a node three moves from a win
+     */
+    public static GameState<SolitaireMove, Board> almostWonState(final Solitaire solitaire) {
+        final SolitaireMove firstMove = solitaire.dealMove(Deals.shuffledDeck(0));
+        return new GameState<>(firstMove, almostWonBoard());
+    }
+    
+    /**
+     * Returns a start node for {@link #deadEndBoard()}.
+     * 
+     * @param solitaire the game
+     * @return a node that cannot be won
+     */
+    public static GameState<SolitaireMove, Board> deadEndState(final Solitaire solitaire) {
+        final SolitaireMove firstMove = solitaire.dealMove(Deals.shuffledDeck(0));
+        return new GameState<>(firstMove, deadEndBoard());
+    }
+    
+}
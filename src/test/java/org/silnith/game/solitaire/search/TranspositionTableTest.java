@@ -0,0 +1,110 @@
+package org.silnith.game.solitaire.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+
+public class TranspositionTableTest {
+    
+    @Test
+    public void testCapacity() {
+        final TranspositionTable table = new TranspositionTable(1000);
+        
+        assertEquals(64, table.getCapacity());
+    }
+    
+    @Test
+    public void testCapacityTooSmall() {
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(64));
+    }
+    
+    @Test
+    public void testAddNew() {
+        final TranspositionTable table = new TranspositionTable(1024);
+        
+        assertTrue(table.add(0x1234567890abcdefL));
+    }
+    
+    @Test
+    public void testAddRepeated() {
+        final TranspositionTable table = new TranspositionTable(1024);
+        table.add(0x1234567890abcdefL);
+        
+        assertFalse(table.add(0x1234567890abcdefL));
+    }
+    
+    @Test
+    public void testAddZero() {
+        final TranspositionTable table = new TranspositionTable(1024);
+        
+        assertTrue(table.add(0));
+        assertFalse(table.add(0));
+    }
+    
+    @Test
+    public void testContains() {
+        final TranspositionTable table = new TranspositionTable(1024);
+        table.add(42);
+        
+        assertTrue(table.contains(42));
+        assertFalse(table.contains(43));
+    }
+    
+    @Test
+    public void testCounters() {
+        final TranspositionTable table = new TranspositionTable(1024);
+        table.add(1);
+        table.add(2);
+        table.add(1);
+        
+        assertEquals(2, table.getSize());
+        assertEquals(2, table.getMisses());
+        assertEquals(1, table.getHits());
+        assertEquals(0, table.getOverflows());
+    }
+    
+    @Test
+    public void testOverflow() {
+        final TranspositionTable table = new TranspositionTable(128);
+        for (int i = 1; i <= 16; i++ ) {
+            table.add(i);
+        }
+        
+        assertTrue(table.add(17));
+        assertFalse(table.contains(17));
+        assertEquals(1, table.getOverflows());
+    }
+    
+    @Test
+    public void testConcurrentAddsExactlyOneWins() throws InterruptedException {
+        final TranspositionTable table = new TranspositionTable(1 << 20);
+        final AtomicInteger added = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++ ) {
+            final Thread thread = new Thread(() -> {
+                for (long i = 1; i <= 10_000; i++ ) {
+                    if (table.add(i * 0x9e3779b97f4a7c15L)) {
+                        added.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertEquals(10_000, added.get());
+        assertEquals(10_000, table.getSize());
+    }
+    
+}